@@ -6,21 +6,19 @@
  *  @authors Ali Sartaz Khan & Jonathan Houge
  */
 
+import game.AlgorithmAI;
 import game.Robot;
 import displays.Player;
 import displays.PlayerCreateDisplay;
 
+import net.Link;
+import net.Message;
+
 import java.net.Socket;
 import java.io.IOException;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 
 public class Client {
-	private Socket socket;
-	private BufferedWriter out;
-	private BufferedReader in;
+	private Link link;
 	private static Player player; // you!
 	
 	// Creates the player and determines how the Client wishes to play.
@@ -40,7 +38,7 @@ public class Client {
 			if (player.getColor().equals("White")) { robotColor = "Black"; }
 			else { robotColor = "White"; }
 			
-			opponent = new Robot(robotColor); 
+			opponent = new AlgorithmAI(robotColor); 
 			new Client(opponent); }
 		
 		else { // playing locally 
@@ -64,49 +62,44 @@ public class Client {
 		while (again) { // keeps running until the client doesn't want to play another game
 			ui = new UI(this, opponent);
 			again = ui.start();
-			opponent = new Robot(opponent.getColor()); }
+			opponent = new AlgorithmAI(opponent.getColor()); }
 	}
 
 	/**
-	 * Creates new input output streams and takes in a new socket
+	 * Opens a link over a new socket and introduces the player to the server.
+	 * A room on the server plays one game, so to play again the player goes
+	 * back to the lobby over a new connection to the same server.
 	 * 
 	 * @param socket: Socket object
 	 */
 	public Client(Socket socket) throws IOException {
-		try {
-			this.socket = socket;
-			this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
-			this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-		} 
-		catch (IOException e) {
-			close();
-		}
-		
-		out.write(player.getName() + "-" + player.getColor() + "-" + player.getPreferredTime()); // sends username to client manager
-		out.newLine();
-		out.flush();
-		String msgFromOthers = in.readLine();
-		System.out.println("My INFO: " + msgFromOthers);
-		String[] list = msgFromOthers.split("[:-]");
-		int ID = Integer.parseInt(list[1]);
-		System.out.println("Client" + ID + " Connected!");
-
-		String color = list[2];
-		player.setID(ID);
-		System.out.println(color.equals("White"));
-		player.setColor(color);	
-		String username = list[3];
-		player.setUsername(username);
-		String time = list[4]; // minutes
-		time += (":" + list[5]); // seconds
-		player.setTime(time);
-		
-		// CREATES UI OBJECT AND STARTS GAME
 		UI ui;
         boolean again = true;
 		while (again) { // keeps running until the client doesn't want to play another game
-			ui = new UI(this, in, out, socket);
-			again = ui.start(); }
+			try {
+				this.link = new Link(socket);
+			} 
+			catch (IOException e) {
+				close();
+			}
+			
+			// sends username to client manager, which answers with what we got
+			Message welcome = link.handshake(player.getName(), player.getColor().equals("White"), player.getPreferredTime());
+			System.out.println("My INFO: " + welcome);
+			System.out.println("Client" + welcome.id() + " Connected!");
+	
+			player.setID(welcome.id());
+			player.setColor(welcome.white() ? "White" : "Black");
+			player.setUsername(welcome.name());
+			player.setTime(welcome.time());
+			
+			// CREATES UI OBJECT AND STARTS GAME
+			ui = new UI(this, link);
+			again = ui.start();
+			link.close(); // leaves the room, the opponent is told
+			if (again) {
+				socket = new Socket(socket.getInetAddress(), socket.getPort()); }
+		}
 	}
 	
 	/**
@@ -114,7 +107,7 @@ public class Client {
 	 */
 	public void close() {
      	try {
-     		socket.close(); in.close(); out.close(); } 
+     		link.close(); } 
         catch (IOException e1) {}
      	System.exit(0);
      	System.out.println("Server is closed!");
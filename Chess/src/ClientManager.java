@@ -1,170 +1,213 @@
 /**
  *  Creates the Client handler for the server to input and output data
- *  
+ *
  *  @authors Ali Sartaz Khan
  */
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.net.Socket;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
+import net.Connection;
+import net.Lobby;
+import net.Message;
+import net.Room;
 
-public class ClientManager implements Runnable {   
-        public static ArrayList<ClientManager> users = new ArrayList<>();
-        private Socket socket;
-        BufferedWriter out;
-        BufferedReader in;
+
+/**
+ * Handles the frames of one connected client. The first frame introduces the
+ * user, who then waits in the lobby for an opponent with the same time control.
+ * Every later frame is passed on to that opponent only. Its methods run on the
+ * event loop of the client's connection.
+ */
+public class ClientManager implements Connection.Handler {
+        public static Lobby<ClientManager> lobby = new Lobby<>();
+        private Connection connection;
+        private volatile Room<ClientManager> room;
         String username;
         String color;
-        String newUserInput;
         int ID;
         String preferredTime;
-        
-        
+        /**
+         * The sequence number of the next message from and to the client
+         */
+        private int received;
+        private int sent;
+
+
+    	/**
+    	 * Remembers the connection once it can be sent to
+    	 *
+    	 * @param connection: the client's connection
+    	 */
+        public void opened(Connection connection) {
+        	this.connection = connection;
+        }
+
     	/**
-    	 * Constructor takes in socket and creates new input and output streams
-    	 * 
-    	 * @param socket: socket
+    	 * Handles a frame from the client: the user's HELLO if it is the first,
+    	 * otherwise a move for the opponent. Moves the room's rules refuse are
+    	 * answered with a REJECT and not passed on. Anything else, or a message out
+    	 * of sequence, ends the connection.
     	 */
-        public ClientManager(Socket socket) {
+        public void received(Connection connection, ByteBuffer frame) {
+        	Message message;
         	try {
-            	this.socket = socket; 
-				this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
-				this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-				this.newUserInput = in.readLine();
-				String[] list = newUserInput.split("[:-]");
-				this.username = list[0];
-				this.color = list[1];
-				this.preferredTime = list[2]; //minutes
-				this.preferredTime += (":" + list[3]); // seconds
-				System.out.println(newUserInput);
-				users.add(this);
-				ID = users.size();
-				if (ID == 2)
-					setValidColor();
-	        	broadcastIdToYourself();
-	        	broadcastToOthers("PLAYER:" + ID + "-" +color + "-" + username + "-" + preferredTime);
-	        	othersBroadcastToYou();
-			} 
-        	catch (IOException e) {
-				e.printStackTrace(); }
+        		message = Message.decode(frame);
+        	} catch (IllegalArgumentException e) {
+        		refuse(received, e.getMessage());
+        		return;
+        	}
+        	if (message.sequence() != received) {
+        		refuse(message.sequence(), "expected message " + received);
+        		return;
+        	}
+        	received = (received + 1) & 0xFFFF;
+        	if (username == null) {
+        		if (message.type() != Message.HELLO || message.version() != Message.VERSION) {
+        			refuse(message.sequence(), "this server speaks protocol version " + Message.VERSION);
+        			return;
+        		}
+        		join(message);
+        	} else if (message.type() == Message.MOVE) {
+        		play(message);
+        	} else {
+        		refuse(message.sequence(), "unexpected " + message);
+        	}
         }
 
     	/**
-    	 * Run method
+    	 * Checks a move against the room's board and passes it on if it is legal
+    	 * and the user's turn
+    	 *
+    	 * @param move: the MOVE message
     	 */
-        public void run() {
-//        	sq.add(out);
-            String msgFromUser = "";
-            while (socket.isConnected()) {
-            	try {
-            		msgFromUser = in.readLine(); //AVOID THE FIRST IN
-	            	System.out.println(msgFromUser);
-	            	broadcastToOthers(msgFromUser);
-            	} 
-            	catch(Exception e) { close(); } 
-            }
-        } 
-        
-        /**
-    	 * Sets valid of the the client by comparing colors with both users, where user 1 gets preference
-         * on which color to choose.
+        private void play(Message move) {
+        	Room<ClientManager> room = this.room;
+        	String problem = room == null ? "there is no opponent yet" : room.play(this, move.move());
+        	if (problem != null) {
+        		System.out.println("Rejecting " + move + " from " + this + ": " + problem);
+        		send(Message.reject(move.sequence(), problem));
+        		return;
+        	}
+        	sendToOpponent(move);
+        }
+
+    	/**
+    	 * Tells the client why its message was refused and closes the connection
+    	 * once that is written
+    	 *
+    	 * @param sequence: the sequence number of the refused message
+    	 * @param reason: why it was refused
     	 */
-        public void setValidColor() {
-        	for (ClientManager user: users) {
-				try {
-					if (user.username != this.username) { // getting user with ID 1
-						if (user.getColor().equals(this.getColor())) {
-							System.out.println("Users picked the same color! Updating User 2 color...");
-							System.out.println("Before: User1-" + user.getColor() + " User2-"+this.getColor());
-							
-							if (user.getColor().equals("White"))
-								this.setColor("Black");
-							else
-								this.setColor("White");
-							System.out.println("After: User1-" + user.getColor() + " User2-"+this.getColor());
-						}
-					}
-				}
-				catch (Exception e) { close(); }
+        private void refuse(int sequence, String reason) {
+        	System.out.println("Refusing " + this + ": " + reason);
+        	send(Message.reject(sequence, reason));
+        	// runs after the flush the send just queued
+        	connection.loop().execute(this::close);
+        }
+
+    	/**
+    	 * Takes the user's name, color and preferred time from a HELLO and pairs
+    	 * the user with the player waiting for the same time control, if there is
+    	 * one. The user who waited keeps the color they picked.
+    	 *
+    	 * @param hello: the user's HELLO
+    	 */
+        private void join(Message hello) {
+        	System.out.println(hello);
+        	this.username = hello.name();
+        	this.color = hello.white() ? "White" : "Black";
+        	this.preferredTime = hello.time();
+        	Room<ClientManager> room = lobby.join(this, preferredTime, color.equals("White"));
+        	if (room == null) { // waiting for an opponent
+        		ID = 1;
+        		broadcastIdToYourself();
+        		return;
+        	}
+        	ClientManager opponent = room.opponent(this);
+        	ID = 2;
+        	setColor(room.white() == this ? "White" : "Black");
+        	System.out.println("Paired " + room);
+        	opponent.room = room;
+        	this.room = room;
+        	broadcastIdToYourself();
+        	sendToOpponent(Message.player(ID, isWhite(), preferredTime, username));
+        	send(Message.player(opponent.ID, opponent.isWhite(), opponent.preferredTime, opponent.username));
+        }
+
+    	/**
+    	 * Takes the user out of the lobby once the connection is closed and tells
+    	 * the opponent, if any. The room comes from the lobby, since the user may
+    	 * have been paired before this.room was set. LEFT is sent on the
+    	 * opponent's event loop, after the opponent's join has sent its WELCOME
+    	 * and PLAYER
+    	 */
+        public void closed(Connection connection) {
+        	Room<ClientManager> room = lobby.leave(this);
+        	if (room != null) {
+        		ClientManager opponent = room.opponent(this);
+        		Message left = Message.left(username);
+        		opponent.connection.loop().execute(() -> opponent.send(left));
         	}
+        	System.out.println("Socket is closed!");
         }
 
         /**
-    	 * Method to broadcast string from others to yourself 
+    	 * Method to broadcast string from others to yourself
     	 */
         public void broadcastIdToYourself() {
-				try {
-					this.out.write("ID:" + this.ID +"-"+this.color + "-" + this.username + "-" + this.preferredTime);
-					this.out.newLine();
-					this.out.flush();
-				}
-				catch (Exception e) { close(); }
+				send(Message.welcome(ID, isWhite(), preferredTime, username));
     	}
-        
-        
+
+
         /**
-         * Method to broadcast string from others to yourself 
+         * Sends a message to the opponent, or drops it if the user has no
+         * opponent yet
+         *
+         * @param msgToOpponent: message to send
          */
-        public void othersBroadcastToYou() {
-        	for (ClientManager user: users) {
-				try {
-					if (user.username != this.username) {
-						this.out.write("PLAYER:" + user.ID + "-" + user.color + "-" 
-								+user.username + "-" + user.preferredTime);
-						this.out.newLine();
-						this.out.flush();}
-				}
-				catch (Exception e) { close(); }
-    		}
+        public void sendToOpponent(Message msgToOpponent) {
+        	Room<ClientManager> room = this.room;
+        	if (room != null)
+        		room.opponent(this).send(msgToOpponent);
         }
-        
+
         /**
-         * Method to broadcast string from you to others
-         * 
-         * @param msgToOthers: string to broadcast 
+         * Queues a message to this client, written out with any others queued
+         * when its event loop gets to it. Called from the loops of both players,
+         * so numbering and queueing happen together
+         *
+         * @param message: the message
          */
-        public void broadcastToOthers(String msgToOthers) {
-    		for (ClientManager user: users) {
-				try {
-					if (user.username != this.username) {
-						System.out.println("Inside broadcast");
-						user.out.write(msgToOthers);
-						user.out.newLine();
-						user.out.flush();}
-				}
-				catch (Exception e) { close(); }
-    		}
-    	}
-        
+        public synchronized void send(Message message) {
+        	connection.send(message.encode(sent));
+        	sent = (sent + 1) & 0xFFFF;
+        }
+
         /**
-         * Closes server
+         * Closes the connection to this client
          */
         public void close() {
-         	try {socket.close();
-         	in.close(); out.close();} 
-            catch (IOException e1) {}
-         	System.out.println("Socket is closed!");
-         	System.exit(0);
+        	connection.close();
      	}
-        
+
         // -- getters & setters
 
         /**
          * @return String representation of this object
          */
         public String toString() { return username; }
-        
-        
+
+
         /**
          * @return the color of this client
          */
         public String getColor() { return this.color; }
-        
+
+        /**
+         * @return true if this client plays white
+         */
+        public boolean isWhite() { return this.color.equals("White"); }
+
         /**
          * @return client id
          */
@@ -172,9 +215,9 @@ public class ClientManager implements Runnable {
 
         /**
          * Sets color for the client
-         * 
+         *
          * @param color: color to set client
          */
         public void setColor(String color) { this.color = color; }
 
-}
\ No newline at end of file
+}
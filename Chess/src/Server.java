@@ -6,66 +6,89 @@
 
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.concurrent.Executors;
-import java.net.InetAddress;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import net.EventLoop;
 
 /**
- * When a client connects, a new thread is started to handle it.
+ * Accepts clients and hands each to one of a few event loops, which serve all
+ * their connections without a thread per client.
+ * <P>
+ * Usage: {@code java Server [threads]}, one event loop per core by default.
  */
-public class Server 
+public class Server
 {
-	private ServerSocket serverSocket;
-    public Server(ServerSocket serverSocket) {
-    	this.serverSocket = serverSocket;
+    /**
+     * The port clients connect to.
+     */
+    public static final int PORT = 600;
+    /**
+     * How many connections may wait to be accepted.
+     */
+    private static final int BACKLOG = 1024;
+
+    private ServerSocketChannel serverChannel;
+    private EventLoop[] loops;
+    private int next;
+
+    /**
+     * Constructor takes in a bound channel and starts the event loops
+     *
+     * @param serverChannel: channel to accept clients on
+     * @param threads: the number of event loops, at least 1
+     */
+    public Server(ServerSocketChannel serverChannel, int threads) throws IOException {
+    	this.serverChannel = serverChannel;
+    	this.loops = new EventLoop[threads];
+    	for (int i = 0; i < threads; i++) {
+    		loops[i] = new EventLoop("Server loop " + (i + 1));
+    	}
     }
-    
+
     public static void main(String[] args) throws IOException {
-    	ServerSocket serverSocket = new ServerSocket(600);
-    	Server server = new Server(serverSocket);
+    	int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    	ServerSocketChannel serverChannel = ServerSocketChannel.open();
+    	serverChannel.bind(new InetSocketAddress(PORT), BACKLOG);
+    	Server server = new Server(serverChannel, threads);
     	server.start();
     }
-    
+
     /**
-     * Starts server class
+     * Starts server class, accepting clients on the calling thread until the
+     * server is closed
      */
     public void start() {
-    	System.out.println("Server has started");
+    	System.out.println("Server has started on " + loops.length + " threads");
     	try {
-    		while(!serverSocket.isClosed()) {
-    			Socket socket = serverSocket.accept();
+    		while(serverChannel.isOpen()) {
+    			SocketChannel channel = serverChannel.accept();
     			System.out.println("A new User is connected!");
-    			ClientManager clientManager = new ClientManager(socket);
-    			Thread thread = new Thread(clientManager);
-    			thread.start();
+    			loops[next].register(channel, new ClientManager());
+    			next = (next + 1) % loops.length;
     		}
     	} catch(IOException e) {
-    		
+
     	}
-    	
+
     }
-    
+
     /**
      * Closes server object
      */
     public void closeServer() {
     	try {
-    		if(serverSocket != null) {
-    			serverSocket.close();
+    		if(serverChannel != null) {
+    			serverChannel.close();
     		}
     	} catch(IOException e) {
     		e.printStackTrace();
     	}
+    	for (EventLoop loop : loops) {
+    		loop.shutdown();
+    	}
     	System.out.println("Server is Closed!");
     }
-       
-}
\ No newline at end of file
+
+}
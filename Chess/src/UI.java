@@ -1,26 +1,24 @@
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
 import org.eclipse.swt.events.*;
 import org.eclipse.swt.layout.*;
 import org.eclipse.swt.widgets.*;
 
 import displays.Player;
 import displays.GameOverDisplay;
+import engine.Game;
 import game.Robot;
 import game.TimedMode;
 import game.Chessboard;
 import game.GameStatus;
-import pieces.Rook;
+import game.PieceImages;
 import pieces.King;
 import pieces.Piece;
-import pieces.Queen;
-import pieces.Bishop;
-import pieces.Knight;
+import net.Link;
+import net.Message;
 
 import java.io.File;
-import java.net.Socket;
 import java.io.IOException;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 
 /**
  * The general UI for the Chess game.
@@ -33,10 +31,7 @@ public class UI {
 	private Display display;
 	private Shell shell;
 	
-	private BufferedWriter out;
-	private BufferedReader in;
-	
-	Socket socket;
+	private Link link;
 
 	Client client;
 	Chessboard boardUI;
@@ -70,22 +65,19 @@ public class UI {
 	/**
 	 * Constructor that assigns values.
 	 * 
-	 * in == null is used for local games.
+	 * link == null is used for local games.
 	 * 
 	 * @param client: client object
-	 * @param in: input stream
-	 * @param out: output stream
-	 * @param socket: Socket object
+	 * @param link: the connection to the server
 	 */
-	public UI(Client client, BufferedReader in, BufferedWriter out, Socket socket) {
-		this.in = in; this.out = out;
-		this.socket = socket; this.client = client;
+	public UI(Client client, Link link) {
+		this.link = link; this.client = client;
 		
 		this.player = this.client.getPlayer();
 		this.fileName = this.player.getFileName();
 		this.username = this.player.getName();
 		
-		if (in == null || client.getPlayer().getColor().equals("White")) {
+		if (link == null || client.getPlayer().getColor().equals("White")) {
 			this.whitesTurn = true;
 			this.yourTurn = true; }
 		
@@ -152,7 +144,7 @@ public class UI {
 			public void handleEvent(Event event) {
 				System.out.println("Closing the shell!");
 				String fileToSaveGame = gameStatus.promptsFileWhileExiting();
-				gameStatus.saveGame(boardUI.getBoard(), yourTurn, whitesTurn); }
+				gameStatus.saveGame(boardUI.copyPosition(), yourTurn, whitesTurn); }
 		});
 		
 		canvas.addPaintListener(e -> {
@@ -166,13 +158,18 @@ public class UI {
 				
 				else {
 					gameStatus.setFileName(fileName);
-					gameStatus.loadGame(boardUI.getBoard());
+					boolean[] turns = gameStatus.loadGame(boardUI, robot == null && link == null,
+							player.getColor().equals("White"));
+					if (turns == null) {
+						boardUI.setAllPieces(); }
+					else {
+						yourTurn = turns[0];
+						whitesTurn = turns[1]; }
 					if (robot != null)
 						robot.populatePiecesList(boardUI.getBoard()); }
 				
 				if (robot != null && !yourTurn) {
-					robot.movePiece();
-					yourTurn = true; }
+					robotMove(); }
 				
 				initialized = true;
 			}
@@ -211,7 +208,7 @@ public class UI {
 					if (selectedPiece != null) {
 						selectedPiece.setSelected();
 						boardUI.highlightCoordinates(selectedPiece);
-						canvas.redraw();
+						boardUI.refresh();
 					}
 				}
 				
@@ -230,7 +227,7 @@ public class UI {
 							selectedPiece = possibleSelection;
 							selectedPiece.setSelected();
 							boardUI.highlightCoordinates(selectedPiece);
-							canvas.redraw(); }
+							boardUI.refresh(); }
 					}
 					
 					else { // player may have moved onto empty space or onto enemy
@@ -248,35 +245,26 @@ public class UI {
 			 * @param yCoord: Y coordinate
 			 */
 			public void makeMove(int xCoord,int yCoord) {
-				int xCoordBefore = selectedPiece.getX();
-				int yCoordBefore = selectedPiece.getY();
-				
 				boardUI.unhighlightCoordinates();
 				gameOver = boardUI.updateBoard(xCoord,yCoord,selectedPiece);
 				
-				if (in != null) { // don't want to communicate to server if local game
+				if (link != null) { // don't want to communicate to server if local game
 					try {
-						if (boardUI.getPromotion()) { // pawn promotion
-							String promotedPiece = boardUI.getTile(xCoord, yCoord).getPiece().getName();
-							out.write("MOVE:"+xCoordBefore+"-"+yCoordBefore+"-"+xCoord+"-"+yCoord+"-PROMOTION:"+promotedPiece); }
-						
-						else { // normal move
-							out.write("MOVE:"+xCoordBefore+"-"+yCoordBefore+"-"+xCoord+"-"+yCoord); }
-						
-						out.newLine();
-						out.flush(); } 
+						// the move carries its promotion piece, if any
+						link.send(Message.move(boardUI.getLastMove()));
+						link.flush(); } 
 					catch (IOException e1) { e1.printStackTrace(); } 
 					yourTurn = !yourTurn;
 				}
 				
-				else if (robot != null) {// Robot play
-					robot.movePiece(); }
+				else if (robot != null && gameOver == 0) {// Robot play
+					robotMove(); }
 				
 				else { whitesTurn = !whitesTurn; } // Local play
 				
-				canvas.redraw();
 				selectedPiece.SetNotSelected();
 				selectedPiece = null;
+				boardUI.refresh();
 			}
 			
 			public void mouseUp(MouseEvent e) {} 
@@ -284,51 +272,37 @@ public class UI {
 		});
 
 		canvas.addKeyListener(new KeyListener() {
-			public void keyPressed(KeyEvent e) { canvas.redraw(); } 
+			public void keyPressed(KeyEvent e) { 
+				// Ctrl+Z or Backspace takes a move back, Ctrl+Y plays it again
+				if (e.keyCode == SWT.BS || (e.keyCode == 'z' && (e.stateMask & SWT.MOD1) != 0)) {
+					takeBack(false); }
+				else if (e.keyCode == 'y' && (e.stateMask & SWT.MOD1) != 0) {
+					takeBack(true); }
+				else { canvas.redraw(); } } 
 			public void keyReleased(KeyEvent e) {}
 		});
 		
-		if (in != null) { // no need for server runnable if we're local
-			Runnable runnable = new Runner();
-			display.asyncExec(runnable); }
+		if (link != null) { // no need for server messages if we're local
+			link.listen(new Receiver()); }
 		
 		shell.open(); 
-		boolean isJustConnected = true;
-		long start = System.currentTimeMillis();
+		display.timerExec(1000, new Clock());
 		
+		// sleeps until there is something to do: input, a tick of the clock, a
+		// robot's move or a message from the server
 		while (!shell.isDisposed() && gameOver == 0) 
 				if (!display.readAndDispatch()) {
-					long end = System.currentTimeMillis();
-					
-					// keeps track of the time for the game
-					int diff = (int) ((end-start)/1000);
-					if (diff == 1) {
-						if (isOpponentConnected) { // the timers start when both players are connected
-							if (isJustConnected) {
-								if (opponentsPreferedTime != null) {
-									if (!opponentsPreferedTime.contains("M")&& !opponentsPreferedTime.contains("S")) {
-										opponentsTimer = new TimedMode(shell, upperComposite);
-										//sets the timer for the opponent
-										opponentsTimer.setTimeLimit(opponentsPreferedTime); 
-										opponentsTimer.setPlayer(opponent);
-									}
-								}
-								isJustConnected = false;
-							}
-							checkTimers();
-							if(yourTurn && yourTimer != null) { yourTimer.update(); }
-							else if(!yourTurn && opponentsTimer != null) {opponentsTimer.update();}
-						}
-						start = end;
-					}
-				}
+					display.sleep(); }
 	
-		display.sleep();
+		if (robot != null) {
+			robot.dispose(); }
 		
 		boolean again = false; // assume that client won't want to play again
 		if (gameOver != 0) { // makes sure game over display doesn't pop up if client was closed
 			again = new GameOverDisplay().start(display, gameOver); }
 		
+		boardUI.dispose();
+		PieceImages.dispose();
 		display.dispose();
 		
 		if (again) { return true; }
@@ -366,6 +340,52 @@ public class UI {
 	}
 	
 
+	/**
+	 * Takes back the last move of a local game, or the robot's reply and the
+	 * player's move before it when playing the robot, so it's the player's turn
+	 * again. With redo, plays the moves taken back again instead. Games over the
+	 * network have no takebacks.
+	 * 
+	 * @param redo: true to play the moves taken back again
+	 */
+	private void takeBack(boolean redo) {
+		if (link != null || !yourTurn || gameOver != 0) {
+			return; }
+		int plies = robot != null ? 2 : 1;
+		if (!redo && boardUI.getHistoryLength() < plies) { // the robot's opening move stays
+			return; }
+		
+		if (selectedPiece != null) {
+			selectedPiece.SetNotSelected();
+			selectedPiece = null; }
+		boardUI.unhighlightCoordinates();
+		
+		for (int i = 0; i < plies; i++) {
+			if (!(redo ? boardUI.redo() : boardUI.undo())) {
+				break; }
+			if (robot == null) {
+				whitesTurn = !whitesTurn; }
+		}
+		if (robot != null) { // the robot's pieces were set up again
+			robot.populatePiecesList(boardUI.getBoard()); }
+		boardUI.refresh();
+	}
+	
+	/**
+	 * Asks the robot for its move. The robot thinks off the UI thread, so the
+	 * window stays responsive, and the player can't move until the robot's move
+	 * has been played on the board.
+	 */
+	private void robotMove() {
+		yourTurn = false;
+		robot.requestMove(display, result -> {
+			gameOver = result;
+			yourTurn = true;
+			if (!canvas.isDisposed()) {
+				boardUI.refresh(); }
+		});
+	}
+	
 	/**
 	 * Set connected to true
 	 */
@@ -432,10 +452,14 @@ public class UI {
 	
 	/**
 	 * Checks if the entered game file exists.
-	 * If not, it generates a new game instead.
+	 * If not, it generates a new game instead. Network games always start
+	 * from the beginning, since the server's board does.
 	 */
 	private void validateFileName(){
-		if(fileName.equals("Enter file name")) {return;}
+		if(fileName.isEmpty() || fileName.startsWith("Enter ")) {return;} // no file was entered
+		if (link != null) {
+			System.out.println("Sorry, saved games can't be resumed over the network, starting a new game!");
+			return; }
 		String cwd = System.getProperty("user.dir") + "\\Saved Games\\" + fileName;
 		File dir = new File(cwd);
 		 if(dir.exists()) {
@@ -479,7 +503,7 @@ public class UI {
 				//prompts the user for a file name to save the game
 				gameStatus.getFileName(); //prompts the player for a file name
 				//saves the game inside the Saved Games folder
-				gameStatus.saveGame(boardUI.getBoard(), yourTurn, whitesTurn);
+				gameStatus.saveGame(boardUI.copyPosition(), yourTurn, whitesTurn);
 			}
 
 			public void widgetDefaultSelected(SelectionEvent event) {}
@@ -506,71 +530,92 @@ public class UI {
 	}
 	
 	/**
-	 * Runner class
+	 * Keeps track of the time for the game, once a second on the UI thread
 	 */
-	class Runner implements Runnable {
-		/**
-		 * Run method
-		 */
-		public void run() {
-			String msgFromOpponent;
-			try {
-				if (in.ready()) {
-					try {
-						msgFromOpponent = in.readLine();
-						String[] list = msgFromOpponent.split("[:-]");
-						if (msgFromOpponent.contains("MOVE")){
+	class Clock implements Runnable {
+		boolean isJustConnected = true;
 
-							int xBefore = Integer.parseInt(list[1]);
-							int yBefore = Integer.parseInt(list[2]);
-							int xAfter = Integer.parseInt(list[3]);
-							int yAfter = Integer.parseInt(list[4]);
-							
-							String piecePromotion = "no";
-							if (msgFromOpponent.contains("PROMOTION")) {
-								//System.out.println("HELLO");
-								piecePromotion = list[6]; }
-							
-							selectedPiece = boardUI.selectPiece(xBefore, yBefore, !whitesTurn);
-							boardUI.validMoveMade(xAfter,yAfter,selectedPiece,whitesTurn); // necessary b/c pawn's validMove updates didEnPassant
-							
-							if (!piecePromotion.equals("no")) {
-								boardUI.getTile(xBefore, yBefore).setPiece(null);
-								
-								if (piecePromotion.equals("QUEEN")) {
-									boardUI.getTile(xAfter, yAfter).setPiece(new Queen(!whitesTurn, shell)); }
-								else if (piecePromotion.equals("ROOK")) {
-									boardUI.getTile(xAfter, yAfter).setPiece(new Rook(!whitesTurn, shell)); }
-								else if (piecePromotion.equals("KNIGHT")) {
-									boardUI.getTile(xAfter, yAfter).setPiece(new Knight(!whitesTurn, shell)); }
-								else if (piecePromotion.equals("BISHOP")) {
-									boardUI.getTile(xAfter, yAfter).setPiece(new Bishop(!whitesTurn, shell)); }
-								
-								gameOver = boardUI.updateBoard(xAfter,yAfter,boardUI.getTile(xAfter, yAfter).getPiece()); }
-							else {
-								gameOver = boardUI.updateBoard(xAfter,yAfter,selectedPiece); }
-							
-//							whitesTurn = !whitesTurn;
-							yourTurn = !yourTurn;
-							canvas.redraw();
-							selectedPiece.SetNotSelected();
-							selectedPiece = null;
-							//System.out.println(msgFromOpponent);
-						}else if(msgFromOpponent.contains("PLAYER")) {
-							//takes in the time input by the opponent player
-							opponent = list[3];
-							opponentsPreferedTime = list[4];
-							opponentsPreferedTime += (":" + list[5]);
-							isOpponentConnected = true;}
+		public void run() {
+			if (shell.isDisposed() || gameOver != 0) {
+				return; }
+			if (isOpponentConnected) { // the timers start when both players are connected
+				if (isJustConnected) {
+					if (opponentsPreferedTime != null) {
+						if (!opponentsPreferedTime.contains("M")&& !opponentsPreferedTime.contains("S")) {
+							opponentsTimer = new TimedMode(shell, upperComposite);
+							//sets the timer for the opponent
+							opponentsTimer.setTimeLimit(opponentsPreferedTime); 
+							opponentsTimer.setPlayer(opponent);
+						}
 					}
-							
-					 catch(IOException e) { client.close(); }
-					
+					isJustConnected = false;
 				}
+				checkTimers();
+				if(yourTurn && yourTimer != null) { yourTimer.update(); }
+				else if(!yourTurn && opponentsTimer != null) {opponentsTimer.update();}
 			}
-			catch(IOException ex) { System.out.println("The server did not respond (async)."); }				
-            display.timerExec(0, this);
+			display.timerExec(1000, this);
 		}
 	}
 	
+	/**
+	 * Receives the server's messages on the link's reader thread, which sleeps
+	 * until one arrives, and hands each to the UI thread
+	 */
+	class Receiver implements Link.Listener {
+		public void received(Message message) {
+			post(() -> handle(message));
+		}
+
+		public void failed(IOException e) {
+			System.out.println("The server did not respond: " + e.getMessage());
+			post(() -> client.close());
+		}
+
+		/**
+		 * Runs a task on the UI thread, unless the window is gone
+		 */
+		private void post(Runnable task) {
+			if (display.isDisposed()) {
+				return; }
+			try {
+				display.asyncExec(task); }
+			catch (SWTException e) {} // the window was closed meanwhile
+		}
+
+		/**
+		 * Plays the opponent's move or takes in the opponent's details. A move
+		 * the server refused is taken back, so the boards stay the same and it's
+		 * the player's turn again, and the game ends when the opponent leaves.
+		 * 
+		 * @param msgFromOpponent: the message
+		 */
+		private void handle(Message msgFromOpponent) {
+			if (shell.isDisposed() || gameOver != 0) {
+				return; }
+			if (msgFromOpponent.type() == Message.MOVE){
+				// the compact move holds the squares and the promotion piece
+				gameOver = boardUI.updateBoard(msgFromOpponent.move());
+				
+				yourTurn = !yourTurn;
+				boardUI.refresh();
+			}else if(msgFromOpponent.type() == Message.PLAYER) {
+				//takes in the time input by the opponent player
+				opponent = msgFromOpponent.name();
+				opponentsPreferedTime = msgFromOpponent.time();
+				isOpponentConnected = true;}
+			else if (msgFromOpponent.type() == Message.REJECT) {
+				// after the handshake the player only sends moves
+				System.out.println("UI - the server refused the move: " + msgFromOpponent.reason());
+				if (!yourTurn && boardUI.undo()) {
+					yourTurn = true;
+					boardUI.refresh(); }
+			}else if (msgFromOpponent.type() == Message.LEFT) {
+				System.out.println("UI - " + msgFromOpponent.name() + " left the game");
+				// the player wins a game the opponent walked out of
+				gameOver = player.getColor().equals("White") ? Game.WHITE_WINS : Game.BLACK_WINS; }
+			else {
+				System.out.println("UI - " + msgFromOpponent); }
+		}
+	}
 }
\ No newline at end of file
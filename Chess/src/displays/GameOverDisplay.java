@@ -10,10 +10,13 @@ import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.layout.GridLayout;
 
+import engine.Game;
+
 /** 
  * The display for game over.
- * When either white or black has been put in checkmate, the game event loop stops
- * and this display is run. It announces which of the two colors won the game and 
+ * When either white or black has been put in checkmate, or the game is drawn, the
+ * game event loop stops and this display is run. It announces which of the two
+ * colors won the game, or why it was drawn, and 
  * prompts the client to decide whether or not they want to play another game.
  * This is called from UI's event loop. located within its start method.
  * 
@@ -23,6 +26,12 @@ import org.eclipse.swt.layout.GridLayout;
  * @author Jonathan Houge
  */
 public class GameOverDisplay {
+	
+	/**
+	 * How each of the engine.Game draws is announced, from Game.STALEMATE on.
+	 */
+	private static final String[] DRAWS = { "stalemate", "the fifty-move rule", "threefold repetition",
+			"insufficient material" };
 
 	/** 
 	 * The start method creates and runs the display (shell) itself. It utilizes 
@@ -32,7 +41,8 @@ public class GameOverDisplay {
 	 * and returns the boolean result.
 	 * 
 	 * @param display: Display object, the Chessboard's Display
-	 * @param winner: int representing the winner. 1 is white, 2 is black.
+	 * @param winner: int representing the winner. 1 is white, 2 is black, and
+	 * the engine.Game draw results are announced as draws.
 	 * @return boolean: true if the user wants to play another game, false if otherwise
 	 */
 	public boolean start(Display display, int winner) {
@@ -49,8 +59,9 @@ public class GameOverDisplay {
 		
 		// title text, announcing the winner
 		Text title = new Text(shell, SWT.READ_ONLY);
-		if (winner == 1) { title.setText("Game Over! White won."); }
-		else { title.setText("Game Over! Black won. "); }
+		if (winner == Game.WHITE_WINS) { title.setText("Game Over! White won."); }
+		else if (winner == Game.BLACK_WINS) { title.setText("Game Over! Black won. "); }
+		else { title.setText("Draw by " + DRAWS[winner - Game.STALEMATE] + "."); }
 		title.setFont(new Font(display, "Courier", 18, SWT.NONE));
 		title.setForeground(display.getSystemColor(SWT.COLOR_WHITE));
 		
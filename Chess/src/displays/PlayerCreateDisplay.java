@@ -17,7 +17,7 @@ import org.eclipse.swt.layout.GridLayout;
 /** 
  * The display for Player Creation.
  * Prompts the client to enter their name, pick their color, pick their opponent, and enter
- * the optional fields of savedGame.txt and/or the time constraint they wish to place upon
+ * the optional fields of savedGame.bin and/or the time constraint they wish to place upon
  * themselves (WARNING: time constraints only work on 'Robot' and 'Remote' opponent modes).
  * This is accomplished using SWT widgets and Arraylists. After submitting the information, 
  * a new Player object is created and the client is given the Player object.
@@ -86,7 +86,7 @@ public class PlayerCreateDisplay {
 		Label loadL = new Label(load, SWT.NONE);
 		loadL.setText("Resume a Saved Game"); loadL.setFont(labelFont); loadL.setForeground(color);
 		Text file = new Text(load, SWT.BORDER); file.setLayoutData(widgetData);
-		file.setText("Enter .txt file");
+		file.setText("Enter .bin, .fen or .txt file");
 		
 		// if the user prefers a timed mode; optional
 		Group timedMode = new Group(shell, SWT.NONE);
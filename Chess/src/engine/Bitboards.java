@@ -0,0 +1,160 @@
+package engine;
+
+/**
+ * Static lookup tables and helpers for bitboards. A bitboard is a long where
+ * bit n is set if square n is part of the set. Knight, king and pawn attacks
+ * are precomputed per square, and sliding attacks are computed from
+ * precomputed rays by cutting each ray off at its first blocker.
+ */
+public final class Bitboards {
+	/**
+	 * Squares attacked by a knight standing on each square.
+	 */
+	public static final long[] KNIGHT_ATTACKS = new long[64];
+	/**
+	 * Squares attacked by a king standing on each square.
+	 */
+	public static final long[] KING_ATTACKS = new long[64];
+	/**
+	 * Squares attacked by a pawn of the given color standing on each square,
+	 * indexed as [color][square].
+	 */
+	public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+	// Ray directions: the first four are rook directions, the last four bishop
+	// directions. NORTH is towards row 0 (black's side of the board).
+	private static final int NORTH = 0, SOUTH = 1, EAST = 2, WEST = 3;
+	private static final int NORTH_EAST = 4, NORTH_WEST = 5, SOUTH_EAST = 6, SOUTH_WEST = 7;
+	private static final int[] DX = { 0, 0, 1, -1, 1, -1, 1, -1 };
+	private static final int[] DY = { -1, 1, 0, 0, -1, -1, 1, 1 };
+	/**
+	 * True if the square index increases while walking along the direction, in
+	 * which case the first blocker is the lowest set bit of the ray.
+	 */
+	private static final boolean[] INCREASING = { false, true, true, false, false, false, true, true };
+	/**
+	 * Every square reachable from a square in a direction on an empty board,
+	 * indexed as [direction][square].
+	 */
+	private static final long[][] RAYS = new long[8][64];
+
+	static {
+		for (int sq = 0; sq < 64; sq++) {
+			int x = sq & 7;
+			int y = sq >> 3;
+			KNIGHT_ATTACKS[sq] = offsets(x, y, new int[] { 1, 2, 2, 1, -1, -2, -2, -1 },
+					new int[] { 2, 1, -1, -2, -2, -1, 1, 2 });
+			KING_ATTACKS[sq] = offsets(x, y, new int[] { 1, 1, 1, 0, -1, -1, -1, 0 },
+					new int[] { 1, 0, -1, -1, -1, 0, 1, 1 });
+			PAWN_ATTACKS[Position.WHITE][sq] = offsets(x, y, new int[] { -1, 1 }, new int[] { -1, -1 });
+			PAWN_ATTACKS[Position.BLACK][sq] = offsets(x, y, new int[] { -1, 1 }, new int[] { 1, 1 });
+			for (int dir = 0; dir < 8; dir++) {
+				long ray = 0L;
+				for (int cx = x + DX[dir], cy = y + DY[dir]; onBoard(cx, cy); cx += DX[dir], cy += DY[dir]) {
+					ray |= bit(cx + cy * 8);
+				}
+				RAYS[dir][sq] = ray;
+			}
+		}
+	}
+
+	private Bitboards() {
+	}
+
+	/**
+	 * Returns a bitboard with only the given square set.
+	 *
+	 * @param square any integer between 0-63 inclusive.
+	 * @return a long with exactly one bit set.
+	 */
+	public static long bit(int square) {
+		return 1L << square;
+	}
+
+	/**
+	 * Returns the squares a rook on the given square attacks, stopping each ray
+	 * at (and including) the first occupied square.
+	 *
+	 * @param square   any integer between 0-63 inclusive.
+	 * @param occupied a bitboard of every occupied square.
+	 * @return the attacked squares as a bitboard.
+	 */
+	public static long rookAttacks(int square, long occupied) {
+		return ray(NORTH, square, occupied) | ray(SOUTH, square, occupied) | ray(EAST, square, occupied)
+				| ray(WEST, square, occupied);
+	}
+
+	/**
+	 * Returns the squares a bishop on the given square attacks, stopping each
+	 * ray at (and including) the first occupied square.
+	 *
+	 * @param square   any integer between 0-63 inclusive.
+	 * @param occupied a bitboard of every occupied square.
+	 * @return the attacked squares as a bitboard.
+	 */
+	public static long bishopAttacks(int square, long occupied) {
+		return ray(NORTH_EAST, square, occupied) | ray(NORTH_WEST, square, occupied)
+				| ray(SOUTH_EAST, square, occupied) | ray(SOUTH_WEST, square, occupied);
+	}
+
+	/**
+	 * Returns the squares attacked by a piece of the given type and color on the
+	 * given square. For pawns only the diagonal capture squares are returned.
+	 *
+	 * @param type     one of the Position piece type constants.
+	 * @param color    Position.WHITE or Position.BLACK.
+	 * @param square   any integer between 0-63 inclusive.
+	 * @param occupied a bitboard of every occupied square.
+	 * @return the attacked squares as a bitboard.
+	 */
+	public static long attacks(int type, int color, int square, long occupied) {
+		switch (type) {
+		case Position.PAWN:
+			return PAWN_ATTACKS[color][square];
+		case Position.KNIGHT:
+			return KNIGHT_ATTACKS[square];
+		case Position.BISHOP:
+			return bishopAttacks(square, occupied);
+		case Position.ROOK:
+			return rookAttacks(square, occupied);
+		case Position.QUEEN:
+			return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+		default:
+			return KING_ATTACKS[square];
+		}
+	}
+
+	// -- Helpers
+
+	/**
+	 * Walks a single ray from the square and cuts it off behind the first
+	 * blocker.
+	 */
+	private static long ray(int dir, int square, long occupied) {
+		long ray = RAYS[dir][square];
+		long blockers = ray & occupied;
+		if (blockers != 0) {
+			int first = INCREASING[dir] ? Long.numberOfTrailingZeros(blockers)
+					: 63 - Long.numberOfLeadingZeros(blockers);
+			ray ^= RAYS[dir][first];
+		}
+		return ray;
+	}
+
+	/**
+	 * Builds a bitboard out of the on-board squares at the given offsets.
+	 */
+	private static long offsets(int x, int y, int[] dx, int[] dy) {
+		long set = 0L;
+		for (int i = 0; i < dx.length; i++) {
+			if (onBoard(x + dx[i], y + dy[i])) {
+				set |= bit(x + dx[i] + (y + dy[i]) * 8);
+			}
+		}
+		return set;
+	}
+
+	private static boolean onBoard(int x, int y) {
+		return x >= 0 && x < 8 && y >= 0 && y < 8;
+	}
+}
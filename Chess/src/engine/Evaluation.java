@@ -0,0 +1,153 @@
+package engine;
+
+/**
+ * Scores a position in centipawns from the point of view of the side to move.
+ * The score is the material balance, using the same piece values as the
+ * {@code points} fields of the pieces package (a pawn is 100), plus a
+ * piece-square bonus that rewards pieces for standing on good squares:
+ * knights and bishops in the centre, pawns advancing, rooks on the seventh
+ * rank and the king tucked away behind its pawns.
+ */
+public final class Evaluation {
+	/**
+	 * The value of each piece type in centipawns, indexed by the Position piece
+	 * type constants. The king is never captured, so it is worth nothing.
+	 */
+	public static final int[] VALUES = { 100, 300, 300, 500, 900, 0 };
+
+	/*
+	 * Piece-square tables from white's point of view, listed from the eighth rank
+	 * down so that they are indexed by square like the rest of the engine. Black
+	 * reads the same tables with the square mirrored vertically.
+	 */
+	private static final int[] PAWN_TABLE = {
+			0, 0, 0, 0, 0, 0, 0, 0,
+			50, 50, 50, 50, 50, 50, 50, 50,
+			10, 10, 20, 30, 30, 20, 10, 10,
+			5, 5, 10, 25, 25, 10, 5, 5,
+			0, 0, 0, 20, 20, 0, 0, 0,
+			5, -5, -10, 0, 0, -10, -5, 5,
+			5, 10, 10, -20, -20, 10, 10, 5,
+			0, 0, 0, 0, 0, 0, 0, 0 };
+	private static final int[] KNIGHT_TABLE = {
+			-50, -40, -30, -30, -30, -30, -40, -50,
+			-40, -20, 0, 0, 0, 0, -20, -40,
+			-30, 0, 10, 15, 15, 10, 0, -30,
+			-30, 5, 15, 20, 20, 15, 5, -30,
+			-30, 0, 15, 20, 20, 15, 0, -30,
+			-30, 5, 10, 15, 15, 10, 5, -30,
+			-40, -20, 0, 5, 5, 0, -20, -40,
+			-50, -40, -30, -30, -30, -30, -40, -50 };
+	private static final int[] BISHOP_TABLE = {
+			-20, -10, -10, -10, -10, -10, -10, -20,
+			-10, 0, 0, 0, 0, 0, 0, -10,
+			-10, 0, 5, 10, 10, 5, 0, -10,
+			-10, 5, 5, 10, 10, 5, 5, -10,
+			-10, 0, 10, 10, 10, 10, 0, -10,
+			-10, 10, 10, 10, 10, 10, 10, -10,
+			-10, 5, 0, 0, 0, 0, 5, -10,
+			-20, -10, -10, -10, -10, -10, -10, -20 };
+	private static final int[] ROOK_TABLE = {
+			0, 0, 0, 0, 0, 0, 0, 0,
+			5, 10, 10, 10, 10, 10, 10, 5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			0, 0, 0, 5, 5, 0, 0, 0 };
+	private static final int[] QUEEN_TABLE = {
+			-20, -10, -10, -5, -5, -10, -10, -20,
+			-10, 0, 0, 0, 0, 0, 0, -10,
+			-10, 0, 5, 5, 5, 5, 0, -10,
+			-5, 0, 5, 5, 5, 5, 0, -5,
+			0, 0, 5, 5, 5, 5, 0, -5,
+			-10, 5, 5, 5, 5, 5, 0, -10,
+			-10, 0, 5, 0, 0, 0, 0, -10,
+			-20, -10, -10, -5, -5, -10, -10, -20 };
+	private static final int[] KING_TABLE = {
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-20, -30, -30, -40, -40, -30, -30, -20,
+			-10, -20, -20, -20, -20, -20, -20, -10,
+			20, 20, 0, 0, 0, 0, 20, 20,
+			20, 30, 10, 0, 0, 10, 30, 20 };
+	/**
+	 * The king moves towards the centre once the queens and most pieces are off.
+	 */
+	private static final int[] KING_ENDGAME_TABLE = {
+			-50, -40, -30, -20, -20, -30, -40, -50,
+			-30, -20, -10, 0, 0, -10, -20, -30,
+			-30, -10, 20, 30, 30, 20, -10, -30,
+			-30, -10, 30, 40, 40, 30, -10, -30,
+			-30, -10, 30, 40, 40, 30, -10, -30,
+			-30, -10, 20, 30, 30, 20, -10, -30,
+			-30, -30, 0, 0, 0, 0, -30, -30,
+			-50, -30, -30, -30, -30, -30, -30, -50 };
+
+	/**
+	 * Material plus piece-square value of every piece on every square, indexed
+	 * as [piece][square] with piece = color * 6 + type.
+	 */
+	private static final int[][] SCORES = new int[12][64];
+	private static final int[][] KING_ENDGAME_SCORES = new int[2][64];
+
+	/**
+	 * The amount of non-pawn material (both sides together, kings excluded) at
+	 * or below which the endgame king table is used.
+	 */
+	private static final int ENDGAME_MATERIAL = 2 * VALUES[Position.ROOK] + 2 * VALUES[Position.BISHOP];
+
+	static {
+		int[][] tables = { PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_TABLE };
+		for (int type = Position.PAWN; type <= Position.KING; type++) {
+			for (int sq = 0; sq < 64; sq++) {
+				SCORES[Position.piece(Position.WHITE, type)][sq] = VALUES[type] + tables[type][sq];
+				SCORES[Position.piece(Position.BLACK, type)][sq] = VALUES[type] + tables[type][sq ^ 56];
+			}
+		}
+		for (int sq = 0; sq < 64; sq++) {
+			KING_ENDGAME_SCORES[Position.WHITE][sq] = KING_ENDGAME_TABLE[sq];
+			KING_ENDGAME_SCORES[Position.BLACK][sq] = KING_ENDGAME_TABLE[sq ^ 56];
+		}
+	}
+
+	private Evaluation() {
+	}
+
+	/**
+	 * Scores the position for the side to move.
+	 *
+	 * @param position any position.
+	 * @return the score in centipawns, positive if the side to move is better.
+	 */
+	public static int evaluate(Position position) {
+		// white's score minus black's score
+		int score = 0;
+		int pieceMaterial = 0;
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			int sign = color == Position.WHITE ? 1 : -1;
+			for (int type = Position.PAWN; type < Position.KING; type++) {
+				int piece = Position.piece(color, type);
+				long set = position.pieces[piece];
+				if (type != Position.PAWN) {
+					pieceMaterial += Long.bitCount(set) * VALUES[type];
+				}
+				while (set != 0) {
+					score += sign * SCORES[piece][Long.numberOfTrailingZeros(set)];
+					set &= set - 1;
+				}
+			}
+		}
+		boolean endgame = pieceMaterial <= ENDGAME_MATERIAL;
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			int king = position.kingSquare(color);
+			int value = endgame ? KING_ENDGAME_SCORES[color][king]
+					: SCORES[Position.piece(color, Position.KING)][king];
+			score += color == Position.WHITE ? value : -value;
+		}
+		return position.sideToMove == Position.WHITE ? score : -score;
+	}
+}
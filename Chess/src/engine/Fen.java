@@ -0,0 +1,180 @@
+package engine;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, such as
+ * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1". The board is
+ * listed from the eighth rank down, which matches the square order of
+ * {@link Position}. The halfmove clock and fullmove number may be left out.
+ */
+public final class Fen {
+	/**
+	 * The starting position of a normal game.
+	 */
+	public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private static final String PIECES = "pnbrqk";
+
+	private Fen() {
+	}
+
+	/**
+	 * Replaces the contents of a position with the position described by a FEN
+	 * string.
+	 *
+	 * @param position the position to overwrite.
+	 * @param fen      a FEN string.
+	 * @throws IllegalArgumentException if the string is not valid FEN.
+	 */
+	public static void read(Position position, String fen) {
+		String[] fields = fen.trim().split("\\s+");
+		if (fields.length < 4) {
+			throw new IllegalArgumentException("FEN needs at least 4 fields: " + fen);
+		}
+		position.clear();
+		readBoard(position, fields[0], fen);
+		if (fields[1].equals("w")) {
+			position.setSideToMove(Position.WHITE);
+		} else if (fields[1].equals("b")) {
+			position.setSideToMove(Position.BLACK);
+		} else {
+			throw new IllegalArgumentException("Bad side to move: " + fields[1]);
+		}
+		position.setCastling(readCastling(fields[2]));
+		position.setEnPassant(fields[3].equals("-") ? -1 : readSquare(fields[3]));
+		try {
+			position.setHalfmoveClock(fields.length > 4 ? Integer.parseInt(fields[4]) : 0);
+			position.setFullmoveNumber(fields.length > 5 ? Integer.parseInt(fields[5]) : 1);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Bad move counters: " + fen, e);
+		}
+	}
+
+	/**
+	 * Writes a position as a FEN string with all six fields, so that reading it
+	 * back gives the same position, castling rights and move counters.
+	 *
+	 * @param position the position to describe.
+	 * @return a FEN string.
+	 */
+	public static String write(Position position) {
+		StringBuilder fen = new StringBuilder(90);
+		for (int y = 0; y < 8; y++) {
+			int empty = 0;
+			for (int x = 0; x < 8; x++) {
+				int piece = position.pieceAt(Position.square(x, y));
+				if (piece == Position.EMPTY) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					fen.append(empty);
+					empty = 0;
+				}
+				char c = PIECES.charAt(Position.typeOf(piece));
+				fen.append(Position.colorOf(piece) == Position.WHITE ? Character.toUpperCase(c) : c);
+			}
+			if (empty > 0) {
+				fen.append(empty);
+			}
+			if (y < 7) {
+				fen.append('/');
+			}
+		}
+		fen.append(position.sideToMove() == Position.WHITE ? " w " : " b ");
+		int castling = position.castling();
+		if (castling == 0) {
+			fen.append('-');
+		}
+		if ((castling & Position.WHITE_KINGSIDE) != 0) {
+			fen.append('K');
+		}
+		if ((castling & Position.WHITE_QUEENSIDE) != 0) {
+			fen.append('Q');
+		}
+		if ((castling & Position.BLACK_KINGSIDE) != 0) {
+			fen.append('k');
+		}
+		if ((castling & Position.BLACK_QUEENSIDE) != 0) {
+			fen.append('q');
+		}
+		fen.append(' ');
+		int enPassant = position.enPassant();
+		if (enPassant < 0) {
+			fen.append('-');
+		} else {
+			fen.append((char) ('a' + enPassant % 8)).append((char) ('8' - enPassant / 8));
+		}
+		fen.append(' ').append(position.halfmoveClock()).append(' ').append(position.fullmoveNumber());
+		return fen.toString();
+	}
+
+	// -- Helpers
+
+	private static void readBoard(Position position, String board, String fen) {
+		int x = 0;
+		int y = 0;
+		for (char c : board.toCharArray()) {
+			if (c == '/') {
+				if (x != 8) {
+					throw new IllegalArgumentException("Rank " + (8 - y) + " is not 8 squares: " + fen);
+				}
+				x = 0;
+				y++;
+			} else if (c >= '1' && c <= '8') {
+				x += c - '0';
+			} else {
+				int type = PIECES.indexOf(Character.toLowerCase(c));
+				if (type < 0 || x > 7 || y > 7) {
+					throw new IllegalArgumentException("Bad board: " + fen);
+				}
+				int color = Character.isUpperCase(c) ? Position.WHITE : Position.BLACK;
+				position.put(color, type, Position.square(x, y));
+				x++;
+			}
+		}
+		if (x != 8 || y != 7) {
+			throw new IllegalArgumentException("Board is not 8 ranks of 8 squares: " + fen);
+		}
+		if (position.pieces(Position.WHITE, Position.KING) == 0
+				|| position.pieces(Position.BLACK, Position.KING) == 0) {
+			throw new IllegalArgumentException("Both sides need a king: " + fen);
+		}
+	}
+
+	private static int readCastling(String field) {
+		int rights = 0;
+		if (field.equals("-")) {
+			return rights;
+		}
+		for (char c : field.toCharArray()) {
+			switch (c) {
+			case 'K':
+				rights |= Position.WHITE_KINGSIDE;
+				break;
+			case 'Q':
+				rights |= Position.WHITE_QUEENSIDE;
+				break;
+			case 'k':
+				rights |= Position.BLACK_KINGSIDE;
+				break;
+			case 'q':
+				rights |= Position.BLACK_QUEENSIDE;
+				break;
+			default:
+				throw new IllegalArgumentException("Bad castling rights: " + field);
+			}
+		}
+		return rights;
+	}
+
+	/**
+	 * Reads a square name such as "e3" into a square index.
+	 */
+	private static int readSquare(String name) {
+		if (name.length() != 2 || name.charAt(0) < 'a' || name.charAt(0) > 'h' || name.charAt(1) < '1'
+				|| name.charAt(1) > '8') {
+			throw new IllegalArgumentException("Bad square: " + name);
+		}
+		return Position.square(name.charAt(0) - 'a', '8' - name.charAt(1));
+	}
+}
@@ -0,0 +1,182 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * A game of chess without any UI: a {@link Position} plus the moves played to
+ * reach it, which is what the draw rules need. It decides when the game is
+ * over and how it ended, by checkmate, stalemate, the fifty-move rule,
+ * threefold repetition or insufficient material.
+ */
+public class Game {
+	// Results, the first three match the codes the UI uses for a finished game
+	public static final int ONGOING = 0;
+	public static final int WHITE_WINS = 1;
+	public static final int BLACK_WINS = 2;
+	public static final int STALEMATE = 3;
+	public static final int FIFTY_MOVES = 4;
+	public static final int REPETITION = 5;
+	public static final int INSUFFICIENT_MATERIAL = 6;
+
+	private final Position position = new Position();
+	private final String startFen;
+	private final int[] legal = new int[MoveGenerator.MAX_MOVES];
+	/**
+	 * The moves played so far. The position keeps an undo record and the key of
+	 * the position before each of them.
+	 */
+	private int[] moves = new int[128];
+	private int length;
+
+	/**
+	 * Creates a game from the starting position.
+	 */
+	public Game() {
+		this(Fen.START);
+	}
+
+	/**
+	 * Creates a game from the given position.
+	 *
+	 * @param fen the starting position as a FEN string.
+	 * @throws IllegalArgumentException if the string is not valid FEN.
+	 */
+	public Game(String fen) {
+		Fen.read(position, fen);
+		startFen = Fen.write(position);
+	}
+
+	/**
+	 * @return the position the game started from, as a FEN string.
+	 */
+	public String startFen() {
+		return startFen;
+	}
+
+	/**
+	 * Returns the current position. It must not be changed, except by making
+	 * and unmaking moves that leave it as it was.
+	 *
+	 * @return the position after the last move.
+	 */
+	public Position position() {
+		return position;
+	}
+
+	/**
+	 * Plays a move.
+	 *
+	 * @param move a legal packed move.
+	 */
+	public void play(int move) {
+		if (length == moves.length) {
+			moves = Arrays.copyOf(moves, length * 2);
+		}
+		moves[length++] = move;
+		position.makeMove(move);
+	}
+
+	/**
+	 * Takes back the last move played.
+	 *
+	 * @return the move taken back, or Move.NONE if no move has been played.
+	 */
+	public int undo() {
+		if (length == 0) {
+			return Move.NONE;
+		}
+		int move = moves[--length];
+		position.unmakeMove(move);
+		return move;
+	}
+
+	/**
+	 * Returns how the game stands.
+	 *
+	 * @return ONGOING, WHITE_WINS or BLACK_WINS, or one of the draw results.
+	 */
+	public int result() {
+		return result(position, legal);
+	}
+
+	/**
+	 * Returns how a game stands in a position, for positions not kept by a Game.
+	 * Repetitions are counted among the moves the position itself has played.
+	 *
+	 * @param position the position after the last move.
+	 * @param legal    a buffer of at least {@link MoveGenerator#MAX_MOVES} ints.
+	 * @return ONGOING, WHITE_WINS or BLACK_WINS, or one of the draw results.
+	 */
+	public static int result(Position position, int[] legal) {
+		int side = position.sideToMove;
+		if (MoveGenerator.generateLegal(position, side, legal) == 0) {
+			if (!position.inCheck(side)) {
+				return STALEMATE;
+			}
+			return side == Position.WHITE ? BLACK_WINS : WHITE_WINS;
+		}
+		if (position.halfmoveClock >= 100) {
+			return FIFTY_MOVES;
+		}
+		if (position.repetitions() >= 3) {
+			return REPETITION;
+		}
+		if (insufficientMaterial(position)) {
+			return INSUFFICIENT_MATERIAL;
+		}
+		return ONGOING;
+	}
+
+	/**
+	 * @param result any result code.
+	 * @return true if the result is one of the draws.
+	 */
+	public static boolean isDraw(int result) {
+		return result >= STALEMATE;
+	}
+
+	/**
+	 * Counts how often the current position has occurred, including now.
+	 *
+	 * @return at least 1.
+	 * @see Position#repetitions()
+	 */
+	public int repetitions() {
+		return position.repetitions();
+	}
+
+	/**
+	 * @return the number of moves played, counting both sides.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @param index any integer between 0 and length() - 1 inclusive.
+	 * @return the move played at that index.
+	 */
+	public int move(int index) {
+		return moves[index];
+	}
+
+	// -- Helpers
+
+	/**
+	 * Neither side can mate: only kings are left, plus at most one knight or
+	 * bishop.
+	 */
+	private static boolean insufficientMaterial(Position position) {
+		long kings = position.pieces[Position.piece(Position.WHITE, Position.KING)]
+				| position.pieces[Position.piece(Position.BLACK, Position.KING)];
+		long rest = position.occupied & ~kings;
+		if (rest == 0) {
+			return true;
+		}
+		if (Long.bitCount(rest) > 1) {
+			return false;
+		}
+		int type = Position.typeOf(position.mailbox[Long.numberOfTrailingZeros(rest)]);
+		return type == Position.KNIGHT || type == Position.BISHOP;
+	}
+}
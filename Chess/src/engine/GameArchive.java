@@ -0,0 +1,399 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * An archive of any number of games, kept in two files next to each other:
+ * <UL>
+ * <LI>{@code <name>.pgn}, the games as PGN text, one after the other. Games are
+ * only ever appended, so the file is also a normal PGN file that other chess
+ * programs can open.</LI>
+ * <LI>{@code <name>.idx}, a memory-mapped index with one fixed-size record per
+ * game. A game is found by its id, its position in the archive starting at 0,
+ * with one multiplication, and filters only read the index, never the
+ * games.</LI>
+ * </UL>
+ * An index record is {@link #RECORD_SIZE} bytes:
+ *
+ * <pre>
+ *  0  8 bytes  offset of the game in the PGN file
+ *  8  4 bytes  length of the game in bytes
+ * 12  4 bytes  hash of the white player's name
+ * 16  4 bytes  hash of the black player's name
+ * 20  2 bytes  ECO opening code, A00 to E99 as 0 to 499, or -1 for none
+ * 22  1 byte   result: 0 unknown, 1 white won, 2 black won, 3 draw
+ * 23  1 byte   unused
+ * 24  4 bytes  number of plies
+ * 28  4 bytes  unused
+ * </pre>
+ *
+ * A game is written to the PGN file before its record is added and the count
+ * in the index header is raised last, so an archive interrupted during an
+ * append loses at most that game. Opening it again cuts off the partial game.
+ * <P>
+ * Usage: {@code java engine.GameArchive <name> import <file.pgn>...},
+ * {@code java engine.GameArchive <name> export <id>...} or
+ * {@code java engine.GameArchive <name> find [player=<name>] [result=<result>] [eco=<code>]}.
+ */
+public class GameArchive implements Closeable {
+	/**
+	 * The size in bytes of an index record.
+	 */
+	public static final int RECORD_SIZE = 32;
+
+	private static final int HEADER_SIZE = 32;
+	private static final int MAGIC = ('C' << 24) | ('G' << 16) | ('A' << 8) | 'I';
+	private static final int VERSION = 1;
+	private static final int COUNT = 8; // header offset of the game count
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// Offsets within a record
+	private static final int OFFSET = 0;
+	private static final int LENGTH = 8;
+	private static final int WHITE = 12;
+	private static final int BLACK = 16;
+	private static final int ECO = 20;
+	private static final int RESULT = 22;
+	private static final int PLIES = 24;
+
+	private static final String[] RESULTS = { Pgn.UNKNOWN, Pgn.WHITE_WINS, Pgn.BLACK_WINS, Pgn.DRAW };
+
+	private final FileChannel data;
+	private final FileChannel indexFile;
+	/**
+	 * The mapped index, at least as large as the records in use. It is mapped
+	 * again, twice as large, whenever it fills up.
+	 */
+	private MappedByteBuffer index;
+	private int count;
+
+	/**
+	 * Opens an archive, creating its files if they do not exist yet.
+	 *
+	 * @param name the path of the archive without an extension, such as
+	 *             "Saved Games/archive".
+	 * @throws IOException if the files can not be opened, or the index is not an
+	 *                     archive index.
+	 */
+	public GameArchive(Path name) throws IOException {
+		Path parent = name.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		data = FileChannel.open(Paths.get(name + ".pgn"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		indexFile = FileChannel.open(Paths.get(name + ".idx"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			boolean created = indexFile.size() == 0;
+			long size = Math.max(indexFile.size(), HEADER_SIZE + (long) INITIAL_CAPACITY * RECORD_SIZE);
+			index = indexFile.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			if (created) {
+				index.putInt(0, MAGIC);
+				index.putInt(4, VERSION);
+				index.putInt(COUNT, 0);
+			} else if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+				throw new IOException("Not a version " + VERSION + " game archive index: " + name + ".idx");
+			}
+			count = index.getInt(COUNT);
+			// drop a game whose record was never added
+			long end = 0;
+			if (count > 0) {
+				end = index.getLong(record(count - 1) + OFFSET) + index.getInt(record(count - 1) + LENGTH);
+			}
+			if (data.size() > end) {
+				data.truncate(end);
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Appends a game to the end of the archive.
+	 *
+	 * @param game the game to add.
+	 * @return the id of the game.
+	 * @throws IOException if the files can not be written.
+	 */
+	public synchronized int append(Pgn game) throws IOException {
+		byte[] bytes = game.write().getBytes(StandardCharsets.UTF_8);
+		long offset = data.size();
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining()) {
+			data.write(buffer, offset + buffer.position());
+		}
+		int id = count;
+		if (record(id + 1) > index.capacity()) {
+			index.force();
+			long size = HEADER_SIZE + (long) (index.capacity() - HEADER_SIZE) * 2;
+			index = indexFile.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		int at = record(id);
+		index.putLong(at + OFFSET, offset);
+		index.putInt(at + LENGTH, bytes.length);
+		index.putInt(at + WHITE, nameHash(game.tag("White")));
+		index.putInt(at + BLACK, nameHash(game.tag("Black")));
+		index.putShort(at + ECO, (short) ecoCode(game.tag("ECO")));
+		index.put(at + RESULT, (byte) Math.max(0, Arrays.asList(RESULTS).indexOf(game.getResult())));
+		index.putInt(at + PLIES, game.game().length());
+		count = id + 1;
+		index.putInt(COUNT, count);
+		return id;
+	}
+
+	/**
+	 * Loads a game by its id.
+	 *
+	 * @param id any integer between 0 and size() - 1 inclusive.
+	 * @return the game.
+	 * @throws IOException if the PGN file can not be read.
+	 */
+	public Pgn read(int id) throws IOException {
+		return Pgn.parse(text(id));
+	}
+
+	/**
+	 * Returns the PGN text of a game by its id, without parsing it.
+	 *
+	 * @param id any integer between 0 and size() - 1 inclusive.
+	 * @return the game as PGN.
+	 * @throws IOException if the PGN file can not be read.
+	 */
+	public synchronized String text(int id) throws IOException {
+		if (id < 0 || id >= count) {
+			throw new IndexOutOfBoundsException("No game " + id + " in an archive of " + count);
+		}
+		long offset = index.getLong(record(id) + OFFSET);
+		ByteBuffer buffer = ByteBuffer.allocate(index.getInt(record(id) + LENGTH));
+		while (buffer.hasRemaining()) {
+			if (data.read(buffer, offset + buffer.position()) < 0) {
+				throw new IOException("Game " + id + " runs past the end of the archive");
+			}
+		}
+		return new String(buffer.array(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Finds the games that match all of the given filters, reading only the
+	 * index. When filtering by player, only the tags of the games whose player
+	 * name hash matches are read, to weed out the rare hash collisions.
+	 *
+	 * @param player a name the white or black player must have, ignoring case,
+	 *               or null for any.
+	 * @param result "1-0", "0-1", "1/2-1/2" or "*", or null for any.
+	 * @param eco    an ECO code or the start of one, such as "B" or "B2" or "B22",
+	 *               or null for any.
+	 * @return the ids of the matching games in increasing order.
+	 * @throws IOException if a game can not be read.
+	 */
+	public synchronized int[] find(String player, String result, String eco) throws IOException {
+		int hash = nameHash(player);
+		int wantedResult = result == null ? -1 : Arrays.asList(RESULTS).indexOf(result);
+		int[] range = ecoRange(eco);
+		int[] ids = new int[16];
+		int found = 0;
+		for (int id = 0; id < count; id++) {
+			int at = record(id);
+			if (wantedResult >= 0 && index.get(at + RESULT) != wantedResult) {
+				continue;
+			}
+			int code = index.getShort(at + ECO);
+			if (eco != null && (code < range[0] || code > range[1])) {
+				continue;
+			}
+			if (player != null) {
+				if (index.getInt(at + WHITE) != hash && index.getInt(at + BLACK) != hash) {
+					continue;
+				}
+				String text = text(id);
+				if (!player.equalsIgnoreCase(trim(tagOf(text, "White")))
+						&& !player.equalsIgnoreCase(trim(tagOf(text, "Black")))) {
+					continue;
+				}
+			}
+			if (found == ids.length) {
+				ids = Arrays.copyOf(ids, found * 2);
+			}
+			ids[found++] = id;
+		}
+		return Arrays.copyOf(ids, found);
+	}
+
+	/**
+	 * @return the number of games in the archive.
+	 */
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of plies of a game, read from the index.
+	 *
+	 * @param id any integer between 0 and size() - 1 inclusive.
+	 * @return the number of moves played, counting both sides.
+	 */
+	public synchronized int plies(int id) {
+		return index.getInt(record(id) + PLIES);
+	}
+
+	/**
+	 * Writes the index to disk and closes both files.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (index != null) {
+			index.force();
+		}
+		try {
+			data.close();
+		} finally {
+			indexFile.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: GameArchive <name> import <file.pgn>...");
+			System.out.println("       GameArchive <name> export <id>...");
+			System.out.println("       GameArchive <name> find [player=<name>] [result=<result>] [eco=<code>]");
+			return;
+		}
+		try (GameArchive archive = new GameArchive(Paths.get(args[0]))) {
+			if (args[1].equals("import")) {
+				for (int i = 2; i < args.length; i++) {
+					importFile(archive, Paths.get(args[i]));
+				}
+				System.out.println(archive.size() + " games in the archive");
+			} else if (args[1].equals("export")) {
+				for (int i = 2; i < args.length; i++) {
+					System.out.print(archive.text(Integer.parseInt(args[i])));
+				}
+			} else if (args[1].equals("find")) {
+				String player = null;
+				String result = null;
+				String eco = null;
+				for (int i = 2; i < args.length; i++) {
+					String value = args[i].substring(args[i].indexOf('=') + 1);
+					if (args[i].startsWith("player=")) {
+						player = value;
+					} else if (args[i].startsWith("result=")) {
+						result = value;
+					} else if (args[i].startsWith("eco=")) {
+						eco = value;
+					}
+				}
+				long start = System.nanoTime();
+				int[] ids = archive.find(player, result, eco);
+				System.out.printf("%d of %d games match (%.1f ms)%n", ids.length, archive.size(),
+						(System.nanoTime() - start) / 1e6);
+				for (int id : ids) {
+					String text = archive.text(id);
+					System.out.println(id + ": " + tagOf(text, "White") + " - " + tagOf(text, "Black") + " "
+							+ tagOf(text, "Result") + " (" + archive.plies(id) + " plies)");
+				}
+			} else {
+				System.out.println("Unknown command " + args[1]);
+			}
+		}
+	}
+
+	// -- Helpers
+
+	private static int record(int id) {
+		return HEADER_SIZE + id * RECORD_SIZE;
+	}
+
+	/**
+	 * Appends every game of a PGN file, skipping games with illegal moves.
+	 */
+	private static void importFile(GameArchive archive, Path file) throws IOException {
+		int added = 0;
+		int skipped = 0;
+		try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			while (true) {
+				Pgn game;
+				try {
+					game = Pgn.read(in);
+				} catch (IllegalArgumentException e) {
+					skipped++;
+					continue;
+				}
+				if (game == null) {
+					break;
+				}
+				archive.append(game);
+				added++;
+			}
+		}
+		System.out.println(file + ": " + added + " games added, " + skipped + " skipped");
+	}
+
+	/**
+	 * Returns the value of one tag of a game's PGN text without reading its
+	 * moves. Escaped characters are left as they are.
+	 */
+	private static String tagOf(String text, String name) {
+		String start = "[" + name + " \"";
+		for (String line : text.split("\n")) {
+			if (line.startsWith(start)) {
+				return line.substring(start.length(), line.lastIndexOf('"'));
+			} else if (!line.startsWith("[")) {
+				break;
+			}
+		}
+		return null;
+	}
+
+	private static String trim(String name) {
+		return name == null ? "" : name.trim();
+	}
+
+	private static int nameHash(String name) {
+		return trim(name).toLowerCase(Locale.ROOT).hashCode();
+	}
+
+	/**
+	 * Converts an ECO code such as "B22" to a number between 0 and 499.
+	 *
+	 * @return the number, or -1 if the code is missing or malformed.
+	 */
+	private static int ecoCode(String eco) {
+		if (eco == null || !eco.matches("[A-E][0-9][0-9]")) {
+			return -1;
+		}
+		return (eco.charAt(0) - 'A') * 100 + Integer.parseInt(eco.substring(1));
+	}
+
+	/**
+	 * Returns the lowest and highest ECO number starting with the given prefix.
+	 */
+	private static int[] ecoRange(String prefix) {
+		if (prefix == null || !prefix.matches("[A-E][0-9]{0,2}")) {
+			return new int[] { 0, -1 }; // matches nothing
+		}
+		int low = (prefix.charAt(0) - 'A') * 100;
+		if (prefix.length() == 1) {
+			return new int[] { low, low + 99 };
+		}
+		low += (prefix.charAt(1) - '0') * 10;
+		if (prefix.length() == 2) {
+			return new int[] { low, low + 9 };
+		}
+		low += prefix.charAt(2) - '0';
+		return new int[] { low, low };
+	}
+}
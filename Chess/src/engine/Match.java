@@ -0,0 +1,193 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Plays a match between two move pickers without any UI, running several games
+ * at once on a thread pool. The players swap colors every game. At the end it
+ * reports the win/draw/loss record of the first player, the games played per
+ * second and the average number of nodes each player searched per move. Nothing
+ * here touches SWT, so matches run on machines without a display.
+ * <P>
+ * Usage: {@code java engine.Match <games> <player A> <player B> [threads]}
+ * where a player is one of
+ * <UL>
+ * <LI>{@code random} or {@code random:<seed>}, the move chooser of the easy
+ * robot. With a seed every game is reproducible.</LI>
+ * <LI>{@code search}, {@code search:<ms>} or {@code search:<ms>:<depth>}, the
+ * alpha-beta search of the hard robot with the given limits per move (100 ms
+ * and no depth limit by default).</LI>
+ * </UL>
+ * Threads default to the number of cores.
+ */
+public final class Match {
+	/**
+	 * Games that reach this many plies are scored as a draw.
+	 */
+	public static final int MAX_PLIES = 600;
+	/**
+	 * The transposition table size of each searching player in MB. Every game in
+	 * progress has its own players, so this is kept small.
+	 */
+	private static final int TABLE_SIZE = 8;
+
+	private final IntFunction<MovePicker> playerA;
+	private final IntFunction<MovePicker> playerB;
+
+	private final LongAdder wins = new LongAdder();
+	private final LongAdder draws = new LongAdder();
+	private final LongAdder losses = new LongAdder();
+	/**
+	 * Nodes searched and moves played by player A at [0] and player B at [1].
+	 */
+	private final LongAdder[] nodes = { new LongAdder(), new LongAdder() };
+	private final LongAdder[] moves = { new LongAdder(), new LongAdder() };
+
+	/**
+	 * Creates a match. Each game gets new pickers, made from the game number, so
+	 * that pickers never need to be thread safe.
+	 *
+	 * @param playerA makes player A's picker for a game.
+	 * @param playerB makes player B's picker for a game.
+	 */
+	public Match(IntFunction<MovePicker> playerA, IntFunction<MovePicker> playerB) {
+		this.playerA = playerA;
+		this.playerB = playerB;
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.out.println("Usage: Match <games> <player A> <player B> [threads]");
+			System.out.println("Players: random[:seed] or search[:ms[:depth]]");
+			return;
+		}
+		int games = Integer.parseInt(args[0]);
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		Match match = new Match(player(args[1]), player(args[2]));
+		System.out.println("Playing " + games + " games of " + args[1] + " vs " + args[2] + " on " + threads
+				+ " threads");
+		long start = System.nanoTime();
+		match.play(games, threads);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("Games: %d in %.1f s (%.2f games/s)%n", games, seconds, games / seconds);
+		System.out.printf("%s: %d wins, %d draws, %d losses (%.1f%%)%n", args[1], match.wins(), match.draws(),
+				match.losses(), 100.0 * match.score() / games);
+		System.out.printf("Average nodes per move: %s %.0f, %s %.0f%n", args[1], match.averageNodes(0), args[2],
+				match.averageNodes(1));
+	}
+
+	/**
+	 * Plays the given number of games and waits for all of them to finish.
+	 * Player A has white in the even numbered games.
+	 *
+	 * @param games   the number of games to play.
+	 * @param threads the number of games played at once, at least 1.
+	 */
+	public void play(int games, int threads) {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int i = 0; i < games; i++) {
+				int number = i;
+				results.add(pool.submit(() -> playGame(number)));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A game failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// -- Getters for the games played so far
+
+	public long wins() {
+		return wins.sum();
+	}
+
+	public long draws() {
+		return draws.sum();
+	}
+
+	public long losses() {
+		return losses.sum();
+	}
+
+	/**
+	 * @return player A's score, counting a win as 1 and a draw as half.
+	 */
+	public double score() {
+		return wins.sum() + draws.sum() / 2.0;
+	}
+
+	/**
+	 * @param player 0 for player A, 1 for player B.
+	 * @return the average number of nodes the player searched per move.
+	 */
+	public double averageNodes(int player) {
+		long played = moves[player].sum();
+		return played == 0 ? 0.0 : (double) nodes[player].sum() / played;
+	}
+
+	// -- Helpers
+
+	/**
+	 * Plays one game and adds it to the totals.
+	 */
+	private void playGame(int number) {
+		MovePicker a = playerA.apply(number);
+		MovePicker b = playerB.apply(number);
+		boolean aIsWhite = number % 2 == 0;
+		Game game = new Game();
+		int result = game.result();
+		while (result == Game.ONGOING && game.length() < MAX_PLIES) {
+			boolean whiteToMove = game.position().sideToMove() == Position.WHITE;
+			int player = whiteToMove == aIsWhite ? 0 : 1;
+			MovePicker picker = player == 0 ? a : b;
+			int move = picker.pickMove(game.position());
+			nodes[player].add(picker.nodes());
+			moves[player].increment();
+			game.play(move);
+			result = game.result();
+		}
+		if (result == Game.WHITE_WINS || result == Game.BLACK_WINS) {
+			boolean whiteWon = result == Game.WHITE_WINS;
+			(whiteWon == aIsWhite ? wins : losses).increment();
+		} else {
+			draws.increment();
+		}
+	}
+
+	/**
+	 * Turns a player description from the command line into a picker factory.
+	 */
+	private static IntFunction<MovePicker> player(String description) {
+		String[] parts = description.split(":");
+		switch (parts[0]) {
+		case "random":
+			if (parts.length > 1) {
+				long seed = Long.parseLong(parts[1]);
+				return game -> new RandomPicker(seed + game);
+			}
+			return game -> new RandomPicker();
+		case "search":
+			long time = parts.length > 1 ? Long.parseLong(parts[1]) : 100;
+			int depth = parts.length > 2 ? Integer.parseInt(parts[2]) : Search.MAX_PLY - 1;
+			return game -> new SearchPicker(time, depth, TABLE_SIZE);
+		default:
+			throw new IllegalArgumentException("Unknown player: " + description);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package engine;
+
+/**
+ * Static helpers for moves packed into a single int, so generating, storing
+ * and playing moves never allocates. The low 16 bits hold the move itself and
+ * the bits above hold flags that can always be recomputed from the position:
+ * <UL>
+ * <LI>bits 0-5: the square the piece moves from</LI>
+ * <LI>bits 6-11: the square the piece moves to</LI>
+ * <LI>bits 12-14: the piece type a pawn promotes to, 0 if it does not</LI>
+ * <LI>bits 16-19: capture, en passant, castling and double pawn push flags</LI>
+ * </UL>
+ * Castling is stored as the king moving two squares towards its rook.
+ */
+public final class Move {
+	/**
+	 * A value that is never a legal move.
+	 */
+	public static final int NONE = 0;
+
+	public static final int CAPTURE = 1 << 16;
+	public static final int EN_PASSANT = 1 << 17;
+	public static final int CASTLE = 1 << 18;
+	public static final int DOUBLE_PUSH = 1 << 19;
+
+	private Move() {
+	}
+
+	/**
+	 * Packs a move into an int.
+	 *
+	 * @param from      the origin square, between 0-63 inclusive.
+	 * @param to        the destination square, between 0-63 inclusive.
+	 * @param promotion the promotion piece type, or 0 if the move does not
+	 *                  promote.
+	 * @param flags     any combination of the flag constants.
+	 * @return the packed move.
+	 */
+	public static int encode(int from, int to, int promotion, int flags) {
+		return from | (to << 6) | (promotion << 12) | flags;
+	}
+
+	public static int from(int move) {
+		return move & 63;
+	}
+
+	public static int to(int move) {
+		return (move >>> 6) & 63;
+	}
+
+	/**
+	 * Returns the piece type a pawn promotes to.
+	 *
+	 * @param move a packed move.
+	 * @return Position.KNIGHT through Position.QUEEN, or 0 if the move does not
+	 *         promote.
+	 */
+	public static int promotion(int move) {
+		return (move >>> 12) & 7;
+	}
+
+	public static boolean isCapture(int move) {
+		return (move & CAPTURE) != 0;
+	}
+
+	public static boolean isEnPassant(int move) {
+		return (move & EN_PASSANT) != 0;
+	}
+
+	public static boolean isCastle(int move) {
+		return (move & CASTLE) != 0;
+	}
+
+	public static boolean isDoublePush(int move) {
+		return (move & DOUBLE_PUSH) != 0;
+	}
+
+	/**
+	 * Returns the origin, destination and promotion of a move without its flags.
+	 *
+	 * @param move a packed move.
+	 * @return the low 16 bits of the move.
+	 */
+	public static int compact(int move) {
+		return move & 0xFFFF;
+	}
+
+	/**
+	 * Returns the move in coordinate notation, such as "e2e4" or "a7a8q".
+	 *
+	 * @param move a packed move.
+	 * @return the move as a String.
+	 */
+	public static String toString(int move) {
+		String text = squareName(from(move)) + squareName(to(move));
+		if (promotion(move) != 0) {
+			text += "pnbrqk".charAt(promotion(move));
+		}
+		return text;
+	}
+
+	/**
+	 * Returns the name of a square, such as "e4".
+	 *
+	 * @param square any integer between 0-63 inclusive.
+	 * @return the file letter followed by the rank number.
+	 */
+	public static String squareName(int square) {
+		return "" + (char) ('a' + (square & 7)) + (char) ('8' - (square >> 3));
+	}
+}
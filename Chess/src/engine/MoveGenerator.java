@@ -0,0 +1,138 @@
+package engine;
+
+/**
+ * Generates every move of one side in a single pass over its bitboards. Moves
+ * are written as packed ints (see {@link Move}) into an array owned by the
+ * caller, so generating moves allocates nothing; a search keeps one buffer per
+ * ply and reuses it for every position it visits.
+ * <P>
+ * {@link #generate(Position, int, int[])} produces pseudo-legal moves, which
+ * follow the movement rules but may leave the mover's king in check.
+ * {@link #generateLegal(Position, int, int[])} additionally drops those.
+ */
+public final class MoveGenerator {
+	/**
+	 * The size a move buffer needs to be. No chess position has more than 218
+	 * legal moves.
+	 */
+	public static final int MAX_MOVES = 256;
+
+	private static final int[] PROMOTIONS = { Position.QUEEN, Position.KNIGHT, Position.ROOK, Position.BISHOP };
+
+	private MoveGenerator() {
+	}
+
+	/**
+	 * Writes every pseudo-legal move of the given color into the buffer.
+	 *
+	 * @param position the position to generate moves for.
+	 * @param color    Position.WHITE or Position.BLACK.
+	 * @param moves    a buffer of at least {@link #MAX_MOVES} ints.
+	 * @return the number of moves written to the start of the buffer.
+	 */
+	public static int generate(Position position, int color, int[] moves) {
+		int count = generatePawnMoves(position, color, moves, 0);
+		long own = position.colors[color];
+		long enemies = position.colors[color ^ 1];
+		long occupied = position.occupied;
+		for (int type = Position.KNIGHT; type <= Position.KING; type++) {
+			long set = position.pieces[Position.piece(color, type)];
+			while (set != 0) {
+				int from = Long.numberOfTrailingZeros(set);
+				set &= set - 1;
+				long targets = Bitboards.attacks(type, color, from, occupied) & ~own;
+				while (targets != 0) {
+					int to = Long.numberOfTrailingZeros(targets);
+					targets &= targets - 1;
+					int flags = (enemies & Bitboards.bit(to)) != 0 ? Move.CAPTURE : 0;
+					moves[count++] = Move.encode(from, to, 0, flags);
+				}
+			}
+		}
+		return generateCastling(position, color, moves, count);
+	}
+
+	/**
+	 * Writes every legal move of the given color into the buffer.
+	 *
+	 * @param position the position to generate moves for. It is left unchanged,
+	 *                 although moves are made and unmade on it while filtering.
+	 * @param color    Position.WHITE or Position.BLACK.
+	 * @param moves    a buffer of at least {@link #MAX_MOVES} ints.
+	 * @return the number of moves written to the start of the buffer.
+	 */
+	public static int generateLegal(Position position, int color, int[] moves) {
+		int count = generate(position, color, moves);
+		int legal = 0;
+		for (int i = 0; i < count; i++) {
+			if (position.keepsKingSafe(moves[i])) {
+				moves[legal++] = moves[i];
+			}
+		}
+		return legal;
+	}
+
+	// -- Helpers
+
+	private static int generatePawnMoves(Position position, int color, int[] moves, int count) {
+		long pawns = position.pieces[Position.piece(color, Position.PAWN)];
+		long enemies = position.colors[color ^ 1];
+		long empty = ~position.occupied;
+		int step = color == Position.WHITE ? -8 : 8;
+		int startRow = color == Position.WHITE ? 6 : 1;
+		long epBit = position.enPassant >= 0 && color == position.sideToMove ? Bitboards.bit(position.enPassant)
+				: 0L;
+		while (pawns != 0) {
+			int from = Long.numberOfTrailingZeros(pawns);
+			pawns &= pawns - 1;
+			int one = from + step;
+			if ((empty & Bitboards.bit(one)) != 0) {
+				count = addPawnMove(from, one, 0, moves, count);
+				int two = one + step;
+				if ((from >> 3) == startRow && (empty & Bitboards.bit(two)) != 0) {
+					moves[count++] = Move.encode(from, two, 0, Move.DOUBLE_PUSH);
+				}
+			}
+			long captures = Bitboards.PAWN_ATTACKS[color][from] & (enemies | epBit);
+			while (captures != 0) {
+				int to = Long.numberOfTrailingZeros(captures);
+				captures &= captures - 1;
+				if (to == position.enPassant) {
+					moves[count++] = Move.encode(from, to, 0, Move.CAPTURE | Move.EN_PASSANT);
+				} else {
+					count = addPawnMove(from, to, Move.CAPTURE, moves, count);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Adds a pawn move, expanding it into one move per promotion piece when the
+	 * pawn reaches the last row.
+	 */
+	private static int addPawnMove(int from, int to, int flags, int[] moves, int count) {
+		if (to < 8 || to >= 56) {
+			for (int promotion : PROMOTIONS) {
+				moves[count++] = Move.encode(from, to, promotion, flags);
+			}
+		} else {
+			moves[count++] = Move.encode(from, to, 0, flags);
+		}
+		return count;
+	}
+
+	private static int generateCastling(Position position, int color, int[] moves, int count) {
+		int king = Position.square(4, color == Position.WHITE ? 7 : 0);
+		if (position.mailbox[king] != Position.piece(color, Position.KING)) {
+			return count;
+		}
+		long targets = position.castlingTargets(color);
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			moves[count++] = Move.encode(king, to, 0, Move.CASTLE);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,26 @@
+package engine;
+
+/**
+ * Something that chooses moves: a search, a random mover, an opening book. It
+ * only sees the headless {@link Position}, so move choosers can be used by the
+ * robots in the UI and by batch tools like {@link Match} alike.
+ */
+public interface MovePicker {
+	/**
+	 * Chooses a move for the side to move.
+	 *
+	 * @param position the current position. Moves may be made and unmade on it,
+	 *                 but it must be left unchanged.
+	 * @return a legal packed move, or Move.NONE if there is none.
+	 */
+	int pickMove(Position position);
+
+	/**
+	 * Returns how many positions were searched to choose the last move.
+	 *
+	 * @return the node count, 0 for pickers that do not search.
+	 */
+	default long nodes() {
+		return 0;
+	}
+}
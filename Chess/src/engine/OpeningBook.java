@@ -0,0 +1,285 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * An opening book: a file of moves known to be good in the opening, which the
+ * robot plays instantly instead of searching. The layout follows the Polyglot
+ * book format: a list of 16-byte entries, sorted by key, each holding
+ *
+ * <pre>
+ *  0  8 bytes  Zobrist key of the position
+ *  8  2 bytes  the move, as {@link Move#compact(int)}
+ * 10  2 bytes  weight, how often the move should be chosen
+ * 12  4 bytes  unused, 0
+ * </pre>
+ *
+ * The keys are this program's own {@link Zobrist} keys, not Polyglot's, so
+ * books are made with {@link #build(Path, List, int)} from PGN
+ * games. The file is memory-mapped and searched with a binary search, so a
+ * lookup touches about log2(entries) entries and a book of any size opens
+ * instantly.
+ * <P>
+ * Usage: {@code java engine.OpeningBook build <book> <plies> <file.pgn>...} or
+ * {@code java engine.OpeningBook probe <book> [FEN]}.
+ */
+public class OpeningBook {
+	/**
+	 * The size of an entry in bytes.
+	 */
+	public static final int ENTRY_SIZE = 16;
+	/**
+	 * The book the robot uses, looked for in the working directory like the
+	 * images are.
+	 */
+	public static final String DEFAULT_FILE = "book.bin";
+
+	private final MappedByteBuffer entries;
+	private final int size;
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+	/**
+	 * The book moves of the last position looked up and their weights.
+	 */
+	private final int[] found = new int[MoveGenerator.MAX_MOVES];
+	private final int[] weights = new int[MoveGenerator.MAX_MOVES];
+
+	/**
+	 * Opens a book file.
+	 *
+	 * @param file the book.
+	 * @throws IOException if the file can not be read or is not a whole number of
+	 *                     entries long.
+	 */
+	public OpeningBook(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long length = channel.size();
+			if (length % ENTRY_SIZE != 0 || length / ENTRY_SIZE > Integer.MAX_VALUE) {
+				throw new IOException("Not an opening book: " + file);
+			}
+			size = (int) (length / ENTRY_SIZE);
+			// the mapping stays valid after the channel is closed
+			entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		}
+	}
+
+	/**
+	 * Opens {@link #DEFAULT_FILE} if there is one.
+	 *
+	 * @return the book, or null if there is no book file or it can not be read.
+	 */
+	public static OpeningBook openDefault() {
+		Path file = Paths.get(DEFAULT_FILE);
+		if (!Files.isReadable(file)) {
+			return null;
+		}
+		try {
+			return new OpeningBook(file);
+		} catch (IOException e) {
+			System.out.println("OpeningBook - could not open " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Picks a book move for the side to move. Moves are picked at random, each
+	 * as often as its weight says.
+	 *
+	 * @param position the current position, which is left unchanged.
+	 * @param random   the random number generator to pick with.
+	 * @return a legal packed move, or Move.NONE if the book has no move here.
+	 */
+	public synchronized int pickMove(Position position, Random random) {
+		int count = collect(position);
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			total += weights[i];
+		}
+		if (total == 0) {
+			return Move.NONE;
+		}
+		long pick = (long) (random.nextDouble() * total);
+		for (int i = 0; i < count; i++) {
+			pick -= weights[i];
+			if (pick < 0) {
+				return found[i];
+			}
+		}
+		return found[count - 1];
+	}
+
+	/**
+	 * Lists the book moves for the side to move. Entries whose move is not legal
+	 * in the position, which can only come from a key collision, are left out.
+	 *
+	 * @param position the current position, which is left unchanged.
+	 * @return the packed moves and their weights as {move, weight} pairs.
+	 */
+	public synchronized List<int[]> moves(Position position) {
+		int count = collect(position);
+		List<int[]> list = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			list.add(new int[] { found[i], weights[i] });
+		}
+		return list;
+	}
+
+	/**
+	 * @return the number of entries in the book.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the entries of a position with a binary search and matches their
+	 * moves to legal moves, filling in {@link #found} and {@link #weights}.
+	 *
+	 * @return the number of moves found.
+	 */
+	private int collect(Position position) {
+		long key = position.key();
+		int low = 0;
+		int high = size;
+		while (low < high) { // the first entry whose key is not below the wanted key
+			int middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(entries.getLong(middle * ENTRY_SIZE), key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		if (low == size || entries.getLong(low * ENTRY_SIZE) != key) {
+			return 0;
+		}
+		int legal = MoveGenerator.generateLegal(position, position.sideToMove(), moves);
+		int count = 0;
+		for (int entry = low; entry < size && entries.getLong(entry * ENTRY_SIZE) == key; entry++) {
+			int compact = entries.getShort(entry * ENTRY_SIZE + 8) & 0xFFFF;
+			for (int i = 0; i < legal && count < found.length; i++) {
+				if (Move.compact(moves[i]) == compact) {
+					found[count] = moves[i];
+					weights[count] = entries.getShort(entry * ENTRY_SIZE + 10) & 0xFFFF;
+					count++;
+					break;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Makes a book from PGN games. Every move played in the first plies of a game
+	 * is counted, scoring 2 for a move by the side that went on to win, 1 for a
+	 * draw and 0 for a loss, like Polyglot does. Moves that only ever lost are
+	 * left out.
+	 *
+	 * @param book  the book file to write, replacing any old one.
+	 * @param games PGN files. Games with illegal moves or no result are skipped.
+	 * @param plies how many plies of each game to learn from.
+	 * @return the number of entries written.
+	 * @throws IOException if the games can not be read or the book written.
+	 */
+	public static int build(Path book, List<Path> games, int plies) throws IOException {
+		Map<Long, Map<Integer, Long>> counts = new HashMap<>();
+		for (Path file : games) {
+			try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				count(in, plies, counts);
+			}
+		}
+
+		List<long[]> list = new ArrayList<>();
+		for (Map.Entry<Long, Map<Integer, Long>> position : counts.entrySet()) {
+			long max = 0;
+			for (long score : position.getValue().values()) {
+				max = Math.max(max, score);
+			}
+			for (Map.Entry<Integer, Long> move : position.getValue().entrySet()) {
+				// scale down to 16 bits, keeping rarely won moves at weight 1
+				long weight = max <= 0xFFFF ? move.getValue() : move.getValue() * 0xFFFF / max;
+				if (move.getValue() > 0) {
+					list.add(new long[] { position.getKey(), move.getKey(), Math.max(1, weight) });
+				}
+			}
+		}
+		list.sort((a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+		ByteBuffer buffer = ByteBuffer.allocate(list.size() * ENTRY_SIZE);
+		for (long[] entry : list) {
+			buffer.putLong(entry[0]);
+			buffer.putShort((short) entry[1]);
+			buffer.putShort((short) entry[2]);
+			buffer.putInt(0);
+		}
+		Files.write(book, buffer.array());
+		return list.size();
+	}
+
+	/**
+	 * Counts the moves of the games read from one PGN file.
+	 */
+	private static void count(BufferedReader in, int plies, Map<Long, Map<Integer, Long>> counts) throws IOException {
+		while (true) {
+			Pgn pgn;
+			try {
+				pgn = Pgn.read(in);
+			} catch (IllegalArgumentException e) {
+				continue;
+			}
+			if (pgn == null) {
+				break;
+			}
+			String result = pgn.getResult();
+			if (result.equals(Pgn.UNKNOWN)) {
+				continue;
+			}
+			Game game = pgn.game();
+			Position position = new Position();
+			Fen.read(position, game.startFen());
+			for (int i = 0; i < game.length() && i < plies; i++) {
+				int move = game.move(i);
+				String win = position.sideToMove() == Position.WHITE ? Pgn.WHITE_WINS : Pgn.BLACK_WINS;
+				long score = result.equals(win) ? 2 : result.equals(Pgn.DRAW) ? 1 : 0;
+				counts.computeIfAbsent(position.key(), k -> new HashMap<>()).merge(Move.compact(move), score,
+						Long::sum);
+				position.makeMove(move);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length >= 4 && args[0].equals("build")) {
+			Path book = Paths.get(args[1]);
+			List<Path> games = new ArrayList<>();
+			for (int i = 3; i < args.length; i++) {
+				games.add(Paths.get(args[i]));
+			}
+			int entries = build(book, games, Integer.parseInt(args[2]));
+			System.out.println(book + ": " + entries + " entries");
+		} else if (args.length >= 2 && args[0].equals("probe")) {
+			OpeningBook book = new OpeningBook(Paths.get(args[1]));
+			Position position = new Position();
+			Fen.read(position, args.length > 2 ? args[2] : Fen.START);
+			System.out.println(book.size() + " entries");
+			for (int[] move : book.moves(position)) {
+				System.out.println(San.write(position, move[0]) + " " + move[1]);
+			}
+		} else {
+			System.out.println("Usage: OpeningBook build <book> <plies> <file.pgn>...");
+			System.out.println("       OpeningBook probe <book> [FEN]");
+		}
+	}
+}
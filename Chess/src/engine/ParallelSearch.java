@@ -0,0 +1,176 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches a position with several threads using "lazy SMP": every thread runs
+ * its own ordinary {@link Search} of the same position, and the threads only
+ * cooperate through a shared {@link TranspositionTable}. A result one thread
+ * stores cuts off or reorders the search of the others, so together they
+ * reach a greater depth in the same time than one thread alone. Half of the
+ * helper threads start one ply deeper than the main thread, which keeps them
+ * from searching exactly the same tree in lockstep.
+ * <P>
+ * The calling thread runs the main search and decides when to stop. Helper
+ * threads are stopped as soon as it finishes, and the move of whichever thread
+ * finished the deepest iteration is played. With one thread this is exactly a
+ * plain Search.
+ */
+public class ParallelSearch {
+	private final TranspositionTable table;
+	private final Search[] workers;
+	private final Position[] positions;
+	/**
+	 * Runs the helper searches, or null if there is only one thread.
+	 */
+	private final ExecutorService helpers;
+	private final AtomicBoolean stopSignal = new AtomicBoolean();
+
+	private long nodes;
+	private int completedDepth;
+	private int score;
+
+	/**
+	 * Creates a parallel search.
+	 *
+	 * @param threads the number of threads to search with, at least 1.
+	 * @param table   the transposition table all threads share.
+	 */
+	public ParallelSearch(int threads, TranspositionTable table) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("A search needs at least 1 thread: " + threads);
+		}
+		this.table = table;
+		this.workers = new Search[threads];
+		this.positions = new Position[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Search(table);
+			positions[i] = new Position();
+			if (i > 0) {
+				workers[i].stopSignal = stopSignal;
+				workers[i].startDepth = 1 + i % 2;
+			}
+		}
+		if (threads > 1) {
+			AtomicInteger count = new AtomicInteger();
+			helpers = Executors.newFixedThreadPool(threads - 1, runnable -> {
+				Thread thread = new Thread(runnable, "search-helper-" + count.incrementAndGet());
+				thread.setDaemon(true); // never keeps the program alive
+				return thread;
+			});
+		} else {
+			helpers = null;
+		}
+	}
+
+	/**
+	 * Sets the deepest iteration the search runs.
+	 *
+	 * @param depth any integer between 1 and Search.MAX_PLY - 1 inclusive.
+	 */
+	public void setDepthLimit(int depth) {
+		for (Search worker : workers) {
+			worker.setDepthLimit(depth);
+		}
+	}
+
+	/**
+	 * Sets how long a search may take.
+	 *
+	 * @param millis the time limit in milliseconds, or 0 for no limit.
+	 */
+	public void setTimeLimit(long millis) {
+		for (Search worker : workers) {
+			worker.setTimeLimit(millis);
+		}
+	}
+
+	/**
+	 * Searches the position for the side to move with every thread.
+	 *
+	 * @param position the position to search. It is left unchanged.
+	 * @return the best move found, or Move.NONE if the side to move has no legal
+	 *         move.
+	 */
+	public int search(Position position) {
+		table.newSearch();
+		stopSignal.set(false);
+		List<Future<?>> running = new ArrayList<>();
+		for (int i = 1; i < workers.length; i++) {
+			Search worker = workers[i];
+			Position copy = positions[i];
+			copy.copyFrom(position);
+			running.add(helpers.submit(() -> worker.run(copy)));
+		}
+		positions[0].copyFrom(position);
+		workers[0].run(positions[0]);
+		stopSignal.set(true);
+		for (Future<?> helper : running) {
+			try {
+				helper.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("A search thread failed", e.getCause());
+			}
+		}
+
+		Search best = workers[0];
+		nodes = 0;
+		for (Search worker : workers) {
+			nodes += worker.nodes();
+			if (worker.completedDepth() > best.completedDepth() && worker.bestMove() != Move.NONE) {
+				best = worker;
+			}
+		}
+		completedDepth = best.completedDepth();
+		score = best.score();
+		return best.bestMove();
+	}
+
+	/**
+	 * Stops the helper threads for good. The search cannot be used afterwards.
+	 */
+	public void shutdown() {
+		if (helpers != null) {
+			helpers.shutdownNow();
+		}
+	}
+
+	// -- Getters for the last search
+
+	/**
+	 * @return the nodes searched by all threads together.
+	 */
+	public long nodes() {
+		return nodes;
+	}
+
+	public int completedDepth() {
+		return completedDepth;
+	}
+
+	/**
+	 * @return the score of the best move in centipawns, from the point of view of
+	 *         the side that was to move.
+	 */
+	public int score() {
+		return score;
+	}
+
+	public int threads() {
+		return workers.length;
+	}
+
+	public TranspositionTable table() {
+		return table;
+	}
+}
@@ -0,0 +1,153 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Counts the leaf nodes of the legal move tree of a position to a fixed depth,
+ * which checks the move generator against published counts and measures how
+ * fast it runs. Castling, en passant, promotions and pins all change the
+ * counts, so a single wrong move shows up as a mismatch.
+ * <P>
+ * Usage:
+ * <UL>
+ * <LI>{@code java engine.Perft <depth> [FEN]} prints the node count below each
+ * root move (a "divide"), the total, and the nodes per second. Without a FEN
+ * the starting position is used.</LI>
+ * <LI>{@code java engine.Perft --suite} runs every reference position in
+ * {@link #SUITE} and exits with status 1 if any count is wrong.</LI>
+ * </UL>
+ */
+public final class Perft {
+	/**
+	 * Reference positions as { name, FEN, depth, expected leaf nodes }. The counts
+	 * are the widely published ones for these positions.
+	 */
+	private static final String[][] SUITE = {
+			{ "Initial", Fen.START, "5", "4865609" },
+			{ "Kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "4",
+					"4085603" },
+			{ "Position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "5", "674624" },
+			{ "Position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", "4", "422333" },
+			{ "Position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", "4", "2103487" },
+			{ "Position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", "4",
+					"3894594" } };
+
+	private Perft() {
+	}
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.out.println("Usage: Perft <depth> [FEN] | Perft --suite");
+			return;
+		}
+		if (args[0].equals("--suite")) {
+			System.exit(runSuite() ? 0 : 1);
+		}
+		int depth = Integer.parseInt(args[0]);
+		if (depth < 1) {
+			throw new IllegalArgumentException("Depth must be at least 1: " + depth);
+		}
+		String fen = args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length))
+				: Fen.START;
+		Position position = new Position();
+		Fen.read(position, fen);
+		long start = System.nanoTime();
+		long nodes = divide(position, depth);
+		long elapsed = System.nanoTime() - start;
+		System.out.println();
+		System.out.println("Nodes: " + nodes);
+		report(nodes, elapsed);
+	}
+
+	/**
+	 * Counts the leaf nodes below a position.
+	 *
+	 * @param position the position to count from. It is left unchanged.
+	 * @param depth    the number of plies to play out, at least 0.
+	 * @return the number of move sequences of exactly depth plies.
+	 */
+	public static long count(Position position, int depth) {
+		return count(position, depth, new int[Math.max(depth, 1)][MoveGenerator.MAX_MOVES]);
+	}
+
+	/**
+	 * Counts the leaf nodes below a position and prints the count below each
+	 * root move, which narrows a mismatch down to the move that causes it.
+	 *
+	 * @param position the position to count from. It is left unchanged.
+	 * @param depth    the number of plies to play out, at least 1.
+	 * @return the number of move sequences of exactly depth plies.
+	 */
+	public static long divide(Position position, int depth) {
+		int[][] buffers = new int[depth][MoveGenerator.MAX_MOVES];
+		int[] moves = buffers[depth - 1];
+		int count = MoveGenerator.generateLegal(position, position.sideToMove(), moves);
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			position.makeMove(moves[i]);
+			long nodes = count(position, depth - 1, buffers);
+			position.unmakeMove(moves[i]);
+			System.out.println(Move.toString(moves[i]) + ": " + nodes);
+			total += nodes;
+		}
+		return total;
+	}
+
+	// -- Helpers
+
+	/**
+	 * Counts leaf nodes with one move buffer per remaining ply, so the whole
+	 * count allocates nothing. The last ply is counted from the length of the
+	 * legal move list rather than by playing each move.
+	 */
+	private static long count(Position position, int depth, int[][] buffers) {
+		if (depth == 0) {
+			return 1;
+		}
+		int[] moves = buffers[depth - 1];
+		int count = MoveGenerator.generateLegal(position, position.sideToMove(), moves);
+		if (depth == 1) {
+			return count;
+		}
+		long nodes = 0;
+		for (int i = 0; i < count; i++) {
+			position.makeMove(moves[i]);
+			nodes += count(position, depth - 1, buffers);
+			position.unmakeMove(moves[i]);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Runs every reference position and prints one line per position.
+	 *
+	 * @return true if every count matched.
+	 */
+	private static boolean runSuite() {
+		Position position = new Position();
+		boolean passed = true;
+		long totalNodes = 0;
+		long totalTime = 0;
+		for (String[] test : SUITE) {
+			Fen.read(position, test[1]);
+			int depth = Integer.parseInt(test[2]);
+			long expected = Long.parseLong(test[3]);
+			long start = System.nanoTime();
+			long nodes = count(position, depth);
+			long elapsed = System.nanoTime() - start;
+			totalNodes += nodes;
+			totalTime += elapsed;
+			boolean ok = nodes == expected;
+			passed &= ok;
+			System.out.printf("%-4s %-10s depth %d: %d nodes%s%n", ok ? "OK" : "FAIL", test[0], depth, nodes,
+					ok ? "" : " (expected " + expected + ")");
+		}
+		report(totalNodes, totalTime);
+		return passed;
+	}
+
+	private static void report(long nodes, long nanos) {
+		double seconds = nanos / 1e9;
+		System.out.printf("Time: %.3f s, %.0f nodes/s%n", seconds, seconds > 0 ? nodes / seconds : 0.0);
+	}
+}
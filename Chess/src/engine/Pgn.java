@@ -0,0 +1,304 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * One game in Portable Game Notation: its tag pairs, such as the players and
+ * the result, and its moves as a {@link Game}. Games are read one at a time
+ * from a reader, so files with any number of games can be imported without
+ * holding them all in memory.
+ * <P>
+ * Comments, variations, numeric annotation glyphs and move numbers are skipped
+ * when reading. A game that does not start from the normal position carries
+ * its start in the SetUp and FEN tags.
+ */
+public class Pgn {
+	// Values of the Result tag
+	public static final String WHITE_WINS = "1-0";
+	public static final String BLACK_WINS = "0-1";
+	public static final String DRAW = "1/2-1/2";
+	public static final String UNKNOWN = "*";
+
+	/**
+	 * The seven tags every PGN game has, in the order they are written.
+	 */
+	private static final String[] ROSTER = { "Event", "Site", "Date", "Round", "White", "Black", "Result" };
+	private static final Pattern MOVE_NUMBER = Pattern.compile("^[0-9]+\\.+");
+
+	private final Map<String, String> tags = new LinkedHashMap<>();
+	private final Game game;
+
+	/**
+	 * Creates a record of a game. The Result tag is taken from the game if it
+	 * has ended, and left as "*" if not.
+	 *
+	 * @param game the game, which is kept, not copied.
+	 */
+	public Pgn(Game game) {
+		this.game = game;
+		for (String name : ROSTER) {
+			tags.put(name, "?");
+		}
+		tags.put("Result", resultOf(game.result()));
+		if (!game.startFen().equals(Fen.START)) {
+			tags.put("SetUp", "1");
+			tags.put("FEN", game.startFen());
+		}
+	}
+
+	/**
+	 * Reads one game written in PGN.
+	 *
+	 * @param text the text of a game.
+	 * @return the game.
+	 * @throws IllegalArgumentException if the text holds no game or a move is
+	 *                                  illegal.
+	 */
+	public static Pgn parse(String text) {
+		try {
+			Pgn pgn = read(new BufferedReader(new StringReader(text)));
+			if (pgn == null) {
+				throw new IllegalArgumentException("No game found");
+			}
+			return pgn;
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // a StringReader does not fail
+		}
+	}
+
+	/**
+	 * Reads the next game from a reader.
+	 *
+	 * @param in the reader, positioned before a game or between two games.
+	 * @return the game, or null if the reader holds no more games.
+	 * @throws IOException              if the reader fails.
+	 * @throws IllegalArgumentException if a tag or move is malformed or a move is
+	 *                                  illegal. The whole game is read first, so
+	 *                                  the reader is then left after the bad
+	 *                                  game and the next call reads the next
+	 *                                  one.
+	 */
+	public static Pgn read(BufferedReader in) throws IOException {
+		Map<String, String> tags = new LinkedHashMap<>();
+		String line = in.readLine();
+		while (line != null && line.trim().isEmpty()) {
+			line = in.readLine();
+		}
+		if (line == null) {
+			return null;
+		}
+		IllegalArgumentException badTag = null;
+		for (; line != null && line.trim().startsWith("["); line = in.readLine()) {
+			try {
+				readTag(line.trim(), tags);
+			} catch (IllegalArgumentException e) {
+				if (badTag == null) {
+					badTag = e; // thrown once the movetext is read too
+				}
+			}
+		}
+		// the movetext runs until the result, or else until a blank line
+		StringBuilder movetext = new StringBuilder();
+		for (; line != null; line = in.readLine()) {
+			if (line.trim().isEmpty()) {
+				if (movetext.length() > 0) {
+					break;
+				}
+				continue;
+			}
+			if (!line.startsWith("%")) {
+				movetext.append(line).append('\n');
+			}
+			if (endsWithResult(line)) {
+				break;
+			}
+		}
+		if (badTag != null) {
+			throw badTag;
+		}
+		Game game = new Game(tags.containsKey("FEN") ? tags.get("FEN") : Fen.START);
+		Pgn pgn = new Pgn(game);
+		pgn.tags.putAll(tags);
+		pgn.readMoves(movetext);
+		return pgn;
+	}
+
+	/**
+	 * Writes the game as PGN: the seven roster tags, any other tags, then the
+	 * moves in SAN wrapped at 80 columns and the result.
+	 *
+	 * @return the PGN text, ending in a blank line.
+	 */
+	public String write() {
+		StringBuilder text = new StringBuilder(512);
+		for (Map.Entry<String, String> tag : tags.entrySet()) {
+			text.append('[').append(tag.getKey()).append(" \"");
+			text.append(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+		}
+		text.append('\n');
+
+		Position position = new Position();
+		Fen.read(position, game.startFen());
+		StringBuilder line = new StringBuilder(80);
+		for (int i = 0; i < game.length(); i++) {
+			int move = game.move(i);
+			String token = San.write(position, move);
+			if (position.sideToMove() == Position.WHITE) {
+				token = position.fullmoveNumber() + ". " + token;
+			} else if (i == 0) {
+				token = position.fullmoveNumber() + "... " + token;
+			}
+			append(text, line, token);
+			position.makeMove(move);
+		}
+		append(text, line, getResult());
+		text.append(line).append("\n\n");
+		return text.toString();
+	}
+
+	// -- Getters and setters
+
+	/**
+	 * @return the moves of the game.
+	 */
+	public Game game() {
+		return game;
+	}
+
+	/**
+	 * Returns a tag value, such as tag("White") for the name of the white player.
+	 *
+	 * @param name the tag name, which is case sensitive.
+	 * @return the value, or null if the game has no such tag.
+	 */
+	public String tag(String name) {
+		return tags.get(name);
+	}
+
+	/**
+	 * Sets a tag value. The roster tags keep their place at the top.
+	 *
+	 * @param name  the tag name, such as "Event".
+	 * @param value the value, not null.
+	 */
+	public void setTag(String name, String value) {
+		tags.put(name, value);
+	}
+
+	/**
+	 * @return all tags in the order they are written.
+	 */
+	public Map<String, String> tags() {
+		return tags;
+	}
+
+	/**
+	 * @return the Result tag: "1-0", "0-1", "1/2-1/2" or "*".
+	 */
+	public String getResult() {
+		String result = tags.get("Result");
+		return result == null ? UNKNOWN : result;
+	}
+
+	/**
+	 * Converts a {@link Game} result code into the value of a Result tag.
+	 *
+	 * @param result any result code of Game.
+	 * @return "1-0", "0-1", "1/2-1/2" or "*" for a game still going on.
+	 */
+	public static String resultOf(int result) {
+		if (result == Game.WHITE_WINS) {
+			return WHITE_WINS;
+		} else if (result == Game.BLACK_WINS) {
+			return BLACK_WINS;
+		} else if (Game.isDraw(result)) {
+			return DRAW;
+		}
+		return UNKNOWN;
+	}
+
+	// -- Helpers
+
+	private static void readTag(String line, Map<String, String> tags) {
+		int space = line.indexOf(' ');
+		int open = line.indexOf('"');
+		int close = line.lastIndexOf('"');
+		if (space < 2 || open < space || close <= open || !line.endsWith("]")) {
+			throw new IllegalArgumentException("Bad tag: " + line);
+		}
+		String value = line.substring(open + 1, close).replace("\\\"", "\"").replace("\\\\", "\\");
+		tags.put(line.substring(1, space), value);
+	}
+
+	private static boolean endsWithResult(String line) {
+		String text = line.trim();
+		return text.endsWith(WHITE_WINS) || text.endsWith(BLACK_WINS) || text.endsWith(DRAW) || text.endsWith(UNKNOWN);
+	}
+
+	/**
+	 * Plays the moves of the movetext, skipping comments, variations, move
+	 * numbers and annotation glyphs.
+	 */
+	private void readMoves(CharSequence movetext) {
+		int depth = 0; // nesting of variations
+		int i = 0;
+		int length = movetext.length();
+		while (i < length) {
+			char c = movetext.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '{') {
+				while (i < length && movetext.charAt(i) != '}') {
+					i++;
+				}
+				i++;
+			} else if (c == ';') {
+				while (i < length && movetext.charAt(i) != '\n') {
+					i++;
+				}
+			} else if (c == '(' || c == ')') {
+				depth += c == '(' ? 1 : -1;
+				i++;
+			} else {
+				int start = i;
+				while (i < length && !Character.isWhitespace(movetext.charAt(i))
+						&& "{}();".indexOf(movetext.charAt(i)) < 0) {
+					i++;
+				}
+				String token = movetext.subSequence(start, i).toString();
+				if (depth == 0) {
+					readToken(token);
+				}
+			}
+		}
+	}
+
+	private void readToken(String token) {
+		if (token.equals(WHITE_WINS) || token.equals(BLACK_WINS) || token.equals(DRAW) || token.equals(UNKNOWN)) {
+			tags.put("Result", token);
+			return;
+		}
+		// move numbers such as "12." or "12...", possibly glued to the move
+		String san = MOVE_NUMBER.matcher(token).replaceFirst("");
+		if (san.isEmpty() || san.startsWith("$")) {
+			return;
+		}
+		game.play(San.read(game.position(), san));
+	}
+
+	private static void append(StringBuilder text, StringBuilder line, String token) {
+		if (line.length() + 1 + token.length() > 80) {
+			text.append(line).append('\n');
+			line.setLength(0);
+		}
+		if (line.length() > 0) {
+			line.append(' ');
+		}
+		line.append(token);
+	}
+}
@@ -0,0 +1,681 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * A headless chess position stored as bitboards. Every piece type and color has
+ * its own long, and a 64 entry mailbox array mirrors them so the piece on a
+ * square can be looked up without scanning the bitboards. Besides the pieces,
+ * the position tracks the side to move, castling rights, the en passant square
+ * and the move counters, which is all the state the rules of chess need.
+ * <P>
+ * Legality queries work entirely on the bitboards: checking whether a square
+ * is attacked or a move leaves the king in check costs a handful of shifts and
+ * masks instead of walking Tile and Piece objects. Attacks are always looked
+ * up backwards from the square in question, see
+ * {@link #isSquareAttacked(int, int)}.
+ * <P>
+ * The position also keeps its Zobrist key (see {@link Zobrist}) up to date on
+ * every change, so hashing a position for a transposition table or a
+ * repetition check costs nothing.
+ */
+public class Position {
+	// Colors
+	public static final int WHITE = 0;
+	public static final int BLACK = 1;
+
+	// Piece types
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+	/**
+	 * Mailbox value of a square that holds no piece.
+	 */
+	public static final int EMPTY = -1;
+
+	// Castling right bits
+	public static final int WHITE_KINGSIDE = 1;
+	public static final int WHITE_QUEENSIDE = 2;
+	public static final int BLACK_KINGSIDE = 4;
+	public static final int BLACK_QUEENSIDE = 8;
+
+	/**
+	 * Castling rights that survive a move touching each square. Moving from or
+	 * onto a king or rook home square clears the matching rights.
+	 */
+	private static final int[] CASTLING_MASK = new int[64];
+
+	static {
+		for (int sq = 0; sq < 64; sq++) {
+			CASTLING_MASK[sq] = 15;
+		}
+		CASTLING_MASK[square(4, 7)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+		CASTLING_MASK[square(7, 7)] &= ~WHITE_KINGSIDE;
+		CASTLING_MASK[square(0, 7)] &= ~WHITE_QUEENSIDE;
+		CASTLING_MASK[square(4, 0)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+		CASTLING_MASK[square(7, 0)] &= ~BLACK_KINGSIDE;
+		CASTLING_MASK[square(0, 0)] &= ~BLACK_QUEENSIDE;
+	}
+
+	/**
+	 * One bitboard per piece, indexed by {@link #piece(int, int)}.
+	 */
+	final long[] pieces = new long[12];
+	/**
+	 * All pieces of each color.
+	 */
+	final long[] colors = new long[2];
+	/**
+	 * Every occupied square.
+	 */
+	long occupied;
+	/**
+	 * The piece on each square, or {@link #EMPTY}.
+	 */
+	final int[] mailbox = new int[64];
+	int sideToMove;
+	int castling;
+	/**
+	 * The square a pawn skipped over on the last move, or -1 if the last move
+	 * was not a double pawn push.
+	 */
+	int enPassant;
+	int halfmoveClock;
+	int fullmoveNumber;
+	/**
+	 * The Zobrist key of the position.
+	 */
+	long key;
+	/**
+	 * Undo records of the moves played with {@link #makeMove(int)}, one per ply.
+	 * Each record packs the captured piece, the castling rights, the en passant
+	 * square and the halfmove clock as they were before the move.
+	 */
+	private long[] undo = new long[256];
+	/**
+	 * The Zobrist key before each move in {@link #undo}, indexed the same way.
+	 */
+	private long[] keys = new long[256];
+	/**
+	 * The number of moves that can currently be taken back.
+	 */
+	private int ply;
+
+	/**
+	 * Creates an empty position with white to move and no castling rights.
+	 */
+	public Position() {
+		clear();
+	}
+
+	/**
+	 * Removes every piece and resets all state.
+	 */
+	public void clear() {
+		for (int i = 0; i < 12; i++) {
+			pieces[i] = 0L;
+		}
+		colors[WHITE] = 0L;
+		colors[BLACK] = 0L;
+		occupied = 0L;
+		for (int sq = 0; sq < 64; sq++) {
+			mailbox[sq] = EMPTY;
+		}
+		sideToMove = WHITE;
+		castling = 0;
+		enPassant = -1;
+		halfmoveClock = 0;
+		fullmoveNumber = 1;
+		key = 0L;
+		ply = 0;
+	}
+
+	/**
+	 * Copies every field of another position into this one, undo records
+	 * included, so the copy can take back the same moves and sees the same
+	 * repetitions.
+	 *
+	 * @param other the position to copy.
+	 */
+	public void copyFrom(Position other) {
+		System.arraycopy(other.pieces, 0, pieces, 0, 12);
+		System.arraycopy(other.mailbox, 0, mailbox, 0, 64);
+		colors[WHITE] = other.colors[WHITE];
+		colors[BLACK] = other.colors[BLACK];
+		occupied = other.occupied;
+		sideToMove = other.sideToMove;
+		castling = other.castling;
+		enPassant = other.enPassant;
+		halfmoveClock = other.halfmoveClock;
+		fullmoveNumber = other.fullmoveNumber;
+		key = other.key;
+		if (undo.length < other.ply) {
+			undo = new long[other.undo.length];
+			keys = new long[other.undo.length];
+		}
+		System.arraycopy(other.undo, 0, undo, 0, other.ply);
+		System.arraycopy(other.keys, 0, keys, 0, other.ply);
+		ply = other.ply;
+	}
+
+	// -- Static helpers
+
+	/**
+	 * Converts a board coordinate into a square index.
+	 *
+	 * @param x any integer between 0-7 inclusive.
+	 * @param y any integer between 0-7 inclusive.
+	 * @return the square index y * 8 + x.
+	 */
+	public static int square(int x, int y) {
+		return y * 8 + x;
+	}
+
+	/**
+	 * Combines a color and a piece type into the index used by the bitboard and
+	 * mailbox arrays.
+	 *
+	 * @param color WHITE or BLACK.
+	 * @param type  PAWN through KING.
+	 * @return an integer between 0-11 inclusive.
+	 */
+	public static int piece(int color, int type) {
+		return color * 6 + type;
+	}
+
+	/**
+	 * Returns the color of a piece index.
+	 *
+	 * @param piece an integer between 0-11 inclusive.
+	 * @return WHITE or BLACK.
+	 */
+	public static int colorOf(int piece) {
+		return piece < 6 ? WHITE : BLACK;
+	}
+
+	/**
+	 * Returns the type of a piece index.
+	 *
+	 * @param piece an integer between 0-11 inclusive.
+	 * @return PAWN through KING.
+	 */
+	public static int typeOf(int piece) {
+		return piece < 6 ? piece : piece - 6;
+	}
+
+	// -- Setup
+
+	/**
+	 * Puts a piece onto an empty square.
+	 *
+	 * @param color  WHITE or BLACK.
+	 * @param type   PAWN through KING.
+	 * @param square any integer between 0-63 inclusive.
+	 */
+	public void put(int color, int type, int square) {
+		int piece = piece(color, type);
+		long bit = Bitboards.bit(square);
+		pieces[piece] |= bit;
+		colors[color] |= bit;
+		occupied |= bit;
+		mailbox[square] = piece;
+		key ^= Zobrist.PIECE_SQUARE[piece][square];
+	}
+
+	/**
+	 * Removes whatever piece is on the square.
+	 *
+	 * @param square any integer between 0-63 inclusive.
+	 */
+	public void remove(int square) {
+		int piece = mailbox[square];
+		if (piece == EMPTY) {
+			return;
+		}
+		long bit = Bitboards.bit(square);
+		pieces[piece] &= ~bit;
+		colors[colorOf(piece)] &= ~bit;
+		occupied &= ~bit;
+		mailbox[square] = EMPTY;
+		key ^= Zobrist.PIECE_SQUARE[piece][square];
+	}
+
+	public void setSideToMove(int color) {
+		if (color != sideToMove) {
+			key ^= Zobrist.SIDE;
+		}
+		this.sideToMove = color;
+	}
+
+	public void setCastling(int rights) {
+		key ^= Zobrist.CASTLING[castling] ^ Zobrist.CASTLING[rights];
+		this.castling = rights;
+	}
+
+	public void setEnPassant(int square) {
+		key ^= enPassantKey(enPassant) ^ enPassantKey(square);
+		this.enPassant = square;
+	}
+
+	public void setHalfmoveClock(int plies) {
+		this.halfmoveClock = plies;
+	}
+
+	public void setFullmoveNumber(int number) {
+		this.fullmoveNumber = number;
+	}
+
+	// -- Getters
+
+	/**
+	 * Returns the piece index on the square.
+	 *
+	 * @param square any integer between 0-63 inclusive.
+	 * @return an integer between 0-11 inclusive, or EMPTY.
+	 */
+	public int pieceAt(int square) {
+		return mailbox[square];
+	}
+
+	/**
+	 * Returns the bitboard of one piece type and color.
+	 *
+	 * @param color WHITE or BLACK.
+	 * @param type  PAWN through KING.
+	 * @return the squares holding that piece.
+	 */
+	public long pieces(int color, int type) {
+		return pieces[piece(color, type)];
+	}
+
+	/**
+	 * Returns the bitboard of every piece of one color.
+	 *
+	 * @param color WHITE or BLACK.
+	 * @return the squares holding that color's pieces.
+	 */
+	public long pieces(int color) {
+		return colors[color];
+	}
+
+	public long occupied() {
+		return occupied;
+	}
+
+	public int sideToMove() {
+		return sideToMove;
+	}
+
+	public int castling() {
+		return castling;
+	}
+
+	public int enPassant() {
+		return enPassant;
+	}
+
+	public int halfmoveClock() {
+		return halfmoveClock;
+	}
+
+	public int fullmoveNumber() {
+		return fullmoveNumber;
+	}
+
+	/**
+	 * Returns the Zobrist key of the position. Two positions with the same
+	 * pieces, side to move, castling rights and en passant file have the same
+	 * key.
+	 *
+	 * @return a 64-bit hash of the position.
+	 */
+	public long key() {
+		return key;
+	}
+
+	/**
+	 * Counts how often the current position has occurred since the moves played
+	 * with {@link #makeMove(int)} began, including now. Only positions since the
+	 * last capture or pawn move can repeat, and only every second one has the
+	 * same side to move, so only those keys are compared.
+	 *
+	 * @return at least 1.
+	 */
+	public int repetitions() {
+		int count = 1;
+		int oldest = Math.max(0, ply - halfmoveClock);
+		for (int i = ply - 2; i >= oldest; i -= 2) {
+			if (keys[i] == key) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns true if the current position has occurred before, which a search
+	 * scores as a draw. Stops at the first earlier occurrence.
+	 *
+	 * @return true if {@link #repetitions()} is more than 1.
+	 */
+	public boolean isRepetition() {
+		int oldest = Math.max(0, ply - halfmoveClock);
+		for (int i = ply - 4; i >= oldest; i -= 2) {
+			if (keys[i] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of moves that can currently be taken back with
+	 *         {@link #unmakeMove(int)}.
+	 */
+	public int ply() {
+		return ply;
+	}
+
+	/**
+	 * Returns the square of the given color's king.
+	 *
+	 * @param color WHITE or BLACK.
+	 * @return any integer between 0-63 inclusive, or 64 if there is no king.
+	 */
+	public int kingSquare(int color) {
+		return Long.numberOfTrailingZeros(pieces[piece(color, KING)]);
+	}
+
+	// -- Attacks
+
+	/**
+	 * Returns true if any piece of the given color attacks the square. Instead of
+	 * generating the attacks of every enemy piece, it works backwards from the
+	 * square: a knight, king or pawn attack pattern placed on the square, or a
+	 * rook or bishop ray cast from it, must hit a matching enemy piece.
+	 *
+	 * @param square  any integer between 0-63 inclusive.
+	 * @param byColor the attacking color, WHITE or BLACK.
+	 * @return true if the square is attacked, false if not.
+	 */
+	public boolean isSquareAttacked(int square, int byColor) {
+		int offset = byColor * 6;
+		if ((Bitboards.PAWN_ATTACKS[byColor ^ 1][square] & pieces[offset + PAWN]) != 0
+				|| (Bitboards.KNIGHT_ATTACKS[square] & pieces[offset + KNIGHT]) != 0
+				|| (Bitboards.KING_ATTACKS[square] & pieces[offset + KING]) != 0) {
+			return true;
+		}
+		long queens = pieces[offset + QUEEN];
+		long straight = pieces[offset + ROOK] | queens;
+		if (straight != 0 && (Bitboards.rookAttacks(square, occupied) & straight) != 0) {
+			return true;
+		}
+		long diagonal = pieces[offset + BISHOP] | queens;
+		return diagonal != 0 && (Bitboards.bishopAttacks(square, occupied) & diagonal) != 0;
+	}
+
+	/**
+	 * Returns true if the given color's king is attacked.
+	 *
+	 * @param color WHITE or BLACK.
+	 * @return true if that king is in check, false if not.
+	 */
+	public boolean inCheck(int color) {
+		long king = pieces[piece(color, KING)];
+		return king != 0 && isSquareAttacked(Long.numberOfTrailingZeros(king), color ^ 1);
+	}
+
+	// -- Move queries
+
+	/**
+	 * Returns every square the piece on the given square could move to if the
+	 * safety of its own king is ignored. Castling is returned as the king moving
+	 * two files towards the rook.
+	 *
+	 * @param from any integer between 0-63 inclusive.
+	 * @return the destination squares as a bitboard, 0 if the square is empty.
+	 */
+	public long targets(int from) {
+		int piece = mailbox[from];
+		if (piece == EMPTY) {
+			return 0L;
+		}
+		int color = colorOf(piece);
+		int type = typeOf(piece);
+		long own = colors[color];
+		if (type == PAWN) {
+			return pawnTargets(from, color);
+		}
+		long targets = Bitboards.attacks(type, color, from, occupied) & ~own;
+		if (type == KING) {
+			targets |= castlingTargets(color);
+		}
+		return targets;
+	}
+
+	/**
+	 * Returns true if moving the piece on from to the square to is a legal move
+	 * for that piece's color.
+	 *
+	 * @param from any integer between 0-63 inclusive.
+	 * @param to   any integer between 0-63 inclusive.
+	 * @return true if the move follows the piece's movement rules and does not
+	 *         leave its own king in check.
+	 */
+	public boolean isLegal(int from, int to) {
+		return (targets(from) & Bitboards.bit(to)) != 0 && keepsKingSafe(from, to);
+	}
+
+	/**
+	 * Returns true if moving the piece on from to the square to does not leave
+	 * its own king attacked. Movement rules are not checked. The move is made
+	 * and taken back on this position, so nothing is allocated.
+	 *
+	 * @param from any integer between 0-63 inclusive, must hold a piece.
+	 * @param to   any integer between 0-63 inclusive.
+	 * @return true if the king is safe after the move, false if not.
+	 */
+	public boolean keepsKingSafe(int from, int to) {
+		return keepsKingSafe(move(from, to, QUEEN));
+	}
+
+	/**
+	 * Returns true if playing the move does not leave the mover's king attacked.
+	 *
+	 * @param move a packed move whose origin holds a piece.
+	 * @return true if the king is safe after the move, false if not.
+	 */
+	public boolean keepsKingSafe(int move) {
+		int color = colorOf(mailbox[Move.from(move)]);
+		makeMove(move);
+		boolean safe = !inCheck(color);
+		unmakeMove(move);
+		return safe;
+	}
+
+	/**
+	 * Packs the move of the piece on from to the square to, working out its
+	 * flags from the position: captures, en passant, castling (the king moving
+	 * two files) and double pawn pushes.
+	 *
+	 * @param from      the square of the piece being moved.
+	 * @param to        the destination square.
+	 * @param promotion the type a pawn reaching the last row becomes, ignored for
+	 *                  other moves.
+	 * @return the packed move.
+	 */
+	public int move(int from, int to, int promotion) {
+		int type = typeOf(mailbox[from]);
+		int flags = mailbox[to] != EMPTY ? Move.CAPTURE : 0;
+		if (type == PAWN) {
+			if (to == enPassant && (from & 7) != (to & 7)) {
+				flags |= Move.EN_PASSANT | Move.CAPTURE;
+			} else if (Math.abs(to - from) == 16) {
+				flags |= Move.DOUBLE_PUSH;
+			}
+			if (to < 8 || to >= 56) {
+				return Move.encode(from, to, promotion, flags);
+			}
+		} else if (type == KING && Math.abs(to - from) == 2) {
+			flags |= Move.CASTLE;
+		}
+		return Move.encode(from, to, 0, flags);
+	}
+
+	// -- Moving
+
+	/**
+	 * Plays a move on the position. Captures, castling, en passant and promotion
+	 * are all handled, and the side to move, castling rights, en passant square
+	 * and move counters are updated. Everything needed to take the move back is
+	 * pushed as an undo record.
+	 *
+	 * @param move a packed move, as built by {@link #move(int, int, int)}.
+	 */
+	public void makeMove(int move) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int piece = mailbox[from];
+		int color = colorOf(piece);
+		int type = typeOf(piece);
+		int capturedSquare = Move.isEnPassant(move) ? to + (color == WHITE ? 8 : -8) : to;
+		int captured = mailbox[capturedSquare];
+
+		if (ply == undo.length) {
+			undo = Arrays.copyOf(undo, ply * 2);
+			keys = Arrays.copyOf(keys, ply * 2);
+		}
+		keys[ply] = key;
+		undo[ply++] = (captured & 15) | (castling << 4) | ((enPassant + 1) << 8) | ((long) halfmoveClock << 16);
+
+		if (captured != EMPTY) {
+			remove(capturedSquare);
+		}
+		remove(from);
+		int promotion = Move.promotion(move);
+		put(color, promotion != 0 ? promotion : type, to);
+		if (Move.isCastle(move)) {
+			boolean kingside = to > from;
+			remove(kingside ? from + 3 : from - 4);
+			put(color, ROOK, kingside ? from + 1 : from - 1);
+		}
+
+		int oldCastling = castling;
+		key ^= enPassantKey(enPassant);
+		enPassant = Move.isDoublePush(move) ? (from + to) / 2 : -1;
+		key ^= enPassantKey(enPassant);
+		castling &= CASTLING_MASK[from] & CASTLING_MASK[to];
+		key ^= Zobrist.CASTLING[oldCastling] ^ Zobrist.CASTLING[castling] ^ Zobrist.SIDE;
+		halfmoveClock = (type == PAWN || captured != EMPTY) ? 0 : halfmoveClock + 1;
+		if (color == BLACK) {
+			fullmoveNumber++;
+		}
+		sideToMove = color ^ 1;
+	}
+
+	/**
+	 * Takes back the last move played with {@link #makeMove(int)}, restoring the
+	 * position exactly as it was before.
+	 *
+	 * @param move the same packed move that was passed to makeMove().
+	 */
+	public void unmakeMove(int move) {
+		long record = undo[--ply];
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int color = sideToMove ^ 1;
+		sideToMove = color;
+		if (color == BLACK) {
+			fullmoveNumber--;
+		}
+
+		if (Move.isCastle(move)) {
+			boolean kingside = to > from;
+			remove(kingside ? from + 1 : from - 1);
+			put(color, ROOK, kingside ? from + 3 : from - 4);
+		}
+		int type = Move.promotion(move) != 0 ? PAWN : typeOf(mailbox[to]);
+		remove(to);
+		put(color, type, from);
+		int captured = (int) (record & 15);
+		if (captured != 15) {
+			int capturedSquare = Move.isEnPassant(move) ? to + (color == WHITE ? 8 : -8) : to;
+			put(colorOf(captured), typeOf(captured), capturedSquare);
+		}
+
+		castling = (int) (record >>> 4) & 15;
+		enPassant = (int) ((record >>> 8) & 127) - 1;
+		halfmoveClock = (int) (record >>> 16);
+		key = keys[ply];
+	}
+
+	// -- Helpers
+
+	private static long enPassantKey(int square) {
+		return square >= 0 ? Zobrist.EN_PASSANT_FILE[square & 7] : 0L;
+	}
+
+	/**
+	 * Pawn pushes and captures, including en passant when it is this pawn's
+	 * turn.
+	 */
+	private long pawnTargets(int from, int color) {
+		long targets = 0L;
+		int step = color == WHITE ? -8 : 8;
+		int one = from + step;
+		if (one >= 0 && one < 64 && mailbox[one] == EMPTY) {
+			targets |= Bitboards.bit(one);
+			int startRow = color == WHITE ? 6 : 1;
+			int two = one + step;
+			if ((from >> 3) == startRow && mailbox[two] == EMPTY) {
+				targets |= Bitboards.bit(two);
+			}
+		}
+		long captures = Bitboards.PAWN_ATTACKS[color][from];
+		long enemies = colors[color ^ 1];
+		if (enPassant >= 0 && color == sideToMove) {
+			enemies |= Bitboards.bit(enPassant);
+		}
+		return targets | (captures & enemies);
+	}
+
+	/**
+	 * Castling destinations of the king: the right must still exist, the squares
+	 * between king and rook must be empty, and the king may not start, pass
+	 * through or land on an attacked square.
+	 */
+	long castlingTargets(int color) {
+		int row = color == WHITE ? 7 : 0;
+		int kingside = color == WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+		int queenside = color == WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+		int king = square(4, row);
+		if ((castling & (kingside | queenside)) == 0 || mailbox[king] != piece(color, KING)) {
+			return 0L;
+		}
+		int enemy = color ^ 1;
+		if (isSquareAttacked(king, enemy)) {
+			return 0L;
+		}
+		long targets = 0L;
+		long rook = pieces[piece(color, ROOK)];
+		if ((castling & kingside) != 0 && (rook & Bitboards.bit(square(7, row))) != 0) {
+			long between = Bitboards.bit(square(5, row)) | Bitboards.bit(square(6, row));
+			if ((occupied & between) == 0 && !isSquareAttacked(square(5, row), enemy)
+					&& !isSquareAttacked(square(6, row), enemy)) {
+				targets |= Bitboards.bit(square(6, row));
+			}
+		}
+		if ((castling & queenside) != 0 && (rook & Bitboards.bit(square(0, row))) != 0) {
+			long between = Bitboards.bit(square(1, row)) | Bitboards.bit(square(2, row))
+					| Bitboards.bit(square(3, row));
+			if ((occupied & between) == 0 && !isSquareAttacked(square(3, row), enemy)
+					&& !isSquareAttacked(square(2, row), enemy)) {
+				targets |= Bitboards.bit(square(2, row));
+			}
+		}
+		return targets;
+	}
+}
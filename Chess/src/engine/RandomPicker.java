@@ -0,0 +1,40 @@
+package engine;
+
+import java.util.Random;
+
+/**
+ * Picks uniformly among all legal moves. The legal move list is generated once
+ * per move, so picking always takes the same short time, however few moves
+ * there are.
+ */
+public class RandomPicker implements MovePicker {
+	private final Random random;
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+	/**
+	 * Creates a picker that plays differently every time.
+	 */
+	public RandomPicker() {
+		this(new Random());
+	}
+
+	/**
+	 * Creates a picker that plays the same moves in the same positions every run
+	 * with the same seed, which makes games reproducible.
+	 *
+	 * @param seed the seed of the random number generator.
+	 */
+	public RandomPicker(long seed) {
+		this(new Random(seed));
+	}
+
+	private RandomPicker(Random random) {
+		this.random = random;
+	}
+
+	@Override
+	public int pickMove(Position position) {
+		int count = MoveGenerator.generateLegal(position, position.sideToMove, moves);
+		return count == 0 ? Move.NONE : moves[random.nextInt(count)];
+	}
+}
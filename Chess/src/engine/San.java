@@ -0,0 +1,179 @@
+package engine;
+
+/**
+ * Reads and writes moves in Standard Algebraic Notation, such as "Nf3", "exd5",
+ * "O-O" or "e8=Q+", the notation used in PGN files. Unlike the coordinate
+ * notation of {@link Move#toString(int)}, a SAN move only makes sense together
+ * with the position it is played in.
+ */
+public final class San {
+	private static final String PIECES = "PNBRQK";
+
+	private San() {
+	}
+
+	/**
+	 * Writes a move in SAN, with a "+" or "#" suffix if it gives check or mate.
+	 *
+	 * @param position the position before the move. It is left unchanged.
+	 * @param move     a legal packed move.
+	 * @return the move in SAN.
+	 */
+	public static String write(Position position, int move) {
+		StringBuilder san = new StringBuilder(8);
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int type = Position.typeOf(position.pieceAt(from));
+		if (Move.isCastle(move)) {
+			san.append((to & 7) > (from & 7) ? "O-O" : "O-O-O");
+		} else {
+			if (type == Position.PAWN) {
+				if (Move.isCapture(move)) {
+					san.append((char) ('a' + (from & 7)));
+				}
+			} else {
+				san.append(PIECES.charAt(type));
+				disambiguate(position, move, type, san);
+			}
+			if (Move.isCapture(move)) {
+				san.append('x');
+			}
+			san.append(Move.squareName(to));
+			if (Move.promotion(move) != 0) {
+				san.append('=').append(PIECES.charAt(Move.promotion(move)));
+			}
+		}
+		int side = position.sideToMove();
+		position.makeMove(move);
+		if (position.inCheck(1 - side)) {
+			int[] replies = new int[MoveGenerator.MAX_MOVES];
+			san.append(MoveGenerator.generateLegal(position, 1 - side, replies) == 0 ? '#' : '+');
+		}
+		position.unmakeMove(move);
+		return san.toString();
+	}
+
+	/**
+	 * Reads a move in SAN. Check and annotation suffixes such as "+", "#" or "!?"
+	 * are ignored, and castling may be written with zeros.
+	 *
+	 * @param position the position the move is played in.
+	 * @param san      the move in SAN.
+	 * @return the legal packed move.
+	 * @throws IllegalArgumentException if no legal move, or more than one, fits.
+	 */
+	public static int read(Position position, String san) {
+		String text = san.replaceAll("[+#!?]+$", "").replace('0', 'O');
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateLegal(position, position.sideToMove(), moves);
+		int found = Move.NONE;
+		if (text.equals("O-O") || text.equals("O-O-O")) {
+			for (int i = 0; i < count; i++) {
+				int move = moves[i];
+				if (Move.isCastle(move) && ((Move.to(move) & 7) > (Move.from(move) & 7)) == (text.length() == 3)) {
+					found = move;
+				}
+			}
+			if (found == Move.NONE) {
+				throw new IllegalArgumentException("Castling is not legal: " + san);
+			}
+			return found;
+		}
+
+		int type = Position.PAWN;
+		int start = 0;
+		if (!text.isEmpty() && PIECES.indexOf(text.charAt(0)) > 0) {
+			type = PIECES.indexOf(text.charAt(0));
+			start = 1;
+		}
+		int end = text.length();
+		int promotion = 0;
+		if (end > 0 && PIECES.indexOf(text.charAt(end - 1)) > 0) {
+			if (end < 2) { // a piece letter with no square, such as "Q"
+				throw new IllegalArgumentException("Bad SAN move: " + san);
+			}
+			promotion = PIECES.indexOf(text.charAt(end - 1));
+			end -= text.charAt(end - 2) == '=' ? 2 : 1;
+		}
+		if (end - start < 2) {
+			throw new IllegalArgumentException("Bad SAN move: " + san);
+		}
+		int to = square(text.charAt(end - 2), text.charAt(end - 1), san);
+		// whatever is left between the piece and the target square narrows the origin
+		int fromFile = -1;
+		int fromRank = -1;
+		for (int i = start; i < end - 2; i++) {
+			char c = text.charAt(i);
+			if (c >= 'a' && c <= 'h') {
+				fromFile = c - 'a';
+			} else if (c >= '1' && c <= '8') {
+				fromRank = '8' - c;
+			} else if (c != 'x' && c != '-') {
+				throw new IllegalArgumentException("Bad SAN move: " + san);
+			}
+		}
+
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			int from = Move.from(move);
+			if (Move.to(move) != to || Move.promotion(move) != promotion || Move.isCastle(move)
+					|| Position.typeOf(position.pieceAt(from)) != type) {
+				continue;
+			}
+			if ((fromFile >= 0 && (from & 7) != fromFile) || (fromRank >= 0 && (from >> 3) != fromRank)) {
+				continue;
+			}
+			if (found != Move.NONE) {
+				throw new IllegalArgumentException("Ambiguous SAN move: " + san);
+			}
+			found = move;
+		}
+		if (found == Move.NONE) {
+			throw new IllegalArgumentException("Illegal SAN move: " + san);
+		}
+		return found;
+	}
+
+	// -- Helpers
+
+	/**
+	 * Adds the file, rank or both of the origin when another piece of the same
+	 * type can also reach the target square.
+	 */
+	private static void disambiguate(Position position, int move, int type, StringBuilder san) {
+		int from = Move.from(move);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateLegal(position, position.sideToMove(), moves);
+		boolean ambiguous = false;
+		boolean sameFile = false;
+		boolean sameRank = false;
+		for (int i = 0; i < count; i++) {
+			int other = Move.from(moves[i]);
+			if (other == from || Move.to(moves[i]) != Move.to(move)
+					|| Position.typeOf(position.pieceAt(other)) != type) {
+				continue;
+			}
+			ambiguous = true;
+			sameFile |= (other & 7) == (from & 7);
+			sameRank |= (other >> 3) == (from >> 3);
+		}
+		if (!ambiguous) {
+			return;
+		}
+		String name = Move.squareName(from);
+		if (!sameFile) {
+			san.append(name.charAt(0));
+		} else if (!sameRank) {
+			san.append(name.charAt(1));
+		} else {
+			san.append(name);
+		}
+	}
+
+	private static int square(char file, char rank, String san) {
+		if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+			throw new IllegalArgumentException("Bad SAN move: " + san);
+		}
+		return Position.square(file - 'a', '8' - rank);
+	}
+}
@@ -0,0 +1,404 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds the best move of a position with an iterative-deepening negamax
+ * alpha-beta search. Each iteration searches one ply deeper than the last and
+ * tries the previous best move first, which makes the cut-offs of the next
+ * iteration far more effective. Leaf positions are resolved with a capture-only
+ * quiescence search before they are scored by {@link Evaluation}, so the
+ * search does not stop in the middle of an exchange. Results are kept in a
+ * {@link TranspositionTable}, so positions reached again through a different
+ * move order are not searched twice.
+ * <P>
+ * The search stops at a depth limit or a time limit, whichever comes first,
+ * and returns the best move of the deepest iteration it finished. A Search
+ * keeps its move buffers between calls and is not thread safe; to search with
+ * several threads, see {@link ParallelSearch}.
+ */
+public class Search {
+	/**
+	 * A score larger than any real score.
+	 */
+	public static final int INFINITY = 32000;
+	/**
+	 * The score of delivering mate now. Mate in n plies scores MATE - n, so the
+	 * search prefers the fastest mate and the slowest defeat.
+	 */
+	public static final int MATE = 31000;
+	/**
+	 * The deepest the search (including quiescence) ever goes.
+	 */
+	public static final int MAX_PLY = 64;
+
+	/**
+	 * How many nodes are searched between two looks at the clock.
+	 */
+	private static final int CLOCK_INTERVAL = 1024;
+
+	private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+	private final int[][] orderScores = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+	/**
+	 * Two quiet moves per ply that recently caused a cut-off, tried right after
+	 * the captures.
+	 */
+	private final int[][] killers = new int[MAX_PLY][2];
+
+	/**
+	 * The table size used when none is given, in MB.
+	 */
+	public static final int DEFAULT_TABLE_SIZE = 16;
+
+	private final TranspositionTable table;
+	private int depthLimit = MAX_PLY - 1;
+	private long timeLimit = 1000;
+	/**
+	 * The depth of the first iteration. Helper threads of a parallel search
+	 * start at different depths, so they do not all search the same tree.
+	 */
+	int startDepth = 1;
+	/**
+	 * Set by another thread to end the search early, or null if only the time
+	 * and depth limits apply.
+	 */
+	AtomicBoolean stopSignal;
+
+	private Position position;
+	private long deadline;
+	private boolean stopped;
+	private long nodes;
+	private int completedDepth;
+	private int bestMove;
+	private int bestScore;
+
+	/**
+	 * Creates a search with its own table of {@link #DEFAULT_TABLE_SIZE} MB.
+	 */
+	public Search() {
+		this(new TranspositionTable(DEFAULT_TABLE_SIZE));
+	}
+
+	/**
+	 * Creates a search that keeps its results in the given table.
+	 *
+	 * @param table the transposition table to use.
+	 */
+	public Search(TranspositionTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * Sets the deepest iteration the search runs.
+	 *
+	 * @param depth any integer between 1 and MAX_PLY - 1 inclusive.
+	 */
+	public void setDepthLimit(int depth) {
+		this.depthLimit = Math.max(1, Math.min(depth, MAX_PLY - 1));
+	}
+
+	/**
+	 * Sets how long a search may take. The first iteration always finishes, so
+	 * a move is found even with a tiny limit.
+	 *
+	 * @param millis the time limit in milliseconds, or 0 for no limit.
+	 */
+	public void setTimeLimit(long millis) {
+		this.timeLimit = millis;
+	}
+
+	/**
+	 * Searches the position for the side to move.
+	 *
+	 * @param position the position to search. Moves are made and unmade on it,
+	 *                 but it is left unchanged.
+	 * @return the best move found, or Move.NONE if the side to move has no legal
+	 *         move.
+	 */
+	public int search(Position position) {
+		table.newSearch();
+		return run(position);
+	}
+
+	/**
+	 * Runs the iterations of a search without starting a new table age, so that
+	 * the threads of a parallel search all store entries of the same age.
+	 */
+	int run(Position position) {
+		this.position = position;
+		this.deadline = timeLimit > 0 ? System.nanoTime() + timeLimit * 1_000_000 : Long.MAX_VALUE;
+		this.stopped = false;
+		this.nodes = 0;
+		this.completedDepth = 0;
+		this.bestMove = Move.NONE;
+		this.bestScore = 0;
+		for (int[] pair : killers) {
+			pair[0] = Move.NONE;
+			pair[1] = Move.NONE;
+		}
+		for (int depth = Math.min(startDepth, depthLimit); depth <= depthLimit; depth++) {
+			int score = searchRoot(depth);
+			if (stopped) {
+				break;
+			}
+			bestScore = score;
+			completedDepth = depth;
+			if (bestMove == Move.NONE || Math.abs(score) >= MATE - MAX_PLY) {
+				break; // no legal moves, or a forced mate was found
+			}
+		}
+		this.position = null;
+		return bestMove;
+	}
+
+	// -- Getters for the last search
+
+	public long nodes() {
+		return nodes;
+	}
+
+	public int completedDepth() {
+		return completedDepth;
+	}
+
+	/**
+	 * @return the best move of the last search, or Move.NONE.
+	 */
+	public int bestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * @return the score of the best move in centipawns, from the point of view of
+	 *         the side that was to move.
+	 */
+	public int score() {
+		return bestScore;
+	}
+
+	public TranspositionTable table() {
+		return table;
+	}
+
+	// -- Helpers
+
+	/**
+	 * Searches every root move, keeping the best one in {@link #bestMove}.
+	 */
+	private int searchRoot(int depth) {
+		int[] list = moves[0];
+		int count = MoveGenerator.generateLegal(position, position.sideToMove, list);
+		if (count == 0) {
+			return position.inCheck(position.sideToMove) ? -MATE : 0;
+		}
+		int first = bestMove;
+		if (first == Move.NONE) {
+			first = TranspositionTable.move(table.probe(position.key));
+		}
+		scoreMoves(list, count, 0, first);
+		int alpha = -INFINITY;
+		int best = Move.NONE;
+		for (int i = 0; i < count; i++) {
+			int move = pickNext(list, orderScores[0], i, count);
+			position.makeMove(move);
+			int score = -alphaBeta(depth - 1, 1, -INFINITY, -alpha);
+			position.unmakeMove(move);
+			if (stopped) {
+				return alpha;
+			}
+			if (score > alpha) {
+				alpha = score;
+				best = move;
+			}
+		}
+		bestMove = best;
+		table.store(position.key, best, alpha, depth, TranspositionTable.EXACT, 0);
+		return alpha;
+	}
+
+	private int alphaBeta(int depth, int ply, int alpha, int beta) {
+		if (depth <= 0 || ply >= MAX_PLY - 1) {
+			return quiescence(ply, alpha, beta);
+		}
+		if (countNode()) {
+			return 0;
+		}
+		if (position.halfmoveClock >= 100 || position.isRepetition()) {
+			return 0;
+		}
+		long entry = table.probe(position.key);
+		if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+			int score = TranspositionTable.score(entry, ply);
+			int bound = TranspositionTable.bound(entry);
+			if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+					|| (bound == TranspositionTable.UPPER && score <= alpha)) {
+				return score;
+			}
+		}
+		int originalAlpha = alpha;
+		int bestMove = Move.NONE;
+		int us = position.sideToMove;
+		boolean inCheck = position.inCheck(us);
+		if (inCheck) {
+			depth++; // look further when in check instead of stopping in a mating net
+		}
+		int[] list = moves[ply];
+		int count = MoveGenerator.generate(position, us, list);
+		scoreMoves(list, count, ply, TranspositionTable.move(entry));
+		int legal = 0;
+		for (int i = 0; i < count; i++) {
+			int move = pickNext(list, orderScores[ply], i, count);
+			position.makeMove(move);
+			if (position.inCheck(us)) {
+				position.unmakeMove(move);
+				continue;
+			}
+			legal++;
+			int score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+			position.unmakeMove(move);
+			if (stopped) {
+				return 0;
+			}
+			if (score > alpha) {
+				alpha = score;
+				bestMove = move;
+				if (score >= beta) {
+					storeKiller(move, ply);
+					table.store(position.key, move, beta, depth, TranspositionTable.LOWER, ply);
+					return beta;
+				}
+			}
+		}
+		if (legal == 0) {
+			return inCheck ? -MATE + ply : 0;
+		}
+		int bound = alpha > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+		table.store(position.key, bestMove, alpha, depth, bound, ply);
+		return alpha;
+	}
+
+	/**
+	 * Searches captures and promotions only, until the position is quiet. The
+	 * side to move may always "stand pat" and keep the static score instead of
+	 * capturing.
+	 */
+	private int quiescence(int ply, int alpha, int beta) {
+		if (countNode()) {
+			return 0;
+		}
+		int standPat = Evaluation.evaluate(position);
+		if (ply >= MAX_PLY - 1) {
+			return standPat;
+		}
+		if (standPat >= beta) {
+			return beta;
+		}
+		if (standPat > alpha) {
+			alpha = standPat;
+		}
+		int us = position.sideToMove;
+		int[] list = moves[ply];
+		int count = MoveGenerator.generate(position, us, list);
+		int tactical = 0;
+		for (int i = 0; i < count; i++) {
+			if (Move.isCapture(list[i]) || Move.promotion(list[i]) == Position.QUEEN) {
+				list[tactical++] = list[i];
+			}
+		}
+		scoreMoves(list, tactical, ply, Move.NONE);
+		for (int i = 0; i < tactical; i++) {
+			int move = pickNext(list, orderScores[ply], i, tactical);
+			position.makeMove(move);
+			if (position.inCheck(us)) {
+				position.unmakeMove(move);
+				continue;
+			}
+			int score = -quiescence(ply + 1, -beta, -alpha);
+			position.unmakeMove(move);
+			if (stopped) {
+				return 0;
+			}
+			if (score > alpha) {
+				alpha = score;
+				if (score >= beta) {
+					return beta;
+				}
+			}
+		}
+		return alpha;
+	}
+
+	/**
+	 * Counts a node and looks at the clock and the stop signal every
+	 * {@link #CLOCK_INTERVAL} nodes.
+	 *
+	 * @return true if the search has to stop.
+	 */
+	private boolean countNode() {
+		nodes++;
+		if ((nodes & (CLOCK_INTERVAL - 1)) == 0 && completedDepth > 0
+				&& (System.nanoTime() > deadline || (stopSignal != null && stopSignal.get()))) {
+			stopped = true;
+		}
+		return stopped;
+	}
+
+	/**
+	 * Gives every move an ordering score: the given best move (which may be
+	 * compact, as stored in the table) first, then
+	 * captures by most valuable victim and least valuable attacker, then
+	 * promotions, then the killer moves of this ply, then everything else.
+	 */
+	private void scoreMoves(int[] list, int count, int ply, int first) {
+		int[] scores = orderScores[ply];
+		for (int i = 0; i < count; i++) {
+			int move = list[i];
+			int score;
+			if (Move.compact(move) == Move.compact(first)) {
+				score = 1_000_000;
+			} else if (Move.isCapture(move)) {
+				int victim = Move.isEnPassant(move) ? Position.PAWN : Position.typeOf(position.mailbox[Move.to(move)]);
+				int attacker = Position.typeOf(position.mailbox[Move.from(move)]);
+				score = 100_000 + Evaluation.VALUES[victim] * 10 - attacker;
+			} else if (Move.promotion(move) != 0) {
+				score = 90_000 + Move.promotion(move);
+			} else if (move == killers[ply][0]) {
+				score = 80_000;
+			} else if (move == killers[ply][1]) {
+				score = 70_000;
+			} else {
+				score = 0;
+			}
+			scores[i] = score;
+		}
+	}
+
+	/**
+	 * Moves the best scoring move left in the list to index i and returns it.
+	 * Picking one move at a time is cheaper than sorting, since a cut-off often
+	 * comes after the first few moves.
+	 */
+	private static int pickNext(int[] list, int[] scores, int i, int count) {
+		int best = i;
+		for (int j = i + 1; j < count; j++) {
+			if (scores[j] > scores[best]) {
+				best = j;
+			}
+		}
+		int move = list[best];
+		int score = scores[best];
+		list[best] = list[i];
+		scores[best] = scores[i];
+		list[i] = move;
+		scores[i] = score;
+		return move;
+	}
+
+	private void storeKiller(int move, int ply) {
+		if (Move.isCapture(move) || killers[ply][0] == move) {
+			return;
+		}
+		killers[ply][1] = killers[ply][0];
+		killers[ply][0] = move;
+	}
+}
@@ -0,0 +1,33 @@
+package engine;
+
+/**
+ * Picks the best move an alpha-beta {@link Search} finds within its limits. The
+ * transposition table is kept from move to move, so a picker should be used
+ * for one game at a time.
+ */
+public class SearchPicker implements MovePicker {
+	private final Search search;
+
+	/**
+	 * Creates a picker.
+	 *
+	 * @param timeLimit  milliseconds per move, or 0 for no time limit.
+	 * @param depthLimit the deepest search in plies, at least 1.
+	 * @param tableSize  the transposition table size in MB, at least 1.
+	 */
+	public SearchPicker(long timeLimit, int depthLimit, int tableSize) {
+		search = new Search(new TranspositionTable(tableSize));
+		search.setTimeLimit(timeLimit);
+		search.setDepthLimit(depthLimit);
+	}
+
+	@Override
+	public int pickMove(Position position) {
+		return search.search(position);
+	}
+
+	@Override
+	public long nodes() {
+		return search.nodes();
+	}
+}
@@ -0,0 +1,169 @@
+package engine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A compact, fixed-size binary form of a {@link Position}, used for saved
+ * games. Every snapshot is exactly {@link #SIZE} bytes, so a saved game is
+ * loaded with one read and a file of snapshots can be indexed by arithmetic.
+ * <P>
+ * The layout, with multi-byte values big-endian, is:
+ *
+ * <pre>
+ *  0  2 bytes  magic "CS"
+ *  2  1 byte   format version
+ *  3  8 bytes  occupancy bitboard
+ * 11 16 bytes  one 4-bit piece index per occupied square, in square order,
+ *              the first square in the high half of a byte, zero padded
+ * 27  1 byte   side to move in bit 0, castling rights in bits 1-4
+ * 28  1 byte   en passant square, or 0xFF for none
+ * 29  2 bytes  halfmove clock
+ * 31  2 bytes  fullmove number
+ * 33  1 byte   flags for the caller, stored and returned unchanged
+ * </pre>
+ *
+ * A board can hold at most 32 pieces, so 16 bytes always hold the piece list.
+ */
+public final class Snapshot {
+	/**
+	 * The size in bytes of every snapshot.
+	 */
+	public static final int SIZE = 34;
+	/**
+	 * The format version written by {@link #write(Position, int, ByteBuffer)}.
+	 * Readers reject any other version.
+	 */
+	public static final int VERSION = 1;
+
+	private static final short MAGIC = ('C' << 8) | 'S';
+	private static final int NO_SQUARE = 0xFF;
+
+	private Snapshot() {
+	}
+
+	/**
+	 * Returns true if the bytes at the buffer's position start with the snapshot
+	 * magic. The buffer's position is not changed.
+	 *
+	 * @param in the buffer to look at.
+	 * @return true if a snapshot seems to start there.
+	 */
+	public static boolean isSnapshot(ByteBuffer in) {
+		return in.remaining() >= SIZE && in.getShort(in.position()) == MAGIC;
+	}
+
+	/**
+	 * Writes a position into a new array.
+	 *
+	 * @param position the position to save.
+	 * @param flags    a byte of the caller's own state, 0-255.
+	 * @return an array of {@link #SIZE} bytes.
+	 */
+	public static byte[] toBytes(Position position, int flags) {
+		byte[] bytes = new byte[SIZE];
+		write(position, flags, ByteBuffer.wrap(bytes));
+		return bytes;
+	}
+
+	/**
+	 * Writes a position at the buffer's position and advances it by
+	 * {@link #SIZE} bytes.
+	 *
+	 * @param position the position to save.
+	 * @param flags    a byte of the caller's own state, 0-255.
+	 * @param out      the buffer to write into.
+	 */
+	public static void write(Position position, int flags, ByteBuffer out) {
+		out.putShort(MAGIC);
+		out.put((byte) VERSION);
+		long occupied = position.occupied();
+		out.putLong(occupied);
+		int nibbles = 0;
+		int count = 0;
+		for (long rest = occupied; rest != 0; rest &= rest - 1) {
+			nibbles = nibbles << 4 | position.pieceAt(Long.numberOfTrailingZeros(rest));
+			if (++count % 2 == 0) {
+				out.put((byte) nibbles);
+				nibbles = 0;
+			}
+		}
+		if (count % 2 != 0) {
+			out.put((byte) (nibbles << 4));
+			count++;
+		}
+		for (; count < 32; count += 2) {
+			out.put((byte) 0);
+		}
+		out.put((byte) (position.sideToMove() | position.castling() << 1));
+		out.put((byte) (position.enPassant() < 0 ? NO_SQUARE : position.enPassant()));
+		out.putShort((short) position.halfmoveClock());
+		out.putShort((short) position.fullmoveNumber());
+		out.put((byte) flags);
+	}
+
+	/**
+	 * Replaces the contents of a position with a snapshot read from an array.
+	 *
+	 * @param position the position to overwrite.
+	 * @param bytes    an array holding a snapshot at its start.
+	 * @return the flags that were saved with the position.
+	 * @throws IllegalArgumentException if the bytes are not a valid snapshot.
+	 */
+	public static int read(Position position, byte[] bytes) {
+		return read(position, ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Replaces the contents of a position with a snapshot read at the buffer's
+	 * position, and advances the buffer by {@link #SIZE} bytes.
+	 *
+	 * @param position the position to overwrite.
+	 * @param in       the buffer to read from.
+	 * @return the flags that were saved with the position.
+	 * @throws IllegalArgumentException if the bytes are not a valid snapshot.
+	 */
+	public static int read(Position position, ByteBuffer in) {
+		if (in.remaining() < SIZE) {
+			throw new IllegalArgumentException("Snapshot needs " + SIZE + " bytes, found " + in.remaining());
+		}
+		if (in.getShort() != MAGIC) {
+			throw new IllegalArgumentException("Not a position snapshot");
+		}
+		int version = in.get() & 0xFF;
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported snapshot version " + version);
+		}
+		long occupied = in.getLong();
+		if (Long.bitCount(occupied) > 32) {
+			throw new IllegalArgumentException("Snapshot has more than 32 pieces");
+		}
+		position.clear();
+		int start = in.position();
+		int count = 0;
+		for (long rest = occupied; rest != 0; rest &= rest - 1) {
+			int b = in.get(start + count / 2) & 0xFF;
+			int piece = count % 2 == 0 ? b >>> 4 : b & 0xF;
+			if (piece > 11) {
+				throw new IllegalArgumentException("Bad piece index " + piece);
+			}
+			position.put(Position.colorOf(piece), Position.typeOf(piece), Long.numberOfTrailingZeros(rest));
+			count++;
+		}
+		in.position(start + 16);
+		if (position.pieces(Position.WHITE, Position.KING) == 0
+				|| position.pieces(Position.BLACK, Position.KING) == 0) {
+			throw new IllegalArgumentException("Both sides need a king");
+		}
+		int state = in.get() & 0xFF;
+		position.setSideToMove(state & 1);
+		position.setCastling(state >>> 1 & 0xF);
+		int enPassant = in.get() & 0xFF;
+		if (enPassant != NO_SQUARE && enPassant > 63) {
+			throw new IllegalArgumentException("Bad en passant square " + enPassant);
+		}
+		position.setEnPassant(enPassant == NO_SQUARE ? -1 : enPassant);
+		position.setHalfmoveClock(in.getShort() & 0xFFFF);
+		position.setFullmoveNumber(in.getShort() & 0xFFFF);
+		return in.get() & 0xFF;
+	}
+}
@@ -0,0 +1,320 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Endgame tablebases: the perfect result of every position with at most
+ * {@link #MAX_PIECES} pieces, kings included, looked up instead of searched.
+ * The tables are made by {@link TablebaseGenerator} and memory-mapped when
+ * first needed, so a probe is a few array reads.
+ * <P>
+ * There is one file per material signature, named after the pieces of the
+ * stronger side followed by the pieces of the weaker side, such as "KQK.tb" or
+ * "KRKB.tb". Positions with the stronger pieces on black are looked up with
+ * the colors swapped and the board flipped. After an 8-byte header, a table
+ * has one byte per position:
+ * <UL>
+ * <LI>0, the position is a draw.</LI>
+ * <LI>1 to 254, the position is mate in that value minus 1 plies with best
+ * play. An odd number of plies means the side to move mates, an even number
+ * that it gets mated; 1 means it is checkmated already.</LI>
+ * <LI>255, the position can not occur.</LI>
+ * </UL>
+ * Positions are indexed by the side to move and the square of every piece, in
+ * the order of the signature, with pieces of the same kind sorted by square.
+ * Only positions with the white king on files a to d are stored; the others are
+ * looked up mirrored. The tables ignore en passant captures, castling and the
+ * fifty-move rule.
+ */
+public class Tablebase {
+	/**
+	 * The most pieces, kings included, a position can have to be in a table.
+	 */
+	public static final int MAX_PIECES = 4;
+	/**
+	 * The directory the robot loads tables from, looked for in the working
+	 * directory like the images are.
+	 */
+	public static final String DEFAULT_DIRECTORY = "tablebases";
+	public static final String EXTENSION = ".tb";
+
+	// Probe results, besides the mate distances
+	public static final int NONE = -1;
+	public static final int DRAW = 0;
+	static final int INVALID = 255;
+
+	static final int HEADER_SIZE = 8;
+	static final int MAGIC = ('C' << 24) | ('T' << 16) | ('B' << 8) | '1';
+	/**
+	 * The piece letters from the strongest to the weakest, the order pieces are
+	 * listed in a signature.
+	 */
+	static final String ORDER = "KQRBNP";
+	private static final String LETTERS = "PNBRQK"; // indexed by piece type
+
+	private final Path directory;
+	/**
+	 * The mapped tables by signature. Signatures without a table map to an
+	 * empty buffer, so the file system is only asked once.
+	 */
+	private final ConcurrentHashMap<String, ByteBuffer> tables = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a tablebase reading tables from a directory. Tables are only opened
+	 * when a position needs them.
+	 *
+	 * @param directory the directory holding the .tb files.
+	 */
+	public Tablebase(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Opens {@link #DEFAULT_DIRECTORY} if there is one.
+	 *
+	 * @return the tablebase, or null if there is no tablebase directory.
+	 */
+	public static Tablebase openDefault() {
+		Path directory = Paths.get(DEFAULT_DIRECTORY);
+		return Files.isDirectory(directory) ? new Tablebase(directory) : null;
+	}
+
+	/**
+	 * Looks up a position. Thread safe.
+	 *
+	 * @param position any position, which is left unchanged.
+	 * @return DRAW, a mate distance between 1 and 254 (see the class comment), or
+	 *         NONE if the position has too many pieces or its table is missing.
+	 */
+	public int probe(Position position) {
+		long occupied = position.occupied();
+		int count = Long.bitCount(occupied);
+		if (count > MAX_PIECES) {
+			return NONE;
+		}
+		if (count == 2) {
+			return DRAW;
+		}
+		String white = side(position, Position.WHITE);
+		String black = side(position, Position.BLACK);
+		boolean swap = !isCanonical(white, black);
+		String signature = swap ? black + white : white + black;
+		ByteBuffer table = table(signature);
+		if (table.capacity() == 0) {
+			return NONE;
+		}
+		int[] squares = new int[count];
+		int n = 0;
+		for (int color : swap ? new int[] { Position.BLACK, Position.WHITE }
+				: new int[] { Position.WHITE, Position.BLACK }) {
+			for (int i = 0; i < ORDER.length(); i++) {
+				long bits = position.pieces(color, LETTERS.indexOf(ORDER.charAt(i)));
+				for (; bits != 0; bits &= bits - 1) {
+					int square = Long.numberOfTrailingZeros(bits);
+					squares[n++] = swap ? square ^ 56 : square;
+				}
+			}
+		}
+		int side = swap ? position.sideToMove() ^ 1 : position.sideToMove();
+		return table.get(HEADER_SIZE + (int) storedIndex(signature, side, squares)) & 0xFF;
+	}
+
+	/**
+	 * Picks the best move of a position with few enough pieces: the fastest mate
+	 * when winning, a move that keeps the draw when drawing and the slowest loss
+	 * when losing.
+	 *
+	 * @param position the current position, which is left unchanged.
+	 * @return the move, or Move.NONE if the position is not in the tables or has
+	 *         no legal moves.
+	 */
+	public int bestMove(Position position) {
+		if (probe(position) == NONE) {
+			return Move.NONE;
+		}
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateLegal(position, position.sideToMove(), moves);
+		int best = Move.NONE;
+		int bestScore = Integer.MIN_VALUE;
+		for (int i = 0; i < count; i++) {
+			position.makeMove(moves[i]);
+			int value = probe(position);
+			position.unmakeMove(moves[i]);
+			if (value == NONE) {
+				return Move.NONE; // a table the reply needs is missing
+			}
+			// the value is from the opponent's side, so a loss for them is best
+			int score = 0;
+			if (value != DRAW) {
+				int plies = value - 1;
+				score = plies % 2 == 0 ? 1000 - plies : -1000 + plies;
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				best = moves[i];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param value a probe result other than NONE.
+	 * @return true if the side to move mates with best play.
+	 */
+	public static boolean isWin(int value) {
+		return value != DRAW && value % 2 == 0;
+	}
+
+	/**
+	 * @param value a probe result other than NONE.
+	 * @return true if the side to move gets mated with best play.
+	 */
+	public static boolean isLoss(int value) {
+		return value != DRAW && value % 2 == 1;
+	}
+
+	/**
+	 * @param value a probe result that is a win or a loss.
+	 * @return the number of plies until mate with best play.
+	 */
+	public static int distance(int value) {
+		return value - 1;
+	}
+
+	// -- Indexing, shared with the generator
+
+	/**
+	 * Returns the letters of one side's pieces in signature order, such as "KRP".
+	 */
+	static String side(Position position, int color) {
+		StringBuilder letters = new StringBuilder(4);
+		for (int i = 0; i < ORDER.length(); i++) {
+			char letter = ORDER.charAt(i);
+			int pieces = Long.bitCount(position.pieces(color, LETTERS.indexOf(letter)));
+			for (int j = 0; j < pieces; j++) {
+				letters.append(letter);
+			}
+		}
+		return letters.toString();
+	}
+
+	/**
+	 * Returns true if the first side is at least as strong as the second, by
+	 * having more pieces or, with as many, stronger ones.
+	 */
+	static boolean isCanonical(String white, String black) {
+		if (white.length() != black.length()) {
+			return white.length() > black.length();
+		}
+		for (int i = 0; i < white.length(); i++) {
+			int order = ORDER.indexOf(white.charAt(i)) - ORDER.indexOf(black.charAt(i));
+			if (order != 0) {
+				return order < 0;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the piece type of each position in a signature.
+	 */
+	static int[] types(String signature) {
+		int[] types = new int[signature.length()];
+		for (int i = 0; i < types.length; i++) {
+			types[i] = LETTERS.indexOf(signature.charAt(i));
+		}
+		return types;
+	}
+
+	/**
+	 * Returns the color of each position in a signature, the second king
+	 * starting the black pieces.
+	 */
+	static int[] colors(String signature) {
+		int[] colors = new int[signature.length()];
+		int black = signature.indexOf('K', 1);
+		for (int i = black; i < colors.length; i++) {
+			colors[i] = Position.BLACK;
+		}
+		return colors;
+	}
+
+	/**
+	 * Returns the number of positions in a full table, before mirroring.
+	 */
+	static long fullSize(int pieces) {
+		return 2L << (6 * pieces);
+	}
+
+	/**
+	 * Returns the number of positions stored in a table file.
+	 */
+	static long storedSize(int pieces) {
+		return 2L * 32 << (6 * (pieces - 1));
+	}
+
+	/**
+	 * Returns the index of a position in a table file. The squares are mirrored
+	 * if the white king is on files e to h, and pieces of the same kind are put
+	 * in square order; the array is changed.
+	 */
+	static long storedIndex(String signature, int side, int[] squares) {
+		if ((squares[0] & 7) > 3) {
+			for (int i = 0; i < squares.length; i++) {
+				squares[i] ^= 7;
+			}
+		}
+		sortSamePieces(signature, squares);
+		long index = side * 32 + (squares[0] >> 3) * 4 + (squares[0] & 7);
+		for (int i = 1; i < squares.length; i++) {
+			index = index * 64 + squares[i];
+		}
+		return index;
+	}
+
+	/**
+	 * Sorts the squares of each run of equal letters in a signature, which are
+	 * the same kind of piece of the same side.
+	 */
+	static void sortSamePieces(String signature, int[] squares) {
+		for (int i = 1; i < squares.length; i++) {
+			for (int j = i; j > 0 && signature.charAt(j) == signature.charAt(j - 1) && signature.charAt(j) != 'K'
+					&& squares[j] < squares[j - 1]; j--) {
+				int square = squares[j];
+				squares[j] = squares[j - 1];
+				squares[j - 1] = square;
+			}
+		}
+	}
+
+	/**
+	 * Returns the mapped table of a signature, or an empty buffer if there is
+	 * none or it can not be read.
+	 */
+	private ByteBuffer table(String signature) {
+		return tables.computeIfAbsent(signature, name -> {
+			Path file = directory.resolve(name + EXTENSION);
+			if (!Files.isReadable(file)) {
+				return ByteBuffer.allocate(0);
+			}
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (channel.size() != HEADER_SIZE + storedSize(name.length()) || table.getInt(0) != MAGIC) {
+					System.out.println("Tablebase - " + file + " is not a valid table");
+					return ByteBuffer.allocate(0);
+				}
+				return table;
+			} catch (IOException e) {
+				System.out.println("Tablebase - could not open " + file + ": " + e.getMessage());
+				return ByteBuffer.allocate(0);
+			}
+		});
+	}
+}
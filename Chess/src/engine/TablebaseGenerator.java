@@ -0,0 +1,493 @@
+package engine;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes the {@link Tablebase} table of one material signature by retrograde
+ * analysis:
+ * <OL>
+ * <LI>Every position is set up once. Checkmates are lost in 0 plies and
+ * stalemates drawn. Captures and promotions lead into smaller or other tables,
+ * which are made first, so those moves are scored right away. Every other
+ * position remembers how many of its moves are not yet known to lose.</LI>
+ * <LI>Then, for n = 0, 1, 2..., every position decided in n plies is "unmoved"
+ * to find the positions that lead to it. If it is lost, they are won in n + 1
+ * plies. If it is won, they have one less move that saves them, and those with
+ * none left are lost in n + 1 plies.</LI>
+ * <LI>Whatever is still undecided when no more positions are found is a
+ * draw.</LI>
+ * </OL>
+ * Both passes split the positions into slices worked on by a thread pool. In
+ * the second pass several threads can reach the same position at once, so its
+ * bytes are updated with atomic compare-and-set and add.
+ * <P>
+ * Usage: {@code java engine.TablebaseGenerator <directory> <signature>...}
+ * where a signature is the pieces of the stronger side then the weaker side,
+ * such as KQK, KRK, KPK, KBNK or KQKR, or {@code all} for every table with
+ * up to four pieces.
+ */
+public final class TablebaseGenerator {
+	private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+	private static final int UNKNOWN = 0;
+	private static final int SLICES = 256;
+
+	private final Path directory;
+	private final ExecutorService pool;
+	private final Tablebase smaller;
+
+	// The table being made
+	private String signature;
+	private int[] types;
+	private int[] colors;
+	private int pieces;
+	/**
+	 * The value of each position, encoded as in a table file.
+	 */
+	private byte[] values;
+	/**
+	 * For undecided positions, the number of moves not yet known to lose.
+	 */
+	private byte[] counts;
+	/**
+	 * For undecided positions, the longest loss through a capture or promotion
+	 * in plies, or 0.
+	 */
+	private byte[] longest;
+	private final AtomicInteger deepest = new AtomicInteger();
+
+	/**
+	 * Creates a generator writing tables into a directory.
+	 *
+	 * @param directory the directory for the .tb files, created if missing.
+	 * @param threads   the number of threads, at least 1.
+	 */
+	public TablebaseGenerator(Path directory, int threads) {
+		this.directory = directory;
+		this.pool = Executors.newFixedThreadPool(threads);
+		this.smaller = new Tablebase(directory);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: TablebaseGenerator <directory> <signature>... | all");
+			System.out.println("Signatures: KQK, KRK, KPK, KBNK, KQKR...");
+			return;
+		}
+		List<String> signatures = new ArrayList<>();
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("all")) {
+				signatures.addAll(all());
+			} else {
+				signatures.add(args[i].toUpperCase());
+			}
+		}
+		TablebaseGenerator generator = new TablebaseGenerator(Paths.get(args[0]),
+				Runtime.getRuntime().availableProcessors());
+		try {
+			for (String signature : signatures) {
+				generator.generate(signature);
+			}
+		} finally {
+			generator.shutdown();
+		}
+	}
+
+	/**
+	 * Makes the table of a signature unless its file exists, making the tables
+	 * its captures and promotions lead to first.
+	 *
+	 * @param signature the pieces of both sides, such as "KRK" or "KBNK".
+	 * @throws IOException              if a table can not be written.
+	 * @throws IllegalArgumentException if the signature is malformed or has more
+	 *                                  than {@link Tablebase#MAX_PIECES} pieces.
+	 */
+	public void generate(String signature) throws IOException {
+		signature = normalize(signature);
+		if (signature.length() == 2 || Files.exists(file(signature))) {
+			return;
+		}
+		for (String next : successors(signature)) {
+			generate(next);
+		}
+		long start = System.nanoTime();
+		make(signature);
+		write();
+		System.out.printf("%s: %d positions, longest mate %d plies, %.1f s%n", signature,
+				Tablebase.storedSize(pieces), deepest.get(), (System.nanoTime() - start) / 1e9);
+		values = null;
+		counts = null;
+		longest = null;
+	}
+
+	/**
+	 * Stops the generator's threads.
+	 */
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	// -- Signatures
+
+	/**
+	 * Checks a signature and puts the stronger side first, such as "KKQ" to
+	 * "KQK".
+	 */
+	static String normalize(String signature) {
+		int black = signature.indexOf('K', 1);
+		if (!signature.startsWith("K") || black < 0 || signature.length() > Tablebase.MAX_PIECES
+				|| !signature.matches("K[QRBNP]*K[QRBNP]*")) {
+			throw new IllegalArgumentException("Bad signature: " + signature);
+		}
+		String white = sort(signature.substring(0, black));
+		String other = sort(signature.substring(black));
+		return Tablebase.isCanonical(white, other) ? white + other : other + white;
+	}
+
+	private static String sort(String side) {
+		char[] letters = side.toCharArray();
+		for (int i = 1; i < letters.length; i++) {
+			for (int j = i; j > 0 && Tablebase.ORDER.indexOf(letters[j]) < Tablebase.ORDER.indexOf(letters[j - 1]); j--) {
+				char letter = letters[j];
+				letters[j] = letters[j - 1];
+				letters[j - 1] = letter;
+			}
+		}
+		return new String(letters);
+	}
+
+	/**
+	 * Returns the signatures a capture or promotion can lead to.
+	 */
+	private static List<String> successors(String signature) {
+		List<String> next = new ArrayList<>();
+		for (int i = 0; i < signature.length(); i++) {
+			char letter = signature.charAt(i);
+			if (letter != 'K') {
+				next.add(signature.substring(0, i) + signature.substring(i + 1));
+			}
+			if (letter == 'P') {
+				for (char promotion : "QRBN".toCharArray()) {
+					next.add(signature.substring(0, i) + promotion + signature.substring(i + 1));
+				}
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Returns every signature with three or four pieces.
+	 */
+	private static List<String> all() {
+		String others = "QRBNP";
+		List<String> all = new ArrayList<>();
+		for (int i = 0; i < others.length(); i++) {
+			all.add("K" + others.charAt(i) + "K");
+			for (int j = i; j < others.length(); j++) {
+				all.add("K" + others.charAt(i) + others.charAt(j) + "K");
+				all.add(normalize("K" + others.charAt(i) + "K" + others.charAt(j)));
+			}
+		}
+		return all;
+	}
+
+	private Path file(String signature) {
+		return directory.resolve(signature + Tablebase.EXTENSION);
+	}
+
+	// -- Generation
+
+	private void make(String signature) {
+		this.signature = signature;
+		this.types = Tablebase.types(signature);
+		this.colors = Tablebase.colors(signature);
+		this.pieces = signature.length();
+		int size = (int) Tablebase.fullSize(pieces);
+		values = new byte[size];
+		counts = new byte[size];
+		longest = new byte[size];
+		deepest.set(0);
+
+		run(this::initialize);
+		for (int n = 0; n <= deepest.get() && n < 253; n++) {
+			int plies = n;
+			run((from, to) -> propagate(plies, from, to));
+		}
+	}
+
+	/**
+	 * Runs a task over every slice of the positions on the pool and waits for
+	 * all of them.
+	 */
+	private void run(SliceTask task) {
+		int size = values.length;
+		List<Future<?>> results = new ArrayList<>();
+		for (int i = 0; i < SLICES; i++) {
+			int from = (int) ((long) size * i / SLICES);
+			int to = (int) ((long) size * (i + 1) / SLICES);
+			results.add(pool.submit(() -> task.run(from, to)));
+		}
+		try {
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while making " + signature, e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Could not make " + signature, e.getCause());
+		}
+	}
+
+	private interface SliceTask {
+		void run(int from, int to);
+	}
+
+	/**
+	 * The first pass: finds the impossible positions and the mates, scores the
+	 * moves that leave the table and counts the rest.
+	 */
+	private void initialize(int from, int to) {
+		Position position = new Position();
+		int[] squares = new int[pieces];
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		for (int index = from; index < to; index++) {
+			if (!setUp(index, position, squares)) {
+				values[index] = (byte) Tablebase.INVALID;
+				continue;
+			}
+			int side = position.sideToMove();
+			int legal = MoveGenerator.generateLegal(position, side, moves);
+			if (legal == 0) {
+				values[index] = (byte) (position.inCheck(side) ? 1 : Tablebase.DRAW);
+				continue;
+			}
+			int remaining = legal;
+			int win = Integer.MAX_VALUE;
+			int loss = 0;
+			for (int i = 0; i < legal; i++) {
+				int move = moves[i];
+				if (!Move.isCapture(move) && Move.promotion(move) == 0) {
+					continue;
+				}
+				position.makeMove(move);
+				int value = smaller.probe(position);
+				position.unmakeMove(move);
+				if (value == Tablebase.NONE) {
+					throw new IllegalStateException("A table needed for " + signature + " is missing");
+				}
+				if (Tablebase.isLoss(value)) {
+					win = Math.min(win, Tablebase.distance(value) + 1);
+				} else if (Tablebase.isWin(value)) {
+					remaining--;
+					loss = Math.max(loss, Tablebase.distance(value) + 1);
+				}
+			}
+			if (win != Integer.MAX_VALUE) {
+				values[index] = (byte) (win + 1);
+				deepest.accumulateAndGet(win, Math::max);
+			} else if (remaining == 0) {
+				values[index] = (byte) (loss + 1);
+				deepest.accumulateAndGet(loss, Math::max);
+			} else {
+				counts[index] = (byte) remaining;
+				longest[index] = (byte) loss;
+			}
+		}
+	}
+
+	/**
+	 * The second pass for n plies: unmoves every position decided in n plies.
+	 */
+	private void propagate(int n, int from, int to) {
+		Position position = new Position();
+		int[] squares = new int[pieces];
+		int[] before = new int[pieces];
+		byte decided = (byte) (n + 1);
+		boolean lost = n % 2 == 0;
+		for (int index = from; index < to; index++) {
+			if (values[index] != decided || !setUp(index, position, squares)) {
+				continue;
+			}
+			int mover = position.sideToMove() ^ 1;
+			long occupied = position.occupied();
+			for (int p = 0; p < pieces; p++) {
+				if (colors[p] != mover) {
+					continue;
+				}
+				int target = squares[p];
+				for (long origins = origins(types[p], mover, target, occupied); origins != 0; origins &= origins - 1) {
+					int origin = Long.numberOfTrailingZeros(origins);
+					position.remove(target);
+					position.put(mover, types[p], origin);
+					// the side that just moved may not have left the other king in check
+					boolean legal = !position.isSquareAttacked(position.kingSquare(mover ^ 1), mover);
+					position.remove(origin);
+					position.put(mover, types[p], target);
+					if (!legal) {
+						continue;
+					}
+					System.arraycopy(squares, 0, before, 0, pieces);
+					before[p] = origin;
+					Tablebase.sortSamePieces(signature, before);
+					int previous = fullIndex(mover, before);
+					if (lost) {
+						markWin(previous, n + 1);
+					} else {
+						markMoveLost(previous, n + 1);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the squares a piece on the target square can have come from
+	 * without capturing or promoting.
+	 */
+	private static long origins(int type, int color, int target, long occupied) {
+		if (type != Position.PAWN) {
+			return Bitboards.attacks(type, color, target, occupied) & ~occupied;
+		}
+		int back = color == Position.WHITE ? 8 : -8;
+		int rank = target >> 3;
+		// a pawn never stands on the first rank, and one on the last has promoted
+		if (rank == 0 || rank == 7 || (color == Position.WHITE ? rank == 6 : rank == 1)) {
+			return 0;
+		}
+		long origins = 0;
+		int origin = target + back;
+		if ((occupied & Bitboards.bit(origin)) == 0) {
+			origins |= Bitboards.bit(origin);
+			int start = color == Position.WHITE ? 6 : 1;
+			if ((origin >> 3) + (color == Position.WHITE ? 1 : -1) == start
+					&& (occupied & Bitboards.bit(origin + back)) == 0) {
+				origins |= Bitboards.bit(origin + back);
+			}
+		}
+		return origins;
+	}
+
+	/**
+	 * The position has a move to a lost position, so it is won in the given
+	 * number of plies, unless it is already won faster.
+	 */
+	private void markWin(int index, int plies) {
+		while (true) {
+			int value = values[index] & 0xFF;
+			if (value == Tablebase.INVALID || (value != UNKNOWN && (!Tablebase.isWin(value)
+					|| Tablebase.distance(value) <= plies))) {
+				return;
+			}
+			if (BYTES.compareAndSet(values, index, (byte) value, (byte) (plies + 1))) {
+				deepest.accumulateAndGet(plies, Math::max);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * One more move of the position is known to lose. If none are left it is
+	 * lost, as slowly as its slowest losing move allows.
+	 */
+	private void markMoveLost(int index, int plies) {
+		if (values[index] != UNKNOWN) {
+			return;
+		}
+		int remaining = ((byte) BYTES.getAndAdd(counts, index, (byte) -1) & 0xFF) - 1;
+		if (remaining == 0) {
+			int loss = Math.max(plies, longest[index] & 0xFF);
+			BYTES.compareAndSet(values, index, (byte) UNKNOWN, (byte) (loss + 1));
+			deepest.accumulateAndGet(loss, Math::max);
+		}
+	}
+
+	/**
+	 * Sets up the position of a full index, with the pieces' squares in the
+	 * signature's order.
+	 *
+	 * @return false if the index is not a position that can occur: two pieces
+	 *         share a square, a pawn is on the first or last rank, pieces of the
+	 *         same kind are out of order or the side not to move is in check.
+	 */
+	private boolean setUp(int index, Position position, int[] squares) {
+		int rest = index;
+		for (int p = pieces - 1; p >= 0; p--) {
+			squares[p] = rest & 63;
+			rest >>>= 6;
+		}
+		int side = rest;
+		long occupied = 0;
+		for (int p = 0; p < pieces; p++) {
+			long bit = Bitboards.bit(squares[p]);
+			int rank = squares[p] >> 3;
+			if ((occupied & bit) != 0 || (types[p] == Position.PAWN && (rank == 0 || rank == 7))) {
+				return false;
+			}
+			if (p > 0 && signature.charAt(p) == signature.charAt(p - 1) && types[p] != Position.KING
+					&& squares[p] < squares[p - 1]) {
+				return false;
+			}
+			occupied |= bit;
+		}
+		position.clear();
+		for (int p = 0; p < pieces; p++) {
+			position.put(colors[p], types[p], squares[p]);
+		}
+		position.setSideToMove(side);
+		return !position.inCheck(side ^ 1);
+	}
+
+	private int fullIndex(int side, int[] squares) {
+		int index = side;
+		for (int p = 0; p < pieces; p++) {
+			index = index * 64 + squares[p];
+		}
+		return index;
+	}
+
+	/**
+	 * Writes the positions with the white king on files a to d.
+	 */
+	private void write() throws IOException {
+		Files.createDirectories(directory);
+		int stored = (int) Tablebase.storedSize(pieces);
+		int rest = 1 << (6 * (pieces - 1));
+		ByteBuffer table = ByteBuffer.allocate(Tablebase.HEADER_SIZE + stored);
+		table.putInt(Tablebase.MAGIC);
+		table.put((byte) pieces);
+		table.position(Tablebase.HEADER_SIZE);
+		for (int side = 0; side < 2; side++) {
+			for (int king = 0; king < 32; king++) {
+				int square = (king >> 2) * 8 + (king & 3);
+				int full = (side * 64 + square) * rest;
+				table.put(values, full, rest);
+			}
+		}
+		table.flip();
+		Path temporary = directory.resolve(signature + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (table.hasRemaining()) {
+				channel.write(table);
+			}
+		}
+		// only finished tables get their real name, so a stopped run is redone
+		Files.move(temporary, file(signature), StandardCopyOption.REPLACE_EXISTING);
+	}
+}
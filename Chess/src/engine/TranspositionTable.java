@@ -0,0 +1,247 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size hash table of search results, keyed by {@link Position#key()}.
+ * When the search reaches a position it has already searched through another
+ * move order, the stored result either ends the search of that position right
+ * away or at least supplies the best move to try first.
+ * <P>
+ * Entries live in a single long array, two longs each: the packed data and the
+ * data XORed with the key. A reader recomputes the key from both halves, so an
+ * entry torn by two threads writing at once simply fails to match and counts
+ * as a miss. No locks are taken, which lets several search threads share one
+ * table.
+ * <P>
+ * Entries are grouped in buckets of two. The first slot keeps the deepest
+ * result of the current search and is only replaced by a deeper or equally
+ * deep result, or once its result is left over from an earlier search. The
+ * second slot always takes the newest result, so recent positions are found
+ * even when the first slot is taken.
+ */
+public class TranspositionTable {
+	/**
+	 * The stored score is the exact score of the position.
+	 */
+	public static final int EXACT = 3;
+	/**
+	 * The search failed high: the real score is at least the stored score.
+	 */
+	public static final int LOWER = 1;
+	/**
+	 * The search failed low: the real score is at most the stored score.
+	 */
+	public static final int UPPER = 2;
+
+	private static final int ENTRY_LONGS = 2;
+	private static final int BUCKET_ENTRIES = 2;
+	private static final int BUCKET_BYTES = ENTRY_LONGS * BUCKET_ENTRIES * Long.BYTES;
+
+	/*
+	 * Layout of the data long: bits 0-15 the compact best move, 16-31 the score,
+	 * 32-39 the depth, 40-41 the bound and 42-49 the age.
+	 */
+	private static final int SCORE_SHIFT = 16;
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int AGE_SHIFT = 42;
+
+	private final long[] table;
+	private final int bucketMask;
+	private final int megabytes;
+	private int age;
+
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+
+	/**
+	 * Creates an empty table. The number of buckets is rounded down to a power
+	 * of two, so the table may use a little less memory than asked for.
+	 *
+	 * @param megabytes the memory budget in MB, at least 1.
+	 */
+	public TranspositionTable(int megabytes) {
+		if (megabytes < 1) {
+			throw new IllegalArgumentException("Table size must be at least 1 MB: " + megabytes);
+		}
+		long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / BUCKET_BYTES);
+		// a Java array holds at most 2^31 - 1 longs
+		buckets = Math.min(buckets, 1L << 28);
+		this.table = new long[(int) buckets * BUCKET_ENTRIES * ENTRY_LONGS];
+		this.bucketMask = (int) buckets - 1;
+		this.megabytes = megabytes;
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param key the Zobrist key of the position.
+	 * @return the packed entry, to be read with the static getters, or 0 if the
+	 *         position is not in the table.
+	 */
+	public long probe(long key) {
+		probes.increment();
+		int index = index(key);
+		for (int i = 0; i < BUCKET_ENTRIES; i++, index += ENTRY_LONGS) {
+			long data = table[index + 1];
+			if ((table[index] ^ data) == key && bound(data) != 0) {
+				hits.increment();
+				return data;
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * Stores the result of searching a position.
+	 *
+	 * @param key   the Zobrist key of the position.
+	 * @param move  the best move found, or Move.NONE.
+	 * @param score the score of the position, from the point of view of the side
+	 *              to move.
+	 * @param depth the depth the position was searched to.
+	 * @param bound EXACT, LOWER or UPPER.
+	 * @param ply   the distance from the root, used to store mate scores
+	 *              relative to this position rather than to the root.
+	 */
+	public void store(long key, int move, int score, int depth, int bound, int ply) {
+		stores.increment();
+		long data = Move.compact(move) | (long) (toTable(score, ply) & 0xFFFF) << SCORE_SHIFT
+				| (long) Math.min(Math.max(depth, 0), 255) << DEPTH_SHIFT | (long) bound << BOUND_SHIFT
+				| (long) age << AGE_SHIFT;
+		int first = index(key);
+		long stored = table[first + 1];
+		boolean samePosition = (table[first] ^ stored) == key;
+		int index = first + ENTRY_LONGS;
+		if (bound(stored) == 0 || samePosition || age(stored) != age || depth >= depth(stored)) {
+			if (samePosition && move == Move.NONE) {
+				// keep the best move of the earlier search of this position
+				data |= stored & 0xFFFF;
+			}
+			index = first;
+		}
+		table[index] = key ^ data;
+		table[index + 1] = data;
+	}
+
+	/**
+	 * Starts a new search. Entries from earlier searches stay usable, but are
+	 * the first to be replaced.
+	 */
+	public void newSearch() {
+		age = (age + 1) & 0xFF;
+	}
+
+	/**
+	 * Removes every entry and resets the statistics.
+	 */
+	public void clear() {
+		Arrays.fill(table, 0L);
+		age = 0;
+		resetStatistics();
+	}
+
+	// -- Entry getters
+
+	/**
+	 * @param entry a packed entry returned by {@link #probe(long)}.
+	 * @return the compact best move (see {@link Move#compact(int)}), or 0 if
+	 *         none was stored.
+	 */
+	public static int move(long entry) {
+		return (int) (entry & 0xFFFF);
+	}
+
+	/**
+	 * @param entry a packed entry returned by {@link #probe(long)}.
+	 * @param ply   the distance of the position from the root of the current
+	 *              search.
+	 * @return the stored score, with mate scores made relative to the root.
+	 */
+	public static int score(long entry, int ply) {
+		int score = (short) (entry >>> SCORE_SHIFT);
+		if (score >= Search.MATE - Search.MAX_PLY) {
+			return score - ply;
+		} else if (score <= -Search.MATE + Search.MAX_PLY) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	public static int depth(long entry) {
+		return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	public static int bound(long entry) {
+		return (int) (entry >>> BOUND_SHIFT) & 3;
+	}
+
+	// -- Statistics
+
+	public long probes() {
+		return probes.sum();
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long stores() {
+		return stores.sum();
+	}
+
+	/**
+	 * @return the fraction of probes that found their position, between 0 and 1.
+	 */
+	public double hitRate() {
+		long probed = probes.sum();
+		return probed == 0 ? 0.0 : (double) hits.sum() / probed;
+	}
+
+	public void resetStatistics() {
+		probes.reset();
+		hits.reset();
+		stores.reset();
+	}
+
+	/**
+	 * @return the number of entries the table holds.
+	 */
+	public int capacity() {
+		return table.length / ENTRY_LONGS;
+	}
+
+	/**
+	 * @return the memory budget the table was created with, in MB.
+	 */
+	public int megabytes() {
+		return megabytes;
+	}
+
+	// -- Helpers
+
+	private int index(long key) {
+		return ((int) (key >>> 32) & bucketMask) * BUCKET_ENTRIES * ENTRY_LONGS;
+	}
+
+	private static int age(long entry) {
+		return (int) (entry >>> AGE_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * Mate scores count plies from the root of the search. The table stores them
+	 * counted from the position itself, so they stay right when the position is
+	 * reached at a different distance from the root.
+	 */
+	private static int toTable(int score, int ply) {
+		if (score >= Search.MATE - Search.MAX_PLY) {
+			return score + ply;
+		} else if (score <= -Search.MATE + Search.MAX_PLY) {
+			return score - ply;
+		}
+		return score;
+	}
+}
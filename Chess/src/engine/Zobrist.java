@@ -0,0 +1,97 @@
+package engine;
+
+/**
+ * Random 64-bit keys for Zobrist hashing. The key of a position is the XOR of
+ * one key per piece on its square, one for the castling rights, one for the en
+ * passant file and one if black is to move. Playing a move only changes a few
+ * of those terms, so {@link Position} keeps its key up to date by XORing them
+ * in and out instead of hashing the whole board again.
+ * <P>
+ * The keys come from a fixed seed, so the same position has the same key in
+ * every run and keys may be written to files.
+ */
+public final class Zobrist {
+	/**
+	 * Keys for each piece on each square, indexed as [piece][square].
+	 */
+	static final long[][] PIECE_SQUARE = new long[12][64];
+	/**
+	 * Keys for each combination of the four castling rights.
+	 */
+	static final long[] CASTLING = new long[16];
+	/**
+	 * Keys for the file of the en passant square.
+	 */
+	static final long[] EN_PASSANT_FILE = new long[8];
+	/**
+	 * XORed into the key when black is to move.
+	 */
+	static final long SIDE;
+
+	/**
+	 * The state of the generator the keys are drawn from.
+	 */
+	private static long seed = 20220501L;
+
+	static {
+		for (int piece = 0; piece < 12; piece++) {
+			for (int sq = 0; sq < 64; sq++) {
+				PIECE_SQUARE[piece][sq] = next();
+			}
+		}
+		// each right gets its own key and the combinations XOR them together
+		long[] rights = new long[4];
+		for (int i = 0; i < 4; i++) {
+			rights[i] = next();
+		}
+		for (int mask = 0; mask < 16; mask++) {
+			for (int i = 0; i < 4; i++) {
+				if ((mask & (1 << i)) != 0) {
+					CASTLING[mask] ^= rights[i];
+				}
+			}
+		}
+		for (int file = 0; file < 8; file++) {
+			EN_PASSANT_FILE[file] = next();
+		}
+		SIDE = next();
+	}
+
+	private Zobrist() {
+	}
+
+	/**
+	 * Computes the key of a position from scratch. The position keeps its own
+	 * key up to date, so this is only needed to check that key.
+	 *
+	 * @param position any position.
+	 * @return the Zobrist key of the position.
+	 */
+	public static long compute(Position position) {
+		long key = 0L;
+		for (int sq = 0; sq < 64; sq++) {
+			if (position.mailbox[sq] != Position.EMPTY) {
+				key ^= PIECE_SQUARE[position.mailbox[sq]][sq];
+			}
+		}
+		key ^= CASTLING[position.castling];
+		if (position.enPassant >= 0) {
+			key ^= EN_PASSANT_FILE[position.enPassant & 7];
+		}
+		if (position.sideToMove == Position.BLACK) {
+			key ^= SIDE;
+		}
+		return key;
+	}
+
+	/**
+	 * Draws the next key from a splitmix64 generator, which is fast and spreads
+	 * its bits well.
+	 */
+	private static long next() {
+		long z = seed += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
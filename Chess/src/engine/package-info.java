@@ -0,0 +1,12 @@
+/**
+ * This package holds the headless chess rules engine. It represents a position
+ * with 64-bit bitboards, one long per piece type and color, along with the side
+ * to move, castling rights and the en passant square. None of its classes
+ * depend on SWT, so the rules can be used by the UI, the robots and any batch
+ * tooling alike.
+ * <P>
+ * Squares follow the same convention as {@link game.Chessboard}: a square index
+ * is y * 8 + x, so index 0 is the top-left corner (A8) and index 63 is the
+ * bottom-right corner (H1).
+ */
+package engine;
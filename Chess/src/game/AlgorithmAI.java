@@ -5,11 +5,198 @@
 
 package game;
 
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.widgets.Display;
+
+import engine.Move;
+import engine.OpeningBook;
+import engine.ParallelSearch;
+import engine.Position;
+import engine.Search;
+import engine.Tablebase;
+import engine.TranspositionTable;
+
+/**
+ * The "hard" robot. Instead of trying random pieces it searches the position
+ * with an iterative-deepening alpha-beta search and plays the best move it
+ * found within its time and depth limits. The search runs on every core at
+ * once (see {@link ParallelSearch}) and, when playing through the UI, off the
+ * UI thread so the window keeps responding while the robot thinks.
+ * <P>
+ * In the opening the robot plays from the opening book in
+ * {@link OpeningBook#DEFAULT_FILE}, if there is one, without searching at all.
+ * Whenever the book has no move for a position, the robot searches instead,
+ * and if moves are taken back into the book it plays from the book again. Once
+ * few enough pieces are left, it plays the perfect move from the endgame
+ * tables in {@link Tablebase#DEFAULT_DIRECTORY}, if they are there.
+ */
 public class AlgorithmAI extends Robot {
+	/**
+	 * How long the robot thinks about a move by default, in milliseconds.
+	 */
+	public static final long DEFAULT_TIME_LIMIT = 1000;
+	/**
+	 * How many threads the robot searches with by default: one per core.
+	 */
+	public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+	private ParallelSearch search;
+	/**
+	 * The thread the robot thinks on when asked for a move by the UI, created on
+	 * first use.
+	 */
+	private ExecutorService thinker;
+	/**
+	 * The opening book, or null if there is none.
+	 */
+	private OpeningBook book;
+	private Random random = new Random();
+	/**
+	 * The endgame tables, or null if there are none.
+	 */
+	private Tablebase tablebase;
 
+	/**
+	 * Constructor takes in color of robot, thinking for
+	 * {@link #DEFAULT_TIME_LIMIT} milliseconds per move.
+	 * 
+	 * @param color: color of robot
+	 */
 	public AlgorithmAI(String color) {
+		this(color, DEFAULT_TIME_LIMIT, Search.MAX_PLY - 1);
+	}
+
+	/**
+	 * Constructor takes in color of robot and how much it may search per move.
+	 * Whichever limit is reached first ends the search.
+	 * 
+	 * @param color:      color of robot
+	 * @param timeLimit:  milliseconds per move, or 0 for no time limit
+	 * @param depthLimit: the deepest search in plies, at least 1
+	 */
+	public AlgorithmAI(String color, long timeLimit, int depthLimit) {
+		this(color, timeLimit, depthLimit, Search.DEFAULT_TABLE_SIZE, DEFAULT_THREADS);
+	}
+
+	/**
+	 * Constructor takes in color of robot, how much it may search per move, how
+	 * much memory its transposition table may use and how many threads it
+	 * searches with.
+	 * 
+	 * @param color:      color of robot
+	 * @param timeLimit:  milliseconds per move, or 0 for no time limit
+	 * @param depthLimit: the deepest search in plies, at least 1
+	 * @param tableSize:  the transposition table size in MB, at least 1
+	 * @param threads:    the number of search threads, at least 1
+	 */
+	public AlgorithmAI(String color, long timeLimit, int depthLimit, int tableSize, int threads) {
 		super(color);
-		// TODO Auto-generated constructor stub
+		search = new ParallelSearch(threads, new TranspositionTable(tableSize));
+		search.setTimeLimit(timeLimit);
+		search.setDepthLimit(depthLimit);
+		book = OpeningBook.openDefault();
+		tablebase = Tablebase.openDefault();
+	}
+
+	/**
+	 * Searches a copy of the board's position and plays the best move found,
+	 * all on the calling thread.
+	 */
+	@Override
+	public void movePiece() {
+		int move = think(currentPosition());
+		if (move != Move.NONE) {
+			gameOver = boardUI.updateBoard(move);
+		}
+	}
+
+	/**
+	 * Searches a copy of the board's position on the robot's own thread, then
+	 * plays the move on the UI thread through display.asyncExec.
+	 * 
+	 * @param display: the UI's display
+	 * @param onMoved: called with 0 if the game goes on, 1 if white won, 2 if
+	 *                 black won, and 3 or more for a draw (see
+	 *                 Chessboard.determineCheckMate())
+	 */
+	@Override
+	public void requestMove(Display display, IntConsumer onMoved) {
+		Position position = currentPosition();
+		if (thinker == null) {
+			thinker = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "robot-" + getColor());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		thinker.execute(() -> {
+			int move = think(position);
+			if (display.isDisposed()) {
+				return;
+			}
+			try {
+				display.asyncExec(() -> {
+					gameOver = move == Move.NONE ? 0 : boardUI.updateBoard(move);
+					onMoved.accept(gameOver);
+				});
+			} catch (SWTException e) {
+				// the window was closed while the robot was thinking
+			}
+		});
+	}
+
+	/**
+	 * Stops the search threads.
+	 */
+	@Override
+	public void dispose() {
+		if (thinker != null) {
+			thinker.shutdownNow();
+		}
+		search.shutdown();
+	}
+
+	/**
+	 * Sets how long the robot may think about each move.
+	 * 
+	 * @param millis: milliseconds per move, or 0 for no time limit
+	 */
+	public void setTimeLimit(long millis) {
+		search.setTimeLimit(millis);
+	}
+
+	/**
+	 * Sets how many plies deep the robot may search.
+	 * 
+	 * @param depth: the deepest search in plies, at least 1
+	 */
+	public void setDepthLimit(int depth) {
+		search.setDepthLimit(depth);
+	}
+
+	/**
+	 * Plays from the book while it has moves and from the endgame tables once
+	 * they cover the position, otherwise runs the search.
+	 */
+	private int think(Position position) {
+		if (book != null) {
+			int move = book.pickMove(position, random);
+			if (move != Move.NONE) {
+				return move;
+			}
+			// out of book: search, but keep the book for moves taken back into it
+		}
+		if (tablebase != null && Long.bitCount(position.occupied()) <= Tablebase.MAX_PIECES) {
+			int move = tablebase.bestMove(position);
+			if (move != Move.NONE) {
+				return move;
+			}
+		}
+		return search.search(position);
 	}
-	
-}
\ No newline at end of file
+}
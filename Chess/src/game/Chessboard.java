@@ -1,28 +1,38 @@
 package game;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Canvas;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import displays.PawnPromotionDisplay;
+import engine.Game;
+import engine.Move;
+import engine.MoveGenerator;
+import engine.Position;
 import pieces.Bishop;
 import pieces.King;
 import pieces.Knight;
 import pieces.Pawn;
 import pieces.Piece;
+import pieces.PieceType;
 import pieces.Queen;
 import pieces.Rook;
 
 /**
  * Chessboard implementation. Holds onto a list of Tiles that represent the
  * tiles in the 8x8 board. These tiles hold onto the pieces that occupy them.
- * Draws itself by iterating through this list and calling their draw methods.
+ * Draws itself into an off-screen buffer, only redrawing the tiles that changed
+ * since the last paint, and copies the buffer onto the canvas.
  * Has a multitude of methods for different kinds of moves, standard and special
  * cases, and determining end game conditions.
  * 
@@ -37,6 +47,10 @@ public class Chessboard implements ChessboardUI {
 	 * The UI Display object
 	 */
 	private Display display;
+	/**
+	 * The canvas the board is drawn on
+	 */
+	private Canvas canvas;
 	/**
 	 * A 2D array containing {@link game.Tile} objects which represent a 7X7
 	 * chessboard.
@@ -68,11 +82,108 @@ public class Chessboard implements ChessboardUI {
 	 */
 	private boolean promotion = false;
 	/**
-	 * A List of Coordinate objects which represent the tiles the selected piece can
-	 * move to. It's worth noting that the selected piece Piece object is not
-	 * actually saved however.
+	 * The tiles the selected piece can move to, one bit per tile at y * 8 + x.
+	 * Worked out once when the piece is selected, so painting and clicking only
+	 * test bits. It's worth noting that the selected piece Piece object is not
+	 * actually saved however, only the square it was selected on.
+	 */
+	private long selectedMask;
+	/**
+	 * The square, y * 8 + x, of the piece {@link #selectedMask} belongs to, or -1
+	 * if no piece is selected.
+	 */
+	private int selectedFrom = -1;
+	/**
+	 * The headless bitboard model of the position on the board. It is kept in
+	 * sync with the Tile array on every move and answers all legality, check and
+	 * checkmate queries, so those never have to walk the Tile and Piece objects.
+	 */
+	private Position position = new Position();
+	/**
+	 * The white and black King objects, indexed by Position.WHITE and
+	 * Position.BLACK, so they never have to be searched for on the board.
+	 */
+	private King[] kings = new King[2];
+	/**
+	 * The square each king stands on, in the same order as {@link #kings}. Kept
+	 * up to date on every king move, castle and board rebuild.
+	 */
+	private int[] kingSquares = new int[2];
+	/**
+	 * The buffer the {@link MoveGenerator} writes packed moves into. It is reused
+	 * for every query so generating moves never allocates.
+	 */
+	private int[] moves = new int[MoveGenerator.MAX_MOVES];
+	/**
+	 * The names of the pieces a pawn can be promoted to, indexed by the bitboard
+	 * piece type.
+	 */
+	private static final String[] PROMOTION_NAMES = { null, "Knight", "Bishop", "Rook", "Queen" };
+	/**
+	 * The packed move {@link #updateBoard(int, int, Piece, String)} played last,
+	 * or Move.NONE.
+	 */
+	private int lastMove = Move.NONE;
+	/**
+	 * The packed moves played on the board, oldest first. The first
+	 * {@link #historyLength} have been played; the rest, up to
+	 * {@link #historyEnd}, were taken back and can be played again with
+	 * {@link #redo()}. The undo records and keys of the played moves are kept by
+	 * the {@link #position} itself.
+	 */
+	private int[] history = new int[128];
+	private int historyLength;
+	private int historyEnd;
+	/**
+	 * The empty board with its coordinates, drawn once, which plain tiles are
+	 * copied from.
+	 */
+	private Image background;
+	/**
+	 * The board as it was last drawn. A paint only redraws the tiles that changed
+	 * into it, then copies the area being painted onto the canvas.
+	 */
+	private Image buffer;
+	/**
+	 * What each square, indexed by y * 8 + x, showed when it was last drawn into
+	 * the {@link #buffer}, as returned by {@link #shownState(int)}, or -1 if it
+	 * has to be drawn.
+	 */
+	private int[] shown = new int[64];
+	private static final int SHOWN_HIGHLIGHTED = 16;
+	private static final int SHOWN_SELECTED = 32;
+	/**
+	 * Counts the changes to the {@link #position}, so a {@link LegalMoves} worked
+	 * out for an older position is never used.
 	 */
-	private List<Coordinate> selectedCoordinates;
+	private int positionVersion;
+	/**
+	 * The legal moves of the side to move, worked out on the {@link #precomputer}
+	 * thread as soon as the turn changes, or null before the first are done.
+	 */
+	private volatile LegalMoves legalMoves;
+	/**
+	 * The thread the legal moves of every new position are worked out on, made
+	 * when the first position is set up.
+	 */
+	private ExecutorService precomputer;
+
+	/**
+	 * The tiles each piece of the side to move can move to, worked out for one
+	 * version of the position.
+	 */
+	private static final class LegalMoves {
+		final int version;
+		/**
+		 * One mask per square the moves start from, as in {@link #selectedMask}.
+		 */
+		final long[] targets;
+
+		LegalMoves(int version, long[] targets) {
+			this.version = version;
+			this.targets = targets;
+		}
+	}
 
 	// UI Fields
 	Color SELECTED = new Color(51, 204, 51);
@@ -93,6 +204,7 @@ public class Chessboard implements ChessboardUI {
 	public Chessboard(Canvas canvas, Shell shell, Display display) {
 		this.shell = shell;
 		this.display = display;
+		this.canvas = canvas;
 		this.OUTLINE = display.getSystemColor(SWT.COLOR_BLACK);
 		this.boardFont = new Font(canvas.getDisplay(), "Tahoma", 15, SWT.BOLD);
 	}
@@ -135,6 +247,131 @@ public class Chessboard implements ChessboardUI {
 				board[y][x].setPiece(makePiece(x, y)); // set the piece using a helper function
 			}
 		}
+		rebuildPosition(true);
+	}
+
+	/**
+	 * Rebuilds the bitboard {@link #position} from the pieces currently on the
+	 * Tile array. Castling rights are derived from the kings' and rooks' moved
+	 * fields and the en passant square from a pawn that can be taken en passant
+	 * by the side to move. The king cache is refreshed as well. It must be called
+	 * whenever the tiles are filled in directly, such as after loading a saved
+	 * game.
+	 * 
+	 * @param whiteToMove true if it is white's turn, false if black's.
+	 */
+	public void rebuildPosition(boolean whiteToMove) {
+		position.clear();
+		kings[Position.WHITE] = null;
+		kings[Position.BLACK] = null;
+		for (int y = 0; y < 8; y++) {
+			for (int x = 0; x < 8; x++) {
+				Piece p = board[y][x].getPiece();
+				if (p != null) {
+					position.put(colorOf(p), typeOf(p), Position.square(x, y));
+					if (p instanceof King) {
+						cacheKing((King) p, x, y);
+					}
+				}
+			}
+		}
+		position.setSideToMove(whiteToMove ? Position.WHITE : Position.BLACK);
+		int castling = 0;
+		if (canCastle(7, 7, true)) {
+			castling |= Position.WHITE_KINGSIDE;
+		}
+		if (canCastle(0, 7, true)) {
+			castling |= Position.WHITE_QUEENSIDE;
+		}
+		if (canCastle(7, 0, false)) {
+			castling |= Position.BLACK_KINGSIDE;
+		}
+		if (canCastle(0, 0, false)) {
+			castling |= Position.BLACK_QUEENSIDE;
+		}
+		position.setCastling(castling);
+		// the opponent's pawn that just moved two spaces, if any
+		int row = whiteToMove ? 3 : 4;
+		for (int x = 0; x < 8; x++) {
+			Piece p = board[row][x].getPiece();
+			if (p instanceof Pawn && p.isWhite() != whiteToMove && ((Pawn) p).enPassantable) {
+				position.setEnPassant(Position.square(x, whiteToMove ? 2 : 5));
+			}
+		}
+		clearHistory();
+		positionChanged();
+	}
+
+	/**
+	 * Replaces every piece on the board with the pieces of a position, such as
+	 * one read from a saved game. Unlike {@link #rebuildPosition(boolean)}, the
+	 * position's castling rights, en passant square and move counters are kept
+	 * exactly, and the kings', rooks' and pawns' fields are set to agree with
+	 * them.
+	 * 
+	 * @param loaded the position to show. It is copied, not kept.
+	 */
+	public void setPosition(Position loaded) {
+		position.copyFrom(loaded);
+		clearHistory();
+		showPosition();
+	}
+
+	/**
+	 * Replaces every piece on the Tile array with the pieces of the bitboard
+	 * {@link #position}, after it was loaded or a move was taken back. The Piece
+	 * objects are new, with their fields set to agree with the position.
+	 */
+	private void showPosition() {
+		kings[Position.WHITE] = null;
+		kings[Position.BLACK] = null;
+		int castling = position.castling();
+		int enPassant = position.enPassant();
+		for (int y = 0; y < 8; y++) {
+			for (int x = 0; x < 8; x++) {
+				int square = Position.square(x, y);
+				int index = position.pieceAt(square);
+				if (index == Position.EMPTY) {
+					board[y][x].setPiece(null);
+					continue;
+				}
+				boolean white = Position.colorOf(index) == Position.WHITE;
+				Piece p = Piece.create(PieceType.values()[Position.typeOf(index)], white);
+				board[y][x].setPiece(p);
+				int row = white ? 7 : 0;
+				if (p instanceof King) {
+					int rights = white ? Position.WHITE_KINGSIDE | Position.WHITE_QUEENSIDE
+							: Position.BLACK_KINGSIDE | Position.BLACK_QUEENSIDE;
+					((King) p).moved = (castling & rights) == 0;
+					cacheKing((King) p, x, y);
+				} else if (p instanceof Rook) {
+					int right = 0;
+					if (y == row && x == 7) {
+						right = white ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+					} else if (y == row && x == 0) {
+						right = white ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+					}
+					((Rook) p).moved = (castling & right) == 0;
+				} else if (p instanceof Pawn) {
+					Pawn pawn = (Pawn) p;
+					pawn.firstMove = y == (white ? 6 : 1);
+					// the pawn that just moved two spaces stands beyond the en passant square
+					pawn.enPassantable = enPassant >= 0 && square == enPassant + (white ? 8 : -8);
+				}
+			}
+		}
+		positionChanged();
+	}
+
+	/**
+	 * Helper for {@link #rebuildPosition(boolean)}, returns true if an unmoved
+	 * king and an unmoved rook of the given color are on their starting tiles.
+	 */
+	private boolean canCastle(int rookX, int row, boolean white) {
+		Piece k = board[row][4].getPiece();
+		Piece r = board[row][rookX].getPiece();
+		return k instanceof King && k.isWhite() == white && !((King) k).moved && r instanceof Rook
+				&& r.isWhite() == white && !((Rook) r).moved;
 	}
 
 	/**
@@ -152,41 +389,41 @@ public class Chessboard implements ChessboardUI {
 
 		if (y == 0) { // black specialty pieces
 			if (x == 0 || x == 7) {
-				return (new Rook(pieceColor, shell));
+				return (new Rook(pieceColor));
 			} else if (x == 0 || x == 7) {
-				return (new Rook(pieceColor, shell));
+				return (new Rook(pieceColor));
 			} else if (x == 1 || x == 6) {
-				return (new Knight(pieceColor, shell));
+				return (new Knight(pieceColor));
 			} else if (x == 2 || x == 5) {
-				return (new Bishop(pieceColor, shell));
+				return (new Bishop(pieceColor));
 			} else if (x == 4) {
-				return (new King(pieceColor, shell));
+				return (new King(pieceColor));
 			} else if (x == 3) {
-				return (new Queen(pieceColor, shell));
+				return (new Queen(pieceColor));
 			}
 		} else if (y == 1) {
-			return (new Pawn(pieceColor, shell));
+			return (new Pawn(pieceColor));
 		} // black pawns
 
 		// true == white
 		pieceColor = !pieceColor;
 
 		if (y == 6) {
-			return (new Pawn(pieceColor, shell));
+			return (new Pawn(pieceColor));
 		} // white pawns
 		else if (y == 7) { // white specialty pieces
 			if (x == 0 || x == 7) {
-				return (new Rook(pieceColor, shell));
+				return (new Rook(pieceColor));
 			} else if (x == 0 || x == 7) {
-				return (new Rook(pieceColor, shell));
+				return (new Rook(pieceColor));
 			} else if (x == 1 || x == 6) {
-				return (new Knight(pieceColor, shell));
+				return (new Knight(pieceColor));
 			} else if (x == 2 || x == 5) {
-				return (new Bishop(pieceColor, shell));
+				return (new Bishop(pieceColor));
 			} else if (x == 4) {
-				return (new King(pieceColor, shell));
+				return (new King(pieceColor));
 			} else if (x == 3) {
-				return (new Queen(pieceColor, shell));
+				return (new Queen(pieceColor));
 			}
 		}
 
@@ -194,65 +431,145 @@ public class Chessboard implements ChessboardUI {
 	}
 
 	/**
-	 * The for loop to draw the board. The helper function 'Drawing' holds onto all
-	 * of the conditionals needed in the process.
+	 * Draws the board. Tiles whose piece, selection or highlight changed since
+	 * they were last drawn are redrawn into the off-screen buffer first; then
+	 * only the area being painted is copied from the buffer onto the canvas.
 	 * 
-	 * @param x:  row in board
-	 * @param y:  column in board
 	 * @param gc: event gc, let's us draw on the canvas
 	 */
 	@Override
 	public void draw(GC gc) {
-		for (int x = 0; x < 8; x++) {
-			for (int y = 0; y < 8; y++) {
-				drawing(x, y, gc);
+		if (buffer == null) {
+			createBuffers();
+		}
+		GC bufferGC = null;
+		for (int square = 0; square < 64; square++) {
+			int state = shownState(square);
+			if (state != shown[square]) {
+				if (bufferGC == null) {
+					bufferGC = new GC(buffer);
+				}
+				drawing(square, state, bufferGC);
+				shown[square] = state;
 			}
 		}
+		if (bufferGC != null) {
+			bufferGC.dispose();
+		}
+		Rectangle area = gc.getClipping().intersection(buffer.getBounds());
+		if (!area.isEmpty()) {
+			gc.drawImage(buffer, area.x, area.y, area.width, area.height, area.x, area.y, area.width, area.height);
+		}
 	}
 
 	/**
-	 * The helper function 'Drawing'. Need to make sure that tiles are drawn the
-	 * right color: if a piece is currently selected the tile is green, a tile is
-	 * cyan if it's a valid place for the currently selected piece to move, and if
-	 * neither of these are true, the original color stands. Also adds the board
-	 * coordinates on the side (A-H, 1-8).
-	 * 
-	 * @param x:  row in board
-	 * @param y:  column in board
-	 * @param gc: event gc, let's us draw on the canvas
+	 * Asks the canvas to repaint the tiles that changed since they were last
+	 * drawn, and nothing else. Called instead of canvas.redraw() after a piece is
+	 * selected or moved.
 	 */
-	private void drawing(int x, int y, GC gc) {
-		Tile t = board[x][y]; // tile in question
-		Piece p = t.getPiece(); // piece in question
-
-		if (p != null) { // if there's a piece, could be selected or taken by selected
-			if (p.isSelected()) {
-				t.draw(gc, SELECTED);
+	public void refresh() {
+		if (buffer == null) {
+			canvas.redraw();
+			return;
+		}
+		for (int square = 0; square < 64; square++) {
+			if (shownState(square) != shown[square]) {
+				Rectangle bounds = board[square / 8][square % 8].getBounds();
+				// the outline is drawn one pixel past the tile's width and height
+				canvas.redraw(bounds.x, bounds.y, bounds.width + 1, bounds.height + 1, false);
 			}
+		}
+	}
 
-			else if (selectedCoordinates != null && selectedCoordinates.contains(new Coordinate(y, x))) {
-				t.draw(gc, HIGHLIGHTED);
-			}
+	/**
+	 * Frees the images the board is drawn with.
+	 */
+	public void dispose() {
+		if (precomputer != null) {
+			precomputer.shutdownNow();
+		}
+		if (background != null) {
+			background.dispose();
+			buffer.dispose();
+			background = null;
+			buffer = null;
+		}
+	}
 
-			else {
-				t.draw(gc);
+	/**
+	 * Draws the empty board and its coordinates (A-H, 1-8) into the background
+	 * image, and starts the buffer as a copy of it with every tile still to be
+	 * drawn.
+	 */
+	private void createBuffers() {
+		int width = 8 * SQUARE_WIDTH + BOARD_COORD_OFFSET / 2 + 1;
+		int height = 8 * SQUARE_WIDTH + BOARD_COORD_OFFSET / 2;
+		background = new Image(display, width, height);
+		GC gc = new GC(background);
+		gc.setBackground(BG);
+		gc.fillRectangle(0, 0, width, height);
+		for (int x = 0; x < 8; x++) {
+			for (int y = 0; y < 8; y++) {
+				board[x][y].drawTile(gc);
+				// adding the board coordinates
+				if (x == 0 || y == 7) {
+					addBoardCoords(gc, x, y);
+				}
 			}
 		}
+		gc.dispose();
+		buffer = new Image(display, width, height);
+		gc = new GC(buffer);
+		gc.drawImage(background, 0, 0);
+		gc.dispose();
+		Arrays.fill(shown, -1);
+	}
 
-		else { // no piece but could be a valid place for currently selected to move to
-			if (selectedCoordinates != null && selectedCoordinates.contains(new Coordinate(y, x))) {
-				t.draw(gc, HIGHLIGHTED);
-			} else {
-				t.draw(gc);
-			}
+	/**
+	 * Returns what a square should show: its piece, and whether it holds the
+	 * selected piece or is a valid place for the selected piece to move to.
+	 * 
+	 * @param square: y * 8 + x
+	 * @return 0 for an empty plain tile, otherwise a different number for every
+	 *         piece and highlight.
+	 */
+	private int shownState(int square) {
+		int x = square % 8;
+		int y = square / 8;
+		Piece p = board[y][x].getPiece();
+		int state = p == null ? 0 : 1 + p.getType().ordinal() + (p.isWhite() ? 0 : 6);
+		if (p != null && p.isSelected()) {
+			return state | SHOWN_SELECTED;
+		}
+		if ((selectedMask >>> square & 1) != 0) {
+			return state | SHOWN_HIGHLIGHTED;
 		}
+		return state;
+	}
 
-		// adding the board coordinates
-		if (x == 0) {
-			addBoardCoords(gc, x, y);
+	/**
+	 * The helper function 'Drawing'. Need to make sure that tiles are drawn the
+	 * right color: if a piece is currently selected the tile is green, a tile is
+	 * cyan if it's a valid place for the currently selected piece to move, and if
+	 * neither of these are true, the original tile is copied from the background.
+	 * 
+	 * @param square: y * 8 + x
+	 * @param state:  what the square shows, see {@link #shownState(int)}
+	 * @param gc:     gc of the buffer
+	 */
+	private void drawing(int square, int state, GC gc) {
+		Tile t = board[square / 8][square % 8]; // tile in question
+
+		if ((state & SHOWN_SELECTED) != 0) {
+			t.drawTile(gc, SELECTED);
+		} else if ((state & SHOWN_HIGHLIGHTED) != 0) {
+			t.drawTile(gc, HIGHLIGHTED);
+		} else {
+			Rectangle r = t.getBounds();
+			gc.drawImage(background, r.x, r.y, r.width + 1, r.height + 1, r.x, r.y, r.width + 1, r.height + 1);
 		}
-		if (y == 7) {
-			addBoardCoords(gc, x, y);
+		if (t.hasPiece()) {
+			t.drawPiece(gc);
 		}
 	}
 
@@ -319,51 +636,96 @@ public class Chessboard implements ChessboardUI {
 		return board;
 	}
 
+	/**
+	 * Returns a copy of the bitboard position, which a search can play moves on
+	 * without touching the board.
+	 * 
+	 * @return a new Position holding the current position.
+	 */
+	public Position copyPosition() {
+		Position copy = new Position();
+		copy.copyFrom(position);
+		return copy;
+	}
+
 	// -- moving / piece methods
 
 	/**
 	 * This method returns a specific colored king piece so that it may be used for
-	 * check and checkmate calculations.
-	 * <P>
-	 * It could be improved by removing the need to iterate through the entire board
-	 * every time by saving the king's location or saving it as a field that has a
-	 * reference to the King object.
+	 * check and checkmate calculations. The kings are cached in {@link #kings}
+	 * whenever one is moved or the board is rebuilt, so this is a single array
+	 * lookup. Running with assertions enabled (java -ea) verifies the cache
+	 * against a full scan of the board on every call.
 	 *
 	 * @param getWhite, true if obtaining white king, false if obtaining black king.
 	 * @return the desired King piece.
 	 */
 	public King getKing(boolean getWhite) {
+		assert kingCacheValid() : "Chessboard.java - cached king squares do not match the board";
+		King king = kings[getWhite ? Position.WHITE : Position.BLACK];
+		if (king == null) {
+			// This should never be reached.
+			System.out.println("Chessboard.java - no king found, exiting...");
+			System.exit(403);
+		}
+		return king;
+	}
+
+	/**
+	 * This method returns the square a specific colored king stands on, in the
+	 * y * 8 + x form used by the bitboard {@link #position}.
+	 *
+	 * @param getWhite, true if obtaining white king, false if obtaining black king.
+	 * @return any integer between 0-63 inclusive.
+	 */
+	public int getKingSquare(boolean getWhite) {
+		return kingSquares[getWhite ? Position.WHITE : Position.BLACK];
+	}
+
+	/**
+	 * Debug helper that scans the whole board and checks that both cached kings
+	 * and their squares match what is actually on the tiles.
+	 *
+	 * @return true if the cache is correct, false if not.
+	 */
+	private boolean kingCacheValid() {
+		int found = 0;
 		for (int row = 0; row < 8; row++) {
 			for (int col = 0; col < 8; col++) {
-				if (board[row][col].getPiece() instanceof King) {
-					if (getWhite) {
-						if (board[row][col].getPiece().isWhite()) {
-							return (King) board[row][col].getPiece();
-						}
-					} else {
-						if (!board[row][col].getPiece().isWhite()) {
-							return (King) board[row][col].getPiece();
-						}
+				Piece p = board[row][col].getPiece();
+				if (p instanceof King) {
+					int color = colorOf(p);
+					if (kings[color] != p || kingSquares[color] != Position.square(col, row)
+							|| position.kingSquare(color) != kingSquares[color]) {
+						return false;
 					}
+					found++;
 				}
 			}
 		}
-		// This should never be reached.
-		System.out.println("Chessboard.java - no king found, exiting...");
-		System.exit(403);
-		return null;
+		return found == 2;
+	}
+
+	/**
+	 * Stores a king and the square it stands on in the king cache.
+	 *
+	 * @param king the King object.
+	 * @param x    any integer between 0-7 inclusive.
+	 * @param y    any integer between 0-7 inclusive.
+	 */
+	private void cacheKing(King king, int x, int y) {
+		kings[colorOf(king)] = king;
+		kingSquares[colorOf(king)] = Position.square(x, y);
 	}
 
 	/**
 	 * This method returns a boolean which indicates if the move to the desired x/y
-	 * coordinate is a legal move that the piece can made.
+	 * coordinate is a legal move that the piece can made. The question is
+	 * answered by the bitboard {@link #position}, so neither the Tile array nor
+	 * any Piece object is touched.
 	 * <P>
-	 * It can be improved by simply checking if the x/y coordinate is within the
-	 * {@link #selectedCoordinates} field, although this would require changes in
-	 * the Pawn classes' validMove() method as that method call sets state/move
-	 * specific booleans that would thus no longer be updated.
+	 * Castling is made by moving the king onto its own rook's tile.
 	 * 
-	 * @see pieces.Pawn#validMove(int, int, Tile[][])
 	 * @param x          any integer between 0-7 inclusive
 	 * @param y          any integer between 0-7 inclusive
 	 * 
@@ -372,8 +734,11 @@ public class Chessboard implements ChessboardUI {
 	 * @return true if the move is legal, false if not.
 	 */
 	public boolean validMoveMade(int x, int y, Piece piece, boolean whitesTurn) {
-		return piece.validMove(x, y, board) && validCheckMove(x, y, piece, whitesTurn);
-
+		int from = Position.square(piece.getX(), piece.getY());
+		if (from == selectedFrom) { // already worked out when the piece was selected
+			return isHighlighted(x, y);
+		}
+		return position.isLegal(Position.square(piece.getX(), piece.getY()), target(x, y, piece));
 	}
 
 	/**
@@ -393,118 +758,52 @@ public class Chessboard implements ChessboardUI {
 	 */
 	public void movePiece(int x, int y, Piece piece) {
 		board[piece.getY()][piece.getX()].setPiece(null);
-		System.out.println("MOVING" + piece + " to " + x + ',' + y);
 		piece.updateLocation(x, y);
 		if (board[y][x].getPiece() != null)
 			board[y][x].getPiece().killPiece(); // killing previous piece for robot class
 		board[y][x].setPiece(piece);
+		if (piece instanceof King) {
+			cacheKing((King) piece, x, y);
+		}
 
 	}
 
 	/**
-	 * This method is responsible for returning a piece (or null) that the player
-	 * wants to move.
-	 * <P>
-	 * This method implementation can be greatly improved by making changes in the
-	 * Piece subclasses via a revised setLocation() method which simply changes the
-	 * x/y field of the piece due to updateLocation() changes state specific
-	 * variables that thus must be saved and restored whenever this method gets
-	 * called.
+	 * This method returns true if moving the piece to x/y does not leave its own
+	 * king in check. The move is made and unmade on the bitboard
+	 * {@link #position} rather than on the Tile array, so no Piece state has to
+	 * be saved and restored and nothing is printed or allocated.
 	 * 
-	 * @see pieces.Pawn#updateLocation(int, int)
-	 * @see pieces.King#updateLocation(int, int)
-	 * @see pieces.Rook#updateLocation(int, int)
 	 * @param x         any integer between 0-7 inclusive
 	 * @param y         any integer between 0-7 inclusive
 	 * @param piece     the Piece object that is to be moved to x/y
 	 * @param getWhite, true if obtaining white king, false if obtaining black king.
-	 * @return true if the movement does not put/have the king in check, false if it
-	 *         does.
 	 * @return true if the move does not break any non-valid check moves, false if
 	 *         it does.
 	 */
 	public boolean validCheckMove(int x, int y, Piece piece, boolean getWhite) {
-		Pawn p = null;
-		boolean extra1 = false;
-		boolean extra2 = false;
-		boolean extra3 = false;
-		boolean isDead = false;
-		Rook r = null;
-		King k = null;
-		// Saving variables that would be overwritten due to move being made
-		if (piece instanceof Pawn) {
-			p = (Pawn) piece;
-			extra1 = p.firstMove;
-			extra2 = p.enPassantable;
-			extra3 = p.didEnPassant; // Likely not necessary but saving in case
-		} else if (piece instanceof Rook) {
-			r = (Rook) piece;
-			extra1 = r.moved;
-		} else if (piece instanceof King) {
-			k = (King) piece;
-			extra1 = k.moved;
-			extra2 = k.castlingMoveMade;
-		}
-		int oldX = piece.getX();
-		int oldY = piece.getY();
-		Piece oldPiece = board[y][x].getPiece();
-		if (oldPiece != null) {
-			isDead = oldPiece.isDead();
-		}
-		// Simulate a move
-		this.movePiece(x, y, piece);
-		determineKingCheckStatus(getWhite);
-		King newKing = getKing(getWhite);
-		boolean checked = newKing.checked;
-		// Restoring board to previous state
-		this.movePiece(oldX, oldY, piece);
-		if (piece instanceof Pawn) {
-			p.firstMove = extra1;
-			p.enPassantable = extra2;
-			p.didEnPassant = extra3; // Likely not necessary but saving in case
-			board[oldY][oldX].setPiece(p);
-		} else if (piece instanceof Rook) {
-			r.moved = extra1;
-			board[oldY][oldX].setPiece(r);
-		} else if (piece instanceof King) {
-			k.moved = extra1;
-			k.castlingMoveMade = extra2;
-			board[oldY][oldX].setPiece(k);
-		}
-		if (oldPiece != null) {
-			oldPiece.setDeadStatus(isDead);
-		}
-		board[y][x].setPiece(oldPiece);
-		determineKingCheckStatus(getWhite);
-		// Negate checked because if it's true, king is in check and thus not valid.
-		return !checked;
+		return position.keepsKingSafe(Position.square(piece.getX(), piece.getY()), target(x, y, piece));
 	}
 
 	/**
 	 * The purpose of this method is to determine if a king is now in check or not.
 	 * It is called within updateBoard(). The player's color is passed so that only
-	 * the desired player's king is analyzed. [made public for robot]
+	 * the desired player's king is analyzed. Rather than asking every enemy piece
+	 * whether it can move onto the king, the bitboard {@link #position} looks
+	 * outwards from the cached king square for attackers. [made public for robot]
 	 * 
 	 * @param getWhite, true if player is white, false if not
 	 * @return true if the king is in check, false if not.
 	 */
 	public boolean determineKingCheckStatus(boolean getWhite) {
 		King king = getKing(getWhite);
-		for (int row = 0; row < 8; row++) {
-			for (int col = 0; col < 8; col++) {
-				if (board[row][col].getPiece() != null && !(board[row][col].getPiece() instanceof King)) {
-					if (board[row][col].getPiece().validMove(king.getX(), king.getY(), board)) {
-						// update the check field and update array with newly updated king.
-						king.setCheck();
-						board[king.getY()][king.getX()].setPiece(king);
-						return true;
-					}
-				}
-			}
+		int enemy = getWhite ? Position.BLACK : Position.WHITE;
+		// update the check field of the king so castling is blocked while in check.
+		if (position.isSquareAttacked(getKingSquare(getWhite), enemy)) {
+			king.setCheck();
+			return true;
 		}
-		// update the check field and update array with newly updated king.
 		king.checkEvaded();
-		board[king.getY()][king.getX()].setPiece(king);
 		return false;
 	}
 
@@ -535,195 +834,332 @@ public class Chessboard implements ChessboardUI {
 		this.board[yCoord][xCoord].setPiece(null);
 	}
 
+	/**
+	 * This method writes every legal move of one color into the given buffer as
+	 * packed moves (see {@link Move}). [made public for robot]
+	 * 
+	 * @param white true for white's moves, false for black's.
+	 * @param moves a buffer of at least {@link MoveGenerator#MAX_MOVES} ints.
+	 * @return the number of moves written to the start of the buffer.
+	 */
+	public int generateLegalMoves(boolean white, int[] moves) {
+		return MoveGenerator.generateLegal(position, white ? Position.WHITE : Position.BLACK, moves);
+	}
+
+	/**
+	 * This method plays a packed move produced by
+	 * {@link #generateLegalMoves(boolean, int[])}, including its promotion piece.
+	 * [made public for robot]
+	 * 
+	 * @param move a legal packed move.
+	 * @return an integer, 0 if the game goes on, 1 if white won, 2 if black won,
+	 *         and 3 or more for a draw (see {@link #determineCheckMate(Piece)}).
+	 */
+	public int updateBoard(int move) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		Piece piece = board[from / 8][from % 8].getPiece();
+		String promotion = PROMOTION_NAMES[Move.promotion(move)];
+		return updateBoard(to % 8, to / 8, piece, promotion);
+	}
+
 	/**
 	 * This method is responsible for updating the board accordingly after a valid
 	 * move has been made. It returns a boolean which indicates if the game is over
-	 * or not, and if so, who won.
+	 * or not, and if so, who won. A promoted pawn's new piece is picked by the
+	 * player through a PawnPromotionDisplay.
 	 * 
 	 * @param xCoord        any integer between 0-7 inclusive.
 	 * @param yCoord        any integer between 0-7 inclusive.
 	 * @param selectedPiece the piece that is to be moved to xCoord, yCoord.
-	 * @return an integer, 0 if checkmate not met, 1 if white won, and 2 if black
-	 *         won.
+	 * @return an integer, 0 if the game goes on, 1 if white won, 2 if black won,
+	 *         and 3 or more for a draw (see {@link #determineCheckMate(Piece)}).
 	 */
 	public int updateBoard(int xCoord, int yCoord, Piece selectedPiece) {
-		int gameOver = 0;
-		// System.out.println("Chessboard.java - Moving..." + selectedPiece);
-		this.movePiece(xCoord, yCoord, selectedPiece);
-		// System.out.println("Chessboard.java - Piece updated! " + selectedPiece);
-		this.checkCastleMoveMade(selectedPiece);
-		this.checkEnPassantMoveMade(selectedPiece);
-		this.checkPromotion(selectedPiece);
+		return updateBoard(xCoord, yCoord, selectedPiece, null);
+	}
+
+	/**
+	 * This method is responsible for updating the board accordingly after a valid
+	 * move has been made. Castling and en passant are recognized from the
+	 * bitboard {@link #position} before it is updated, so the Tile array and the
+	 * position always end up holding the same pieces.
+	 * 
+	 * @param xCoord        any integer between 0-7 inclusive.
+	 * @param yCoord        any integer between 0-7 inclusive.
+	 * @param selectedPiece the piece that is to be moved to xCoord, yCoord.
+	 * @param promotion     the name of the piece a promoted pawn becomes, such as
+	 *                      "QUEEN" or "Knight", or null to let the player pick.
+	 * @return an integer, 0 if the game goes on, 1 if white won, 2 if black won,
+	 *         and 3 or more for a draw (see {@link #determineCheckMate(Piece)}).
+	 */
+	public int updateBoard(int xCoord, int yCoord, Piece selectedPiece, String promotion) {
+		int from = Position.square(selectedPiece.getX(), selectedPiece.getY());
+		int to = target(xCoord, yCoord, selectedPiece);
+		int move = position.move(from, to, Position.QUEEN);
+		this.movePiece(to % 8, to / 8, selectedPiece);
+		if (Move.isCastle(move)) {
+			this.checkCastleMoveMade((King) selectedPiece);
+		}
+		if (Move.isEnPassant(move)) {
+			this.checkEnPassantMoveMade((Pawn) selectedPiece);
+		}
+		Piece promoted = this.checkPromotion(selectedPiece, promotion);
+		if (promoted != null) {
+			move = position.move(from, to, typeOf(promoted));
+		}
+		position.makeMove(move);
+		lastMove = move;
+		if (historyLength == history.length) {
+			history = Arrays.copyOf(history, historyLength * 2);
+		}
+		history[historyLength++] = move;
+		historyEnd = historyLength; // a new move replaces the moves taken back
+		positionChanged();
 		if (this.determineKingCheckStatus(!selectedPiece.isWhite())) {
 			System.out.println("King in check!");
-			gameOver = this.determineCheckMate(selectedPiece);
 		}
-		;
-		return gameOver;
+		return this.determineCheckMate(selectedPiece);
 	}
 
 	/**
-	 * This method checks if the en passant move has been made so that the board may
-	 * be updated accordingly.
+	 * Takes back the last move played on the board. The position is restored
+	 * from its undo record and the tiles are set up again from it.
 	 * 
-	 * @param selectedPiece the piece that has been moved.
+	 * @return true if a move was taken back, false if none has been played.
 	 */
-	private void checkEnPassantMoveMade(Piece selectedPiece) {
-		if (selectedPiece instanceof Pawn) {
-			Pawn pawn = (Pawn) selectedPiece;
-			if (pawn.didEnPassant) {
-				int y = pawn.getY();
-				if (pawn.isWhite()) {
-					y++;
-				} else {
-					y--;
-				}
-				this.removePiece(selectedPiece.getX(), y);
-				// Sets didEnPassant to false so that board doesn't get updated incorrectly.
-				pawn.removeEnPassantMove();
-			}
+	public boolean undo() {
+		if (historyLength == 0) {
+			return false;
 		}
+		position.unmakeMove(history[--historyLength]);
+		lastMove = historyLength > 0 ? history[historyLength - 1] : Move.NONE;
+		showPosition();
+		return true;
 	}
 
 	/**
-	 * This method determines if the Piece object moved has castled and updates the
-	 * board accordingly if it did.
+	 * Plays the last move taken back with {@link #undo()} again.
 	 * 
-	 * @param piece the piece that has been moved.
+	 * @return true if a move was played again, false if there is none.
 	 */
-	private void checkCastleMoveMade(Piece piece) {
-		if (piece instanceof King) {
-			King k = (King) piece;
-			if (k.castlingMoveMade) {
-				this.removePiece(k.getX(), k.getY());
-				King newKing = new King(piece.isWhite(), shell);
-				newKing.moved = true; // Set to true so castling can't occur again
-				Rook newRook = new Rook(piece.isWhite(), shell);
-				newRook.moved = true; // Set to true so castling can't occur again
-				if (k.getX() == 7 && k.getY() == 7) {
-					board[7][5].setPiece(newRook);
-					board[7][6].setPiece(newKing);
-				} else if (k.getX() == 0 && k.getY() == 7) {
-					board[7][3].setPiece(newRook);
-					board[7][2].setPiece(newKing);
-				} else if (k.getX() == 0 && k.getY() == 0) {
-					board[0][3].setPiece(newRook);
-					board[0][2].setPiece(newKing);
-				} else if (k.getX() == 7 && k.getY() == 0) {
-					board[0][5].setPiece(newRook);
-					board[0][6].setPiece(newKing);
-				} else {
-					System.out.println(
-							"Chessboard.java - checkCastleMoveMade - this block should never be reached printing king status and exiting: "
-									+ k);
-					System.exit(403);
-				}
-				// Set castlingMoveMade to false so no bugs occur when piece is moved later.
-				k.castlingMoveMade = false;
-			}
+	public boolean redo() {
+		if (historyLength == historyEnd) {
+			return false;
 		}
+		lastMove = history[historyLength++];
+		position.makeMove(lastMove);
+		showPosition();
+		return true;
 	}
 
 	/**
-	 * This method determines if the game is over. Additionally, it returns an int
-	 * which indicates which player (if any) has won. [made public for robot]
+	 * @return the number of moves that can be taken back with {@link #undo()}.
+	 */
+	public int getHistoryLength() {
+		return historyLength;
+	}
+
+	/**
+	 * Forgets the moves played, when a new position is set up.
+	 */
+	private void clearHistory() {
+		historyLength = 0;
+		historyEnd = 0;
+		lastMove = Move.NONE;
+	}
+
+	/**
+	 * This method removes the pawn that was taken by an en passant move so that
+	 * the board is updated accordingly.
 	 * 
-	 * @param movedPiece, the piece that was moved this turn. Used to determine next
-	 *                    player's color.
-	 * @return an integer, 0 if checkmate not met, 1 if white won, and 2 if black
-	 *         won.
+	 * @param pawn the pawn that has been moved.
 	 */
-	public int determineCheckMate(Piece movedPiece) {
-		for (int row = 0; row <= 7; row++) {
-			for (int col = 0; col <= 7; col++) {
-				if (movedPiece.hasEnemyPiece(col, row, board)) {
-					Piece otherPlayerPiece = board[row][col].getPiece();
-					List<Coordinate> coordinates = otherPlayerPiece.generateMoves(board);
-					for (Coordinate coord : coordinates) {
-						if (validMoveMade(coord.getX(), coord.getY(), otherPlayerPiece, otherPlayerPiece.isWhite())) {
-							System.out.println("Chessboard.java - validMove possible, checkmate not met");
-							return 0;
-						}
-					}
-				}
-			}
+	private void checkEnPassantMoveMade(Pawn pawn) {
+		int y = pawn.getY();
+		if (pawn.isWhite()) {
+			y++;
+		} else {
+			y--;
+		}
+		if (board[y][pawn.getX()].hasPiece()) {
+			board[y][pawn.getX()].getPiece().killPiece(); // killing taken pawn for robot class
 		}
-		// If this part is reached no validMoveMade returned true, thus game over!
-		System.out.println("Chessboard.java - The opponent can not make any valid moves! Game over!");
-		// This section is used to determine which player has won.
-		if (movedPiece.getColor() == "White") {
-			return 1;
+		this.removePiece(pawn.getX(), y);
+		// Sets didEnPassant to false so that board doesn't get updated incorrectly.
+		pawn.removeEnPassantMove();
+	}
+
+	/**
+	 * This method moves the rook next to a king that has just castled. The king
+	 * has already been moved two tiles towards the rook.
+	 * 
+	 * @param k the king that has castled.
+	 */
+	private void checkCastleMoveMade(King k) {
+		int row = k.getY();
+		Piece rook;
+		if (k.getX() == 6) {
+			rook = board[row][7].getPiece();
+			this.movePiece(5, row, rook);
 		} else {
-			return 2;
+			rook = board[row][0].getPiece();
+			this.movePiece(3, row, rook);
+		}
+		// Set castlingMoveMade to false so no bugs occur when piece is moved later.
+		k.castlingMoveMade = false;
+	}
+
+	/**
+	 * This method determines if the game is over. Additionally, it returns an int
+	 * which indicates which player (if any) has won, or how the game was drawn:
+	 * by stalemate, the fifty-move rule, threefold repetition or insufficient
+	 * material. Repetitions are counted among the moves played on this board
+	 * since it was set up. [made public for robot]
+	 * 
+	 * @param movedPiece, the piece that was moved this turn. The position already
+	 *                    has the other player to move.
+	 * @return one of the engine.Game results: 0 if the game goes on, 1 if white
+	 *         won, 2 if black won, and 3 or more for a draw.
+	 */
+	public int determineCheckMate(Piece movedPiece) {
+		int result = Game.result(position, moves);
+		if (result != Game.ONGOING) {
+			System.out.println("Chessboard.java - Game over! Result " + result);
 		}
+		return result;
 	}
 
 	/**
-	 * This method promotes the pawn if it is on the opposite side of the board. It
-	 * opens a display that allows the user to choose between a Queen, Knight,
-	 * Bishop, or Rook, and updates the board accordingly with their selection.
+	 * This method promotes the pawn if it is on the opposite side of the board. If
+	 * no promotion piece is given, it opens a display that allows the user to
+	 * choose between a Queen, Knight, Bishop, or Rook, and updates the board
+	 * accordingly with their selection.
 	 * 
 	 * @param selectedPiece the Piece object that has been moved.
+	 * @param decision      the name of the piece to promote to, or null to ask.
+	 * @return the new piece if a promotion happened, null if not.
 	 */
-	private void checkPromotion(Piece selectedPiece) {
+	private Piece checkPromotion(Piece selectedPiece, String decision) {
 		if (selectedPiece instanceof Pawn) {
 			Pawn pawn = (Pawn) selectedPiece;
 			if (pawn.promotion()) {
-				String decision = new PawnPromotionDisplay().start(display);
-				Object piece = new Queen(selectedPiece.isWhite(), shell);
-				if (decision.equals("Rook")) {
-					piece = new Rook(selectedPiece.isWhite(), shell);
-				} else if (decision.equals("Knight")) {
-					piece = new Knight(selectedPiece.isWhite(), shell);
-				} else if (decision.equals("Bishop")) {
-					piece = new Bishop(selectedPiece.isWhite(), shell);
+				// only a promotion picked on this board is sent to the opponent
+				this.promotion = decision == null;
+				if (decision == null) {
+					decision = new PawnPromotionDisplay().start(display);
 				}
-				((Piece) piece).updateLocation(pawn.getX(), pawn.getX()); // TODO fix?
-				board[selectedPiece.getY()][selectedPiece.getX()].setPiece((Piece) piece);
-				this.promotion = true;
+				PieceType type = PieceType.fromName(decision);
+				if (type == null || type == PieceType.PAWN || type == PieceType.KING) {
+					type = PieceType.QUEEN;
+				}
+				Piece piece = Piece.create(type, selectedPiece.isWhite());
+				piece.updateLocation(pawn.getX(), pawn.getY());
+				board[selectedPiece.getY()][selectedPiece.getX()].setPiece(piece);
+				return piece;
 			}
 		}
+		return null;
 	}
 
 	/**
 	 * This method highlights the possible moves that a piece may be moved onto and
-	 * saves them to the {@link #selectedCoordinates} field.
+	 * saves them to the {@link #selectedMask} field. The moves of the side to move
+	 * have usually been worked out in the background already (see
+	 * {@link #positionChanged()}), so selecting a piece is one array lookup. If
+	 * they are not done yet, or the piece is not the side to move's, they are
+	 * worked out here instead.
 	 * 
 	 * @param selectedPiece the Piece object that may be moved by the player.
 	 */
 	public void highlightCoordinates(Piece selectedPiece) {
-		selectedCoordinates = selectedPiece.generateMoves(board);
-		filterCheckMoves(selectedPiece, selectedCoordinates);
+		int from = Position.square(selectedPiece.getX(), selectedPiece.getY());
+		int color = colorOf(selectedPiece);
+		LegalMoves legal = legalMoves;
+		if (legal == null || legal.version != positionVersion || color != position.sideToMove()) {
+			legal = new LegalMoves(positionVersion, targets(position, color, moves));
+			if (color == position.sideToMove()) {
+				legalMoves = legal;
+			}
+		}
+		selectedMask = legal.targets[from];
+		selectedFrom = from;
 	}
 
 	/**
-	 * This method filters non-valid check related moves from a list of coordinates
-	 * that a piece could potentially move to. It does so by calling
-	 * {@link Chessboard#validCheckMove(int, int, Piece, boolean)} and is called in
-	 * the {@link Chessboard#highlightCoordinates(Piece)} method.
-	 * <P>
-	 * Currently it only filters the {@link Chessboard#selectedCoordinates} List,
-	 * however it could easily be repurposed to filter all generateMove() methods.
-	 * 
-	 * @param piece       the Piece object that is to be moved.
-	 * @param coordinates a List of Coordinate objects that represent possible moves
-	 *                    piece can move to.
-	 */
-	private void filterCheckMoves(Piece piece, List<Coordinate> coordinates) {
-		for (int i = 0; i < selectedCoordinates.size(); i++) {
-			Coordinate c = selectedCoordinates.get(i);
-			if (!validCheckMove(c.x, c.y, piece, piece.isWhite())) {
-				selectedCoordinates.remove(i);
-				i--;
+	 * Called whenever the {@link #position} changes. Starts working out the legal
+	 * moves of the side to move on the {@link #precomputer} thread, on a copy of
+	 * the position, while the player is still looking at the board.
+	 */
+	private void positionChanged() {
+		int version = ++positionVersion;
+		Position copy = copyPosition();
+		if (precomputer == null) {
+			precomputer = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "legal-moves");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		precomputer.execute(() -> {
+			long[] targets = targets(copy, copy.sideToMove(), new int[MoveGenerator.MAX_MOVES]);
+			// the jobs run in order, so a newer position's moves are never replaced
+			legalMoves = new LegalMoves(version, targets);
+		});
+	}
+
+	/**
+	 * Works out the tiles every piece of a color can legally move to, from one
+	 * {@link MoveGenerator} pass. Castling is shown on the rook's tile, where the
+	 * player clicks to castle, and a promotion needs only one tile.
+	 * 
+	 * @param position the position.
+	 * @param color    Position.WHITE or Position.BLACK.
+	 * @param buffer   a buffer of at least {@link MoveGenerator#MAX_MOVES} ints.
+	 * @return one mask of target tiles, at y * 8 + x, per square the moves start
+	 *         from.
+	 */
+	private static long[] targets(Position position, int color, int[] buffer) {
+		long[] targets = new long[64];
+		int count = MoveGenerator.generateLegal(position, color, buffer);
+		for (int i = 0; i < count; i++) {
+			int move = buffer[i];
+			int from = Move.from(move);
+			int to = Move.to(move);
+			int x = to % 8;
+			if (Move.isCastle(move)) {
+				x = to > from ? 7 : 0;
 			}
+			targets[from] |= 1L << (to / 8 * 8 + x);
 		}
+		return targets;
 	}
 
 	/**
-	 * Un-highlights possible moves by setting selectedCoordinates to null.
+	 * Un-highlights possible moves by clearing the selectedMask.
 	 */
 	public void unhighlightCoordinates() {
-		selectedCoordinates = null;
+		selectedMask = 0;
+		selectedFrom = -1;
+	}
+
+	/**
+	 * Returns true if x/y is highlighted, a tile the selected piece can move to.
+	 * 
+	 * @param x any integer between 0 and 7 inclusive.
+	 * @param y any integer between 0 and 7 inclusive.
+	 * @return true if the tile's bit is set in the selectedMask.
+	 */
+	public boolean isHighlighted(int x, int y) {
+		return (selectedMask >>> (y * 8 + x) & 1) != 0;
+	}
+
+	/**
+	 * @return the tiles the selected piece can move to, one bit per tile at
+	 *         y * 8 + x, or 0 if no piece is selected.
+	 */
+	public long getHighlightMask() {
+		return selectedMask;
 	}
 
 	/**
@@ -737,11 +1173,20 @@ public class Chessboard implements ChessboardUI {
 		return board[y][x];
 	}
 
+	/**
+	 * Returns the move last played through the Tile array, with its promotion
+	 * piece, as it was played on the bitboard position.
+	 * 
+	 * @return a packed move, or Move.NONE if no move has been played.
+	 */
+	public int getLastMove() {
+		return lastMove;
+	}
+
 	/**
 	 * This method is used to determine if promotion has occurred on the board. It
-	 * is used so that an opponent is not able to pick the enemies piece. If a
-	 * player is playing with a robot however, they are able to choose what piece
-	 * the robot gets.
+	 * is used so that an opponent is not able to pick the enemies piece. A robot
+	 * picks its own promotion piece as part of the move it plays.
 	 * 
 	 * @return true if promotion has occurred, false if not.
 	 */
@@ -753,6 +1198,45 @@ public class Chessboard implements ChessboardUI {
 		return false;
 	}
 
+	/**
+	 * Converts a tile the player moved a piece onto into the destination square
+	 * used by the {@link #position}. The only difference is castling: the player
+	 * moves the king onto its own rook, while the position moves the king two
+	 * tiles towards that rook.
+	 * 
+	 * @param x     any integer between 0-7 inclusive.
+	 * @param y     any integer between 0-7 inclusive.
+	 * @param piece the Piece object that is to be moved to x/y.
+	 * @return the destination square index.
+	 */
+	private int target(int x, int y, Piece piece) {
+		if (piece instanceof King && piece.getX() == 4 && y == piece.getY() && (x == 0 || x == 7)) {
+			x = x == 7 ? 6 : 2;
+		}
+		return Position.square(x, y);
+	}
+
+	/**
+	 * Returns the bitboard color constant of a piece.
+	 * 
+	 * @param piece any Piece object.
+	 * @return Position.WHITE or Position.BLACK.
+	 */
+	private static int colorOf(Piece piece) {
+		return piece.isWhite() ? Position.WHITE : Position.BLACK;
+	}
+
+	/**
+	 * Returns the bitboard piece type constant of a piece.
+	 * 
+	 * @param piece any Piece object.
+	 * @return Position.PAWN through Position.KING.
+	 */
+	private static int typeOf(Piece piece) {
+		// PieceType is declared in the same order as the Position constants
+		return piece.getType().ordinal();
+	}
+
 	/**
 	 * This is a debug method used to print the current state of the board in text
 	 * form, although it can be improved via better formatting.
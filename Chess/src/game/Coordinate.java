@@ -1,20 +1,55 @@
 package game;
 
+/**
+ * An immutable x/y pair naming a tile. The 64 tiles of the board each have one
+ * shared Coordinate, handed out by {@link #of(int, int)}, so generating moves
+ * does not allocate; coordinates off the board are still made on demand.
+ */
 public class Coordinate {
-	int x;
-	int y;
-	char[] bottom = {'A','B','C','D','E','F','G','H','?'};
-	char[] side = {'8','7','6','5','4','3','2','1','?'};
+	final int x;
+	final int y;
+	private static final char[] bottom = {'A','B','C','D','E','F','G','H','?'};
+	private static final char[] side = {'8','7','6','5','4','3','2','1','?'};
+	private static final Coordinate[] squares = new Coordinate[64];
+	static {
+		for (int square = 0; square < 64; square++) {
+			squares[square] = new Coordinate(square % 8, square / 8);
+		}
+	}
+	
 	public Coordinate(int x, int y) {
 		this.x = x;
 		this.y = y;
 	}
+	
+	/**
+	 * Returns the shared Coordinate of a tile.
+	 * 
+	 * @param x any integer, column of the tile
+	 * @param y any integer, row of the tile
+	 * @return the interned Coordinate if x/y is on the board, a new one if not.
+	 */
+	public static Coordinate of(int x, int y) {
+		if ((x | y) >>> 3 == 0) {
+			return squares[y * 8 + x];
+		}
+		return new Coordinate(x, y);
+	}
+	
 	public int getX() {
 		return x;
 	}
 	public int getY() {
 		return y;
 	}
+	
+	/**
+	 * @return y * 8 + x, the tile's bit in a 64-bit mask of the board.
+	 */
+	public int getSquare() {
+		return y * 8 + x;
+	}
+	
 	public String toString() {
 		return "(" + bottom[x] + side[y] + ")";
 	}
@@ -28,4 +63,9 @@ public class Coordinate {
 		return false;
 		
 	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * x + y;
+	}
 }
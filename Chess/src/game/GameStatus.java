@@ -8,8 +8,13 @@ package game;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FilenameFilter;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 import org.eclipse.swt.SWT;
@@ -29,6 +34,9 @@ import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.Text;
 
+import engine.Fen;
+import engine.Position;
+import engine.Snapshot;
 import pieces.Bishop;
 import pieces.King;
 import pieces.Knight;
@@ -39,6 +47,16 @@ import pieces.Rook;
 
 public class GameStatus {
 	
+	/**
+	 * Bits of the snapshot flags byte holding the turn booleans
+	 */
+	private static final int YOUR_TURN = 1, WHITES_TURN = 2;
+	
+	/**
+	 * The ending of the files binary snapshots are saved in
+	 */
+	private static final String SNAPSHOT_EXTENSION = ".bin";
+	
 	Shell parent;
 	String fileName;
 	/**
@@ -208,90 +226,153 @@ public class GameStatus {
 	}
 	
 	/**
-	 * Accepts a .txt file containing board data.
-	 * Writes the chess board data to a .txt file specified by the player.
+	 * Writes the game to the file specified by the player.
 	 * FILE FORMAT:
-	 * 		COLOR PIECE (X,Y)
-	 * EXAMPLE:
-	 * 		BLACK PAWN (1,1)
+	 * 		a file ending in .fen holds one line of FEN text, a file ending in
+	 * 		.bin holds a binary {@link Snapshot} of Snapshot.SIZE bytes. Both keep
+	 * 		the castling rights, en passant square and move counters. Any other
+	 * 		name, such as an old .txt game, is saved as a snapshot under the same
+	 * 		name ending in .bin instead.
+	 * The turn booleans are stored in the snapshot's flags byte.
 	 * 
-	 * @param board - 8X8 2D board containing the Tiles and Pieces
+	 * @param position - the position on the board, see Chessboard.copyPosition()
 	 * @param yourTurn - boolean, the turn of this laptop's owner
 	 * @param whitesTurn - boolean, the white's turn
 	 */
-	public void saveGame(Tile[][]board, boolean yourTurn, boolean whitesTurn) {
-		if(fileName.length() == 0 || !fileName.contains(".txt")) {return;}
+	public void saveGame(Position position, boolean yourTurn, boolean whitesTurn) {
+		if(!hasValidFileName()) {return;}
+		if(!isFenFile() && !isSnapshotFile()) {
+			// binary snapshots never go into text files
+			int dot = fileName.lastIndexOf('.');
+			fileName = fileName.substring(0, dot) + SNAPSHOT_EXTENSION;
+		}
 		checkForSavedGamesFolder();
-		PrintWriter writer;
+		Path path = Paths.get("Saved Games", fileName);
 		
 		try {
-			writer = new PrintWriter("Saved Games/" + fileName);
-			
-			// storing the player turn info
-			// so that when the game is loaded, the program knows which  player
-			// will play first.
-			writer.write("yourTurn " + yourTurn + "\n");
-			writer.write("whitesTurn " + whitesTurn + "\n");
-			for(int y=0; y<8; y++) {
-				for(int x=0; x<8; x++) {
-					Tile t = board[y][x];
-					Piece piece = t.getPiece();
-					if(piece != null) {
-						writer.write(piece + "\n");
-					}
-				}
+			if(isFenFile()) {
+				Files.write(path, (Fen.write(position) + "\n").getBytes(StandardCharsets.US_ASCII));
+			}
+			else {
+				// storing the player turn info
+				// so that when the game is loaded, the program knows which  player
+				// will play first.
+				int flags = (yourTurn ? YOUR_TURN : 0) | (whitesTurn ? WHITES_TURN : 0);
+				Files.write(path, Snapshot.toBytes(position, flags));
 			}
-			writer.close();
-		} catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
+	}
+	
+	/**
+	 * Loads the game in the file specified by the player onto the board.
+	 * Binary snapshots are loaded with a single fixed-size read. FEN files and
+	 * the old text format, with one "COLOR PIECE (X,Y)" line per piece, are read
+	 * as text. The old format does not hold castling rights, the en passant
+	 * square or the move counters, so they are worked out from the pieces.
+	 * A FEN file holds no turn booleans, so they are worked out from its side to
+	 * move and the player's color.
+	 * 
+	 * @param chessboard - the board to put the loaded pieces on
+	 * @param localGame - true if both players play on this laptop
+	 * @param playerIsWhite - true if this laptop's owner plays white, in a robot
+	 * or network game
+	 * @return an array of boolean vals which indicate your turn and the white's turn,
+	 * or null if the game could not be loaded
+	 */
+	public boolean[] loadGame(Chessboard chessboard, boolean localGame, boolean playerIsWhite) {
+		if(!hasValidFileName()) {return null;}
+		Path path = Paths.get("Saved Games", fileName);
+		Position position = new Position();
 		
-		
+		try {
+			if(isFenFile()) {
+				Fen.read(position, new String(Files.readAllBytes(path), StandardCharsets.US_ASCII));
+				chessboard.setPosition(position);
+				boolean whiteToMove = position.sideToMove() == Position.WHITE;
+				if(localGame) {return new boolean[] {true, whiteToMove};}
+				// against a robot or over the network, whitesTurn holds the player's color
+				return new boolean[] {whiteToMove == playerIsWhite, playerIsWhite};
+			}
+			
+			byte[] bytes;
+			try (InputStream in = Files.newInputStream(path)) {
+				bytes = in.readNBytes(Snapshot.SIZE);
+			}
+			if(!Snapshot.isSnapshot(ByteBuffer.wrap(bytes))) {
+				return loadTextGame(chessboard, path.toFile(), localGame, playerIsWhite);
+			}
+			int flags = Snapshot.read(position, bytes);
+			chessboard.setPosition(position);
+			return new boolean[] {(flags & YOUR_TURN) != 0, (flags & WHITES_TURN) != 0};
+		} catch (IOException | IllegalArgumentException e) {
+			e.printStackTrace();
+		}
+		return null;
 	}
 	
 	/**
-	 * Accepts a .txt file containing board data.
-	 * Loads the pieces to the 2D board based on the file data
+	 * Loads a game saved in the old text format.
 	 * FILE FORMAT:
 	 * 		COLOR PIECE (X,Y)
 	 * EXAMPLE:
 	 * 		BLACK PAWN (1,1)
-	 * @param board - 8X8 2D board containing the Tiles and Pieces
+	 * @param chessboard - the board to put the loaded pieces on
+	 * @param gameFile - the saved game
+	 * @param localGame - true if both players play on this laptop
+	 * @param playerIsWhite - true if this laptop's owner plays white, in a robot
+	 * or network game
 	 * @return an array of boolean vals which indicate your turn and the white's turn
 	 */
-	public boolean[] loadGame(Tile[][] board) {
-		File gameFile; Scanner reader;
-		if(fileName.length() == 0 || !fileName.contains(".txt")) {return null;}
-		gameFile = new File("Saved Games/" + fileName);
-		boolean yourTurn,whitesTurn;
+	private boolean[] loadTextGame(Chessboard chessboard, File gameFile, boolean localGame, boolean playerIsWhite)
+			throws FileNotFoundException {
+		Tile[][] board = chessboard.getBoard();
+		boolean yourTurn = false, whitesTurn = false;
+		Scanner reader = new Scanner(gameFile);
 		
-		try {
-			yourTurn = false; whitesTurn = false;
-			reader = new Scanner(gameFile);
-			
-			// extracting player turn info. it will be used to identify
-			// whose turn it was to play right before exiting the game.
-			String turnData1 =  reader.nextLine().replace("\n", "").split(" ")[1];
-			String turnData2 =  reader.nextLine().replace("\n","").split(" ")[1];
-			if(turnData1.equals("true")) {yourTurn = true;}
-			if(turnData2.equals("true")) {whitesTurn = true;}
-			
-			while(reader.hasNextLine()) {
-				String pieceInfo = reader.nextLine();
-				pieceInfo = pieceInfo.replace("\n", "");
-				addPieceToBoard(board, pieceInfo);
-			}
-			
-			reader.close();
-			return new boolean[] {yourTurn, whitesTurn};
-		} catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		// extracting player turn info. it will be used to identify
+		// whose turn it was to play right before exiting the game.
+		String turnData1 =  reader.nextLine().replace("\n", "").split(" ")[1];
+		String turnData2 =  reader.nextLine().replace("\n","").split(" ")[1];
+		if(turnData1.equals("true")) {yourTurn = true;}
+		if(turnData2.equals("true")) {whitesTurn = true;}
+		
+		while(reader.hasNextLine()) {
+			String pieceInfo = reader.nextLine();
+			pieceInfo = pieceInfo.replace("\n", "");
+			addPieceToBoard(board, pieceInfo);
 		}
-		return null;
-			
 		
+		reader.close();
+		// against a robot or over the network, whitesTurn holds the player's color
+		boolean whiteToMove = localGame ? whitesTurn : yourTurn == playerIsWhite;
+		chessboard.rebuildPosition(whiteToMove);
+		return new boolean[] {yourTurn, whitesTurn};
+	}
+	
+	/**
+	 * Checks that a file name has been given and that it names a .bin, .fen or
+	 * (old) .txt file
+	 * @return true if the game may be saved to or loaded from the file
+	 */
+	private boolean hasValidFileName() {
+		return fileName.length() != 0 && (fileName.contains(".txt") || isSnapshotFile() || isFenFile());
+	}
+	
+	/**
+	 * @return true if the file name ends in .bin, so the game is saved as a
+	 * binary snapshot
+	 */
+	private boolean isSnapshotFile() {
+		return fileName.toLowerCase().endsWith(SNAPSHOT_EXTENSION);
+	}
+	
+	/**
+	 * @return true if the file name ends in .fen, so the game is saved as FEN text
+	 */
+	private boolean isFenFile() {
+		return fileName.toLowerCase().endsWith(".fen");
 	}
 	
 	/**
@@ -356,12 +437,12 @@ public class GameStatus {
 		boolean white = true;
 		if(color.equals("BLACK")) {white = false;}
 		
-		if(pName.equals("BISHOP")) {return new Bishop(white, parent);}
-		if(pName.equals("KING")) {return new King(white, parent);}
-		if(pName.equals("KNIGHT")) {return new Knight(white, parent);}
-		if(pName.equals("PAWN")) {return new Pawn(white, parent);}
-		if(pName.equals("QUEEN")) {return new Queen(white, parent);}
-		if(pName.equals("ROOK")) {return new Rook(white, parent);}
+		if(pName.equals("BISHOP")) {return new Bishop(white);}
+		if(pName.equals("KING")) {return new King(white);}
+		if(pName.equals("KNIGHT")) {return new Knight(white);}
+		if(pName.equals("PAWN")) {return new Pawn(white);}
+		if(pName.equals("QUEEN")) {return new Queen(white);}
+		if(pName.equals("ROOK")) {return new Rook(white);}
 		
 		System.out.println("Invalid Piece Name!");
 		return null;
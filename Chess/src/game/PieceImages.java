@@ -0,0 +1,69 @@
+package game;
+
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.widgets.Display;
+
+import pieces.PieceType;
+
+/**
+ * A shared cache of the piece images, keyed by piece type and color. Pieces
+ * themselves hold no images; only the drawing code asks this cache for them.
+ * <P>
+ * Each PNG is decoded once per process, on first use. An SWT Image belongs to
+ * one Display, and a new Display is made for every game, so the decoded image
+ * data is kept and only the cheap Image objects are created again when the
+ * Display changes.
+ */
+public final class PieceImages {
+	/**
+	 * Decoded image data, indexed as color * 6 + type with white as 0.
+	 */
+	private static final ImageData[] DATA = new ImageData[12];
+	/**
+	 * Images for {@link #display}, indexed like {@link #DATA}.
+	 */
+	private static final Image[] IMAGES = new Image[12];
+	private static Display display;
+
+	private PieceImages() {
+	}
+
+	/**
+	 * Returns the image of a piece for the current display. Must be called on the
+	 * UI thread.
+	 *
+	 * @param type  the type of the piece.
+	 * @param white true for the white piece, false for the black piece.
+	 * @return the image, created on first use.
+	 */
+	public static synchronized Image get(PieceType type, boolean white) {
+		Display current = Display.getCurrent();
+		if (current != display) {
+			dispose();
+			display = current;
+		}
+		int index = (white ? 0 : 6) + type.ordinal();
+		if (IMAGES[index] == null) {
+			if (DATA[index] == null) {
+				DATA[index] = new ImageData("images/" + type.getImageName(white));
+			}
+			IMAGES[index] = new Image(display, DATA[index]);
+		}
+		return IMAGES[index];
+	}
+
+	/**
+	 * Frees the images of the current display. The decoded image data is kept,
+	 * so later images are made without decoding the files again.
+	 */
+	public static synchronized void dispose() {
+		for (int i = 0; i < IMAGES.length; i++) {
+			if (IMAGES[i] != null && !IMAGES[i].isDisposed()) {
+				IMAGES[i].dispose();
+			}
+			IMAGES[i] = null;
+		}
+		display = null;
+	}
+}
@@ -5,11 +5,47 @@
 
 package game;
 
+import engine.Move;
+import engine.RandomPicker;
+
 public class RandomAI extends Robot {
+	/**
+	 * Picks among every legal move of the robot's position, all equally likely.
+	 */
+	private RandomPicker picker;
 
+	/**
+	 * Constructor takes in color of robot, playing differently every game.
+	 * 
+	 * @param color: color of robot
+	 */
 	public RandomAI(String color) {
 		super(color);
-		// TODO Auto-generated constructor stub
+		picker = new RandomPicker();
+	}
+	
+	/**
+	 * Constructor takes in color of robot and a seed, so the robot plays the
+	 * same moves in the same positions every game.
+	 * 
+	 * @param color: color of robot
+	 * @param seed: seed of the random number generator
+	 */
+	public RandomAI(String color, long seed) {
+		super(color);
+		picker = new RandomPicker(seed);
+	}
+	
+	/**
+	 * Generates the robot's legal moves once and plays one of them, picked
+	 * uniformly at random, so every move takes the same short time.
+	 */
+	@Override
+	public void movePiece() {
+		int move = picker.pickMove(currentPosition());
+		if (move != Move.NONE) {
+			gameOver = boardUI.updateBoard(move);
+		}
 	}
 	
-}
\ No newline at end of file
+}
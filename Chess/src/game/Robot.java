@@ -8,21 +8,28 @@
 package game;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.Random;
+import java.util.function.IntConsumer;
+
+import org.eclipse.swt.widgets.Display;
+
+import engine.Position;
 
 import pieces.King;
 import pieces.Piece;
 
-public class Robot {
+public abstract class Robot {
 	private String color;
-	private Chessboard boardUI;
+	protected Chessboard boardUI;
 	List<Piece> pieces;
 	Piece king;
 	boolean whitesTurn;
-	int count;
+	/**
+	 * The result of the robot's last move: 0 if the game goes on, 1 if white won,
+	 * 2 if black won, and 3 or more for a draw (see
+	 * Chessboard.determineCheckMate()).
+	 */
+	protected int gameOver;
 	
 	/**
 	 * Constructor takes in color of robot
@@ -30,7 +37,7 @@ public class Robot {
 	 * @param color: color of robot
 	 */
 	public Robot(String color) {
-		this.color = color; this.count = 0;
+		this.color = color;
 		if (color.equals("White"))
 			whitesTurn = true;
 		else
@@ -49,39 +56,51 @@ public class Robot {
 	}
 	
 	/**
-	 * Move robot piece 
+	 * Makes the robot's move and reports the result on the UI thread. This robot
+	 * moves right away; robots that think for a while override this to search
+	 * off the UI thread and hand their move back through display.asyncExec.
+	 * 
+	 * @param display: the UI's display
+	 * @param onMoved: called with 0 if the game goes on, 1 if white won, 2 if
+	 *                 black won, and 3 or more for a draw (see
+	 *                 Chessboard.determineCheckMate())
 	 */
-	public void movePiece() {
-		updatePieces();
-		Random random = new Random();
-		if (boardUI.determineKingCheckStatus(king.isWhite())) {
-			System.out.println("King in check");
-			for (int i =0; i< pieces.size();i++) {
-				Piece selectedPiece = pieces.get(i);
-				if (makeMove(selectedPiece))
-					break;
-			}
-		}
-		else {	
-			int i = random.nextInt(pieces.size());
-			Piece selectedPiece = pieces.get(i);
-			
-			if (count > 100) {
-				return;
-			}
+	public void requestMove(Display display, IntConsumer onMoved) {
+		gameOver = 0;
+		movePiece();
+		onMoved.accept(gameOver);
+	}
 	
-			if (!makeMove(selectedPiece))
-				movePiece();
-		}
-		
+	/**
+	 * Releases anything the robot holds on to once its game is over.
+	 */
+	public void dispose() {
+	}
+	
+	/**
+	 * Move robot piece, setting {@link #gameOver} to the result of the move
+	 */
+	public abstract void movePiece();
+	
+	/**
+	 * Copies the board's position with the robot to move. Must be called on the
+	 * UI thread, before the board changes again.
+	 * 
+	 * @return a new Position the robot may play moves on
+	 */
+	protected Position currentPosition() {
+		Position position = boardUI.copyPosition();
+		position.setSideToMove(whitesTurn ? Position.WHITE : Position.BLACK);
+		return position;
 	}
 	
 	/** 
-	 * Fill list with all of the robot's pieces
+	 * Fill list with all of the robot's pieces, replacing any from before
 	 * 
 	 * @param board: 2D tile array
 	 */
 	public void populatePiecesList(Tile[][] board) {
+		pieces.clear();
 		for (int row = 0; row < 8; row++) {
 			for (int col = 0; col < 8; col ++) {
 				Tile t = board[row][col];
@@ -129,120 +148,6 @@ public class Robot {
 		
 	}
 	
-	/**
-	 * Makes a move using one of the 4 iteration patterns
-	 * 
-	 * @param piece: piece that will move
-	 * @return true or false depending on whether robot can move piece
-	 */
-	public boolean makeMove(Piece piece) {		
-		count++;
-		Random rand = new Random();
-		int iteration = rand.nextInt(4);
-		if (iteration == 0)
-			return iteration1(piece);
-		else if(iteration ==1)
-			return iteration2(piece);
-		else if(iteration ==2)
-			return iteration3(piece);
-		else
-			return iteration4(piece);			
-	}
-	
-	
-	/**
-	 * Iteration pattern 1
-	 * 
-	 * @param piece: piece that will move
-	 * @return true or false depending on whether robot can move piece
-	 */
-	public boolean iteration1(Piece piece) {
-		for (int row = 0; row < 8; row++) {
-			for (int col = 0; col < 8; col++) {
-				if (boardUI.validMoveMade(col,row,piece,whitesTurn)) {
-					boardUI.updateBoard(col,row,piece);
-					count = 0;
-					return true;
-				}
-			}
-		}
-		return false;
-	}
-	
-	/**
-	 * Iteration pattern 2
-	 * 
-	 * @param piece: piece that will move
-	 * @return true or false depending on whether robot can move piece
-	 */
-	public boolean iteration2(Piece piece) {
-		for (int row = 0; row < 8; row+=2) {
-			for (int col = 0; col < 8; col++) {
-				if (boardUI.validMoveMade(col,row,piece,whitesTurn)) {
-					boardUI.updateBoard(col,row,piece);
-					count = 0;
-					return true;
-				}
-			}
-		}
-		for (int row = 1; row < 8; row+=2) {
-			for (int col = 0; col < 8; col++) {
-				if (boardUI.validMoveMade(col,row,piece,whitesTurn)) {
-					boardUI.updateBoard(col,row,piece);
-					count = 0;
-					return true;
-				}
-			}
-		}
-		return false;
-	}
-	
-	/**
-	 * Iteration pattern 3
-	 * 
-	 * @param piece: piece that will move
-	 * @return true or false depending on whether robot can move piece
-	 */
-	public boolean iteration3(Piece piece) {
-		for (int row = 7; row >= 0; row--) {
-			for (int col = 7; col >= 0; col --) {
-				if (boardUI.validMoveMade(col,row,piece,whitesTurn)) {
-					boardUI.updateBoard(col,row,piece);
-					count = 0;
-					return true;
-				}
-			}
-		}
-		return false;	}
-	
-	/**
-	 * Iteration pattern 4
-	 * 
-	 * @param piece: piece that will move
-	 * @return true or false depending on whether robot can move piece
-	 */
-	public boolean iteration4(Piece piece) {
-		for (int row = 7; row >=0; row-=2) {
-			for (int col = 0; col < 8; col++) {
-				if (boardUI.validMoveMade(col,row,piece,whitesTurn)) {
-					boardUI.updateBoard(col,row,piece);
-					count = 0;
-					return true;
-				}
-			}
-		}
-		for (int row = 7; row >= 0; row=-2) {
-			for (int col = 0; col < 8; col++) {
-				if (boardUI.validMoveMade(col,row,piece,whitesTurn)) {
-					boardUI.updateBoard(col,row,piece);
-					count = 0;
-					return true;
-				}
-			}
-		}
-		return false;
-	}
-	
 	/**
 	 * @return color of the robot
 	 */
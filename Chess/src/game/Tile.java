@@ -51,13 +51,8 @@ public class Tile {
 	 * @param gc: event gc, let's us draw on the canvas
 	 */
 	public void draw(GC gc) {
-		gc.setBackground(this.color);
-		gc.fillRectangle(this.tile);
-		
-		gc.setForeground(this.outline);
-		gc.drawRectangle(this.tile);
-		
-		if (piece != null) { piece.draw(gc); } }
+		drawTile(gc);
+		if (piece != null) { drawPiece(gc); } }
 	
 	/** 
 	 * Drawing method, special. 
@@ -71,13 +66,37 @@ public class Tile {
 	 * selected piece or it's a potential for the selected piece to move to.
 	 */
 	public void draw(GC gc, Color newColor) {
+		drawTile(gc, newColor);
+		if (piece != null) { drawPiece(gc); } }
+	
+	/** 
+	 * Draws only the tile, in its own color, with its outline.
+	 * 
+	 * @param gc: gc to draw with
+	 */
+	public void drawTile(GC gc) { drawTile(gc, this.color); }
+	
+	/** 
+	 * Draws only the tile, in a passed in color, with its outline.
+	 * 
+	 * @param gc: gc to draw with
+	 * @param newColor: color to fill the tile with
+	 */
+	public void drawTile(GC gc, Color newColor) {
 		gc.setBackground(newColor);
-		gc.fillRectangle(tile);
+		gc.fillRectangle(this.tile);
 		
 		gc.setForeground(this.outline);
-		gc.drawRectangle(this.tile);
-		
-		if (piece != null) { piece.draw(gc); } }
+		gc.drawRectangle(this.tile); }
+	
+	/**
+	 * Draws the piece of this tile 10 pixels in from the tile's corner. The
+	 * image is shared by all pieces of the same type and color.
+	 * 
+	 * @param gc: event gc, let's us draw on the canvas
+	 */
+	public void drawPiece(GC gc) {
+		gc.drawImage(PieceImages.get(piece.getType(), piece.isWhite()), this.x + 10, this.y + 10); }
 	
 	//-- setters & getters
 	
@@ -92,6 +111,13 @@ public class Tile {
 		
 		if (piece != null) { this.piece.setLocation(x, y); } }
 
+	/**
+	 * Bounds getter. The outline reaches one pixel past the width and height.
+	 * 
+	 * @return the rectangle the tile fills on the canvas.
+	 */
+	public Rectangle getBounds() { return this.tile; }
+
 	/**
 	 * Piece check. Reports back if there's a piece present or not.
 	 * 
@@ -0,0 +1,203 @@
+package net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * One client connected to a non-blocking server. It splits what arrives into
+ * frames for its {@link Handler} and queues frames to send in a write buffer of
+ * fixed size. A client that stops reading fills the buffer and is disconnected,
+ * so it can never make the server hold more than
+ * {@link #WRITE_BUFFER_SIZE} bytes for it.
+ * <P>
+ * {@link #send(byte[])} and {@link #close()} may be called from any thread; the
+ * rest runs on the connection's {@link EventLoop}.
+ */
+public class Connection {
+	/**
+	 * The most bytes queued for a connection before it is dropped as too slow.
+	 */
+	public static final int WRITE_BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * Receives the events of a connection, always on its loop's thread.
+	 */
+	public interface Handler {
+		/**
+		 * The connection is registered and may be sent to.
+		 */
+		void opened(Connection connection);
+
+		/**
+		 * A frame arrived.
+		 *
+		 * @param message the frame's message, only valid during the call.
+		 */
+		void received(Connection connection, ByteBuffer message);
+
+		/**
+		 * The connection was closed, by either side.
+		 */
+		void closed(Connection connection);
+	}
+
+	private final EventLoop loop;
+	private final SocketChannel channel;
+	private final Handler handler;
+	private SelectionKey key;
+	private final ByteBuffer incoming = ByteBuffer.allocate(Frames.HEADER_SIZE + Frames.MAX_SIZE);
+	/**
+	 * Frames waiting to be written, guarded by this connection's lock.
+	 */
+	private final ByteBuffer outgoing = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+	private boolean flushQueued;
+	private volatile boolean closed;
+
+	Connection(EventLoop loop, SocketChannel channel, Handler handler) {
+		this.loop = loop;
+		this.channel = channel;
+		this.handler = handler;
+	}
+
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	/**
+	 * Queues a frame. It is written at the end of the loop's current round, with
+	 * any other frames queued meanwhile. Thread safe.
+	 *
+	 * @param message the message, at most {@link Frames#MAX_SIZE} bytes.
+	 */
+	public void send(byte[] message) {
+		if (message.length > Frames.MAX_SIZE) {
+			throw new IllegalArgumentException("Message too long: " + message.length + " bytes");
+		}
+		boolean overflow;
+		boolean schedule = false;
+		synchronized (this) {
+			overflow = outgoing.remaining() < Frames.HEADER_SIZE + message.length;
+			if (!overflow) {
+				outgoing.putShort((short) message.length);
+				outgoing.put(message);
+				schedule = !flushQueued;
+				flushQueued = true;
+			}
+		}
+		if (overflow) {
+			System.out.println("Connection - " + this + " is not reading, dropping it");
+			close();
+		} else if (schedule) {
+			loop.execute(this::flush);
+		}
+	}
+
+	/**
+	 * Closes the connection and tells the handler, once. Thread safe.
+	 */
+	public void close() {
+		if (!loop.inLoop()) {
+			loop.execute(this::close);
+			return;
+		}
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (key != null) {
+			key.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+		}
+		handler.closed(this);
+	}
+
+	/**
+	 * @return true once the connection is closed.
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * @return the loop serving this connection.
+	 */
+	public EventLoop loop() {
+		return loop;
+	}
+
+	/**
+	 * Reads what has arrived and hands every complete frame to the handler.
+	 */
+	void read() {
+		int count;
+		try {
+			count = channel.read(incoming);
+		} catch (IOException e) {
+			count = -1;
+		}
+		if (count < 0) {
+			close();
+			return;
+		}
+		incoming.flip();
+		while (!closed && incoming.remaining() >= Frames.HEADER_SIZE) {
+			int size = incoming.getShort(incoming.position()) & 0xFFFF;
+			if (size > Frames.MAX_SIZE) {
+				System.out.println("Connection - " + this + " sent a frame of " + size + " bytes");
+				close();
+				return;
+			}
+			if (incoming.remaining() < Frames.HEADER_SIZE + size) {
+				break; // the rest of the frame has not arrived yet
+			}
+			int start = incoming.position() + Frames.HEADER_SIZE;
+			ByteBuffer message = incoming.duplicate();
+			message.position(start).limit(start + size);
+			handler.received(this, message.slice());
+			incoming.position(start + size);
+		}
+		incoming.compact();
+	}
+
+	/**
+	 * Writes as much of the queue as the socket takes and waits for the socket
+	 * to drain if some is left.
+	 */
+	void flush() {
+		if (closed) {
+			return;
+		}
+		boolean failed = false;
+		synchronized (this) {
+			flushQueued = false;
+			outgoing.flip();
+			try {
+				channel.write(outgoing);
+			} catch (IOException e) {
+				failed = true;
+			}
+			outgoing.compact();
+			int interest = outgoing.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+					: SelectionKey.OP_READ;
+			if (!failed && key.isValid() && key.interestOps() != interest) {
+				key.interestOps(interest);
+			}
+		}
+		if (failed) {
+			close();
+		}
+	}
+
+	public String toString() {
+		try {
+			return String.valueOf(channel.getRemoteAddress());
+		} catch (IOException e) {
+			return "closed connection";
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package net;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A thread serving many connections with one selector. It reads whatever has
+ * arrived on any of its connections, hands complete frames to their handlers
+ * and writes queued frames out as the sockets accept them, so no thread ever
+ * waits on a single slow client.
+ * <P>
+ * Everything touching the selector or a connection's channel happens on the
+ * loop's own thread. Other threads hand it work through
+ * {@link #execute(Runnable)}, which is how connections owned by one loop send
+ * to connections owned by another.
+ */
+public class EventLoop implements Runnable {
+	private final Selector selector;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	/**
+	 * Creates a loop and starts its thread.
+	 *
+	 * @param name the name of the thread.
+	 * @throws IOException if no selector can be opened.
+	 */
+	public EventLoop(String name) throws IOException {
+		selector = Selector.open();
+		thread = new Thread(this, name);
+		thread.start();
+	}
+
+	/**
+	 * Takes over a newly accepted connection. Thread safe.
+	 *
+	 * @param channel the connected channel.
+	 * @param handler what to do with the connection's frames.
+	 * @return the connection.
+	 */
+	public Connection register(SocketChannel channel, Connection.Handler handler) {
+		Connection connection = new Connection(this, channel, handler);
+		execute(() -> {
+			try {
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+				handler.opened(connection);
+			} catch (IOException e) {
+				connection.close();
+			}
+		});
+		return connection;
+	}
+
+	/**
+	 * Runs a task on the loop's thread, after the current round of reads.
+	 * Thread safe.
+	 *
+	 * @param task the task.
+	 */
+	public void execute(Runnable task) {
+		tasks.add(task);
+		if (Thread.currentThread() != thread) {
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * @return true if called on the loop's thread.
+	 */
+	public boolean inLoop() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Stops the loop and closes all its connections.
+	 */
+	public void shutdown() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Selects until shut down.
+	 */
+	public void run() {
+		try {
+			while (running) {
+				selector.select();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					Connection connection = (Connection) key.attachment();
+					if (key.isValid() && key.isReadable()) {
+						connection.read();
+					}
+					if (key.isValid() && key.isWritable()) {
+						connection.flush();
+					}
+				}
+				// tasks include the flushes the reads above asked for, so a round's
+				// frames to one connection go out in one write
+				for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+					task.run();
+				}
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			System.out.println("EventLoop - " + thread.getName() + " stopped: " + e.getMessage());
+		} finally {
+			for (SelectionKey key : selector.keys()) {
+				((Connection) key.attachment()).close();
+			}
+			try {
+				selector.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package net;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Reads and writes frames on blocking streams, for the clients. A frame is a
+ * 2-byte big-endian length followed by that many bytes of message.
+ */
+public final class Frames {
+	/**
+	 * The size of the length in front of every frame, in bytes.
+	 */
+	public static final int HEADER_SIZE = 2;
+	/**
+	 * The longest message a frame may hold, in bytes. The server closes
+	 * connections that send longer ones.
+	 */
+	public static final int MAX_SIZE = 1024;
+
+	private Frames() {
+	}
+
+	/**
+	 * Writes one frame. The stream is not flushed, so several frames can go out
+	 * together.
+	 *
+	 * @param out     the stream.
+	 * @param message the message, at most {@link #MAX_SIZE} bytes.
+	 * @throws IOException              if the stream fails.
+	 * @throws IllegalArgumentException if the message is too long.
+	 */
+	public static void write(DataOutputStream out, byte[] message) throws IOException {
+		if (message.length > MAX_SIZE) {
+			throw new IllegalArgumentException("Message too long: " + message.length + " bytes");
+		}
+		out.writeShort(message.length);
+		out.write(message);
+	}
+
+	/**
+	 * Reads one frame, waiting until all of it has arrived.
+	 *
+	 * @param in the stream.
+	 * @return the message.
+	 * @throws IOException if the stream fails or ends, or the frame is too long.
+	 */
+	public static byte[] read(DataInputStream in) throws IOException {
+		int size = in.readUnsignedShort();
+		if (size > MAX_SIZE) {
+			throw new IOException("Frame too long: " + size + " bytes");
+		}
+		byte[] message = new byte[size];
+		in.readFully(message);
+		return message;
+	}
+}
@@ -0,0 +1,152 @@
+package net;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * A client's connection to the server, speaking the {@link Message} protocol
+ * over blocking streams. Sent messages are buffered until {@link #flush()}, so
+ * everything a client has to say about one event leaves in one write.
+ * <P>
+ * After the handshake, messages are received by a reader thread started with
+ * {@link #listen(Listener)}. It sleeps in a blocking read until the server sends
+ * something, so a client waiting for its opponent uses no CPU.
+ */
+public class Link implements Closeable {
+	/**
+	 * Receives the messages of a link, on the link's reader thread.
+	 */
+	public interface Listener {
+		void received(Message message);
+
+		/**
+		 * The connection failed or was closed, after which nothing more arrives.
+		 */
+		void failed(IOException e);
+	}
+
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	private int sent;
+	private int received;
+	private volatile Listener listener;
+	private Thread reader;
+	private volatile boolean closed;
+
+	/**
+	 * @param socket a socket connected to the server.
+	 * @throws IOException if its streams can not be opened.
+	 */
+	public Link(Socket socket) throws IOException {
+		this.socket = socket;
+		socket.setTcpNoDelay(true);
+		this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+
+	/**
+	 * Introduces the player and waits for the server's answer.
+	 *
+	 * @param name  the player's name.
+	 * @param white true if the player would like to play white.
+	 * @param time  the time control the player wants.
+	 * @return the WELCOME, holding the color the player got.
+	 * @throws IOException if the server refuses the player or answers something
+	 *                     else.
+	 */
+	public Message handshake(String name, boolean white, String time) throws IOException {
+		send(Message.hello(name, white, time));
+		flush();
+		Message answer = receive();
+		if (answer.type() == Message.REJECT) {
+			throw new IOException("The server refused to play: " + answer.reason());
+		}
+		if (answer.type() != Message.WELCOME || answer.version() != Message.VERSION) {
+			throw new IOException("The server does not speak protocol version " + Message.VERSION);
+		}
+		return answer;
+	}
+
+	/**
+	 * Queues a message behind any others not flushed yet. Thread safe.
+	 */
+	public synchronized void send(Message message) throws IOException {
+		Frames.write(out, message.encode(sent));
+		sent = (sent + 1) & 0xFFFF;
+	}
+
+	/**
+	 * Writes out every queued message at once. Thread safe.
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Waits for the next message. Only used directly before
+	 * {@link #listen(Listener)} is called.
+	 *
+	 * @return the message.
+	 * @throws IOException if the connection fails or closes, or the server sends
+	 *                     something that is not the next message.
+	 */
+	public Message receive() throws IOException {
+		Message message;
+		try {
+			message = Message.decode(Frames.read(in));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Bad message from the server: " + e.getMessage());
+		}
+		if (message.sequence() != received) {
+			throw new IOException("Expected message " + received + " but got " + message.sequence());
+		}
+		received = (received + 1) & 0xFFFF;
+		return message;
+	}
+
+	/**
+	 * Hands every message from now on to a listener, starting the reader thread
+	 * on the first call. A later call replaces the listener, such as when a new
+	 * game window takes over the connection.
+	 *
+	 * @param listener the listener.
+	 */
+	public synchronized void listen(Listener listener) {
+		this.listener = listener;
+		if (reader == null) {
+			reader = new Thread(this::read, "link reader");
+			reader.setDaemon(true);
+			reader.start();
+		}
+	}
+
+	/**
+	 * Receives until the connection ends.
+	 */
+	private void read() {
+		try {
+			while (true) {
+				Message message = receive();
+				listener.received(message);
+			}
+		} catch (IOException e) {
+			if (!closed) {
+				listener.failed(e);
+			}
+		}
+	}
+
+	/**
+	 * Closes the connection, which also ends the reader thread.
+	 */
+	public void close() throws IOException {
+		closed = true;
+		socket.close();
+	}
+}
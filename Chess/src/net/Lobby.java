@@ -0,0 +1,111 @@
+package net;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pairs the players of a server and keeps its rooms. A player joining waits
+ * until another player asks for the same time control; the two then get a room
+ * of their own. The lobby is thread safe, so players on different event loops
+ * can join and leave at once.
+ *
+ * @param <P> the server's representation of a player.
+ */
+public class Lobby<P> {
+	/**
+	 * The player waiting for an opponent, by time control.
+	 */
+	private final ConcurrentHashMap<String, Waiter<P>> waiting = new ConcurrentHashMap<>();
+	/**
+	 * The games being played, by room number.
+	 */
+	private final ConcurrentHashMap<Integer, Room<P>> rooms = new ConcurrentHashMap<>();
+	/**
+	 * The room of every player in a game, by player.
+	 */
+	private final ConcurrentHashMap<P, Room<P>> playing = new ConcurrentHashMap<>();
+	private final AtomicInteger nextId = new AtomicInteger(1);
+
+	private static final class Waiter<P> {
+		final P player;
+		final boolean white;
+
+		Waiter(P player, boolean white) {
+			this.player = player;
+			this.white = white;
+		}
+	}
+
+	/**
+	 * Adds a player looking for a game.
+	 *
+	 * @param player      the player, who must not be waiting already.
+	 * @param timeControl the time control the player wants, such as "5:00".
+	 * @param white       true if the player would like to play white.
+	 * @return the new room if a player with the same time control was waiting,
+	 *         or null if this player now waits. The player who waited gets the
+	 *         color they asked for.
+	 */
+	public Room<P> join(P player, String timeControl, boolean white) {
+		Object[] made = new Object[1];
+		// takes the waiting player or becomes it, in one atomic step. The room is
+		// registered in the same step, so a waiting player who leaves meanwhile
+		// is either still waiting or already has the room
+		waiting.compute(timeControl, (key, waiter) -> {
+			if (waiter == null) {
+				return new Waiter<>(player, white);
+			}
+			int id = nextId.getAndIncrement();
+			Room<P> room = waiter.white ? new Room<>(id, waiter.player, player)
+					: new Room<>(id, player, waiter.player);
+			rooms.put(id, room);
+			playing.put(waiter.player, room);
+			playing.put(player, room);
+			made[0] = room;
+			return null;
+		});
+		@SuppressWarnings("unchecked")
+		Room<P> room = (Room<P>) made[0];
+		return room;
+	}
+
+	/**
+	 * Takes a player out of the lobby: out of the waiting list if waiting, and
+	 * closes its room if playing. The room is found even if the player was
+	 * paired a moment ago and has not been told yet.
+	 *
+	 * @param player the player.
+	 * @return the room the player was in, whose other player should be told, or
+	 *         null if the player was not paired.
+	 */
+	public Room<P> leave(P player) {
+		waiting.values().removeIf(waiter -> waiter.player == player);
+		Room<P> room = playing.remove(player);
+		if (room != null) {
+			rooms.remove(room.id());
+		}
+		return room;
+	}
+
+	/**
+	 * @param id a room number.
+	 * @return the room, or null if there is no such game being played.
+	 */
+	public Room<P> room(int id) {
+		return rooms.get(id);
+	}
+
+	/**
+	 * @return the number of games being played.
+	 */
+	public int rooms() {
+		return rooms.size();
+	}
+
+	/**
+	 * @return the number of players waiting for an opponent.
+	 */
+	public int waiting() {
+		return waiting.size();
+	}
+}
@@ -0,0 +1,346 @@
+package net;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A message of the game protocol, sent in one frame. Every message starts with
+ *
+ * <pre>
+ * 0  1 byte   type
+ * 1  2 bytes  sequence number, counting the messages sent on the connection in
+ *             each direction from 0 and wrapping at 65536
+ * </pre>
+ *
+ * followed by the fields of its type. Numbers are big-endian; texts are a
+ * 1-byte length followed by that many bytes of UTF-8, so names may hold any
+ * character. A move takes 2 bytes, the {@link engine.Move#compact(int)} form.
+ * <P>
+ * A client opens with {@link #HELLO}, which the server answers with
+ * {@link #WELCOME} or, if it does not speak the client's {@link #VERSION},
+ * with {@link #REJECT} before closing the connection.
+ */
+public final class Message {
+	/**
+	 * The protocol version, raised on every incompatible change.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Client to server: version, wants white, time control, name.
+	 */
+	public static final int HELLO = 1;
+	/**
+	 * Server to client, the answer to HELLO: version, player number, white, time
+	 * control, name. The color is the one the player actually got.
+	 */
+	public static final int WELCOME = 2;
+	/**
+	 * Server to client, the opponent has been found: player number, white, time
+	 * control, name.
+	 */
+	public static final int PLAYER = 3;
+	/**
+	 * Both ways: a move.
+	 */
+	public static final int MOVE = 4;
+	/**
+	 * Server to client, the opponent left: name.
+	 */
+	public static final int LEFT = 5;
+	/**
+	 * Server to client, a message was refused: the sequence number of the
+	 * refused message, reason. A refused move is not passed on to the opponent;
+	 * after refusing anything else the server closes the connection.
+	 */
+	public static final int REJECT = 6;
+
+	private static final int MAX_TEXT = 255;
+
+	private final int type;
+	private int sequence;
+	private int version;
+	private int id;
+	private boolean white;
+	private String time;
+	private String text;
+	private int move;
+
+	private Message(int type) {
+		this.type = type;
+	}
+
+	// -- Making messages
+
+	public static Message hello(String name, boolean white, String time) {
+		Message message = new Message(HELLO);
+		message.version = VERSION;
+		message.white = white;
+		message.time = time;
+		message.text = name;
+		return message;
+	}
+
+	public static Message welcome(int id, boolean white, String time, String name) {
+		return player(WELCOME, id, white, time, name);
+	}
+
+	public static Message player(int id, boolean white, String time, String name) {
+		return player(PLAYER, id, white, time, name);
+	}
+
+	private static Message player(int type, int id, boolean white, String time, String name) {
+		Message message = new Message(type);
+		message.version = VERSION;
+		message.id = id;
+		message.white = white;
+		message.time = time;
+		message.text = name;
+		return message;
+	}
+
+	/**
+	 * @param move a packed move; only its {@link engine.Move#compact(int)} form is
+	 *             sent.
+	 */
+	public static Message move(int move) {
+		Message message = new Message(MOVE);
+		message.move = move & 0xFFFF;
+		return message;
+	}
+
+	public static Message left(String name) {
+		Message message = new Message(LEFT);
+		message.text = name;
+		return message;
+	}
+
+	/**
+	 * @param sequence the sequence number of the refused message.
+	 * @param reason   why it was refused.
+	 */
+	public static Message reject(int sequence, String reason) {
+		Message message = new Message(REJECT);
+		message.id = sequence;
+		message.text = reason;
+		return message;
+	}
+
+	// -- Encoding
+
+	/**
+	 * Encodes the message for a frame.
+	 *
+	 * @param sequence the message's sequence number on its connection.
+	 * @return the bytes of the message.
+	 */
+	public byte[] encode(int sequence) {
+		if (type == MOVE) { // the message sent most, kept free of buffers
+			return new byte[] { (byte) type, (byte) (sequence >>> 8), (byte) sequence, (byte) (move >>> 8),
+					(byte) move };
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(Frames.MAX_SIZE);
+		buffer.put((byte) type);
+		buffer.putShort((short) sequence);
+		switch (type) {
+		case HELLO:
+			buffer.put((byte) version);
+			buffer.put((byte) (white ? 1 : 0));
+			putText(buffer, time);
+			putText(buffer, text);
+			break;
+		case WELCOME:
+			buffer.put((byte) version);
+			putPlayer(buffer); // the rest is a PLAYER
+			break;
+		case PLAYER:
+			putPlayer(buffer);
+			break;
+		case REJECT:
+			buffer.putShort((short) id);
+			putText(buffer, text);
+			break;
+		default:
+			putText(buffer, text);
+		}
+		byte[] bytes = new byte[buffer.position()];
+		buffer.flip().get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Decodes the message of a frame.
+	 *
+	 * @param buffer the frame's message, from its position to its limit.
+	 * @return the message.
+	 * @throws IllegalArgumentException if the bytes are not a message.
+	 */
+	public static Message decode(ByteBuffer buffer) {
+		try {
+			Message message = new Message(buffer.get() & 0xFF);
+			message.sequence = buffer.getShort() & 0xFFFF;
+			switch (message.type) {
+			case HELLO:
+				message.version = buffer.get() & 0xFF;
+				message.white = buffer.get() != 0;
+				message.time = getText(buffer);
+				message.text = getText(buffer);
+				break;
+			case WELCOME:
+				message.version = buffer.get() & 0xFF;
+				message.getPlayer(buffer);
+				break;
+			case PLAYER:
+				message.getPlayer(buffer);
+				break;
+			case MOVE:
+				message.move = buffer.getShort() & 0xFFFF;
+				break;
+			case REJECT:
+				message.id = buffer.getShort() & 0xFFFF;
+				message.text = getText(buffer);
+				break;
+			case LEFT:
+				message.text = getText(buffer);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown message type " + message.type);
+			}
+			if (buffer.hasRemaining()) {
+				throw new IllegalArgumentException("Message too long for type " + message.type);
+			}
+			return message;
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Message too short");
+		}
+	}
+
+	/**
+	 * Decodes the message of a frame.
+	 */
+	public static Message decode(byte[] bytes) {
+		return decode(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Writes the fields of a PLAYER, which a WELCOME ends with too.
+	 */
+	private void putPlayer(ByteBuffer buffer) {
+		buffer.put((byte) id);
+		buffer.put((byte) (white ? 1 : 0));
+		putText(buffer, time);
+		putText(buffer, text);
+	}
+
+	/**
+	 * Reads the fields of a PLAYER, which a WELCOME ends with too.
+	 */
+	private void getPlayer(ByteBuffer buffer) {
+		id = buffer.get() & 0xFF;
+		white = buffer.get() != 0;
+		time = getText(buffer);
+		text = getText(buffer);
+	}
+
+	private static void putText(ByteBuffer buffer, String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_TEXT) {
+			throw new IllegalArgumentException("Text too long: " + text);
+		}
+		buffer.put((byte) bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static String getText(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.get() & 0xFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// -- Fields
+
+	public int type() {
+		return type;
+	}
+
+	/**
+	 * @return the sequence number the message was received with.
+	 */
+	public int sequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return the protocol version of a HELLO or WELCOME.
+	 */
+	public int version() {
+		return version;
+	}
+
+	/**
+	 * @return the player number of a WELCOME or PLAYER.
+	 */
+	public int id() {
+		return id;
+	}
+
+	/**
+	 * @return the sequence number of the message a REJECT refuses.
+	 */
+	public int rejected() {
+		return id;
+	}
+
+	/**
+	 * @return true if the player of a HELLO, WELCOME or PLAYER plays white.
+	 */
+	public boolean white() {
+		return white;
+	}
+
+	/**
+	 * @return the time control of a HELLO, WELCOME or PLAYER.
+	 */
+	public String time() {
+		return time;
+	}
+
+	/**
+	 * @return the player's name of a HELLO, WELCOME, PLAYER or LEFT.
+	 */
+	public String name() {
+		return text;
+	}
+
+	/**
+	 * @return the reason of a REJECT.
+	 */
+	public String reason() {
+		return text;
+	}
+
+	/**
+	 * @return the compact move of a MOVE.
+	 */
+	public int move() {
+		return move;
+	}
+
+	public String toString() {
+		switch (type) {
+		case HELLO:
+			return "HELLO v" + version + " " + text + (white ? " White " : " Black ") + time;
+		case WELCOME:
+		case PLAYER:
+			return (type == WELCOME ? "WELCOME " : "PLAYER ") + id + " " + text + (white ? " White " : " Black ")
+					+ time;
+		case MOVE:
+			return "MOVE " + engine.Move.toString(move);
+		case REJECT:
+			return "REJECT " + id + " " + text;
+		default:
+			return "LEFT " + text;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package net;
+
+import engine.Game;
+import engine.Move;
+import engine.MoveGenerator;
+import engine.Position;
+
+/**
+ * One game on the server between two players. Messages of a game only ever go
+ * between the two players of its room.
+ * <P>
+ * The room keeps its own headless {@link Game}, so the server checks every
+ * move with the same rules the clients play by before passing it on. A client
+ * can not move for its opponent, move twice or make an illegal move, and the
+ * two boards can not drift apart.
+ *
+ * @param <P> the server's representation of a player.
+ */
+public class Room<P> {
+	private final int id;
+	private final P white;
+	private final P black;
+	private final Game game = new Game();
+	private final int[] legal = new int[MoveGenerator.MAX_MOVES];
+	private int result = Game.ONGOING;
+
+	/**
+	 * Creates a room. Rooms are made by {@link Lobby#join(Object, String, boolean)}.
+	 */
+	Room(int id, P white, P black) {
+		this.id = id;
+		this.white = white;
+		this.black = black;
+	}
+
+	/**
+	 * @return the room's number, unique on the server.
+	 */
+	public int id() {
+		return id;
+	}
+
+	public P white() {
+		return white;
+	}
+
+	public P black() {
+		return black;
+	}
+
+	/**
+	 * @param player one of the room's players.
+	 * @return the other player.
+	 */
+	public P opponent(P player) {
+		return player == white ? black : white;
+	}
+
+	/**
+	 * Checks a player's move and plays it if it is legal. Thread safe, although
+	 * only the player whose turn it is has a move to make.
+	 *
+	 * @param player  one of the room's players.
+	 * @param compact the move as sent, in {@link Move#compact(int)} form.
+	 * @return null if the move was played, otherwise why it was refused.
+	 */
+	public synchronized String play(P player, int compact) {
+		Position position = game.position();
+		int side = player == white ? Position.WHITE : Position.BLACK;
+		if (result != Game.ONGOING) {
+			return "the game is over";
+		}
+		if (position.sideToMove() != side) {
+			return "it is not your turn";
+		}
+		int count = MoveGenerator.generateLegal(position, side, legal);
+		for (int i = 0; i < count; i++) {
+			if (Move.compact(legal[i]) == compact) {
+				game.play(legal[i]);
+				result = game.result();
+				return null;
+			}
+		}
+		return Move.toString(compact) + " is not legal";
+	}
+
+	/**
+	 * @return how the room's game stands, one of the Game result codes.
+	 */
+	public synchronized int result() {
+		return result;
+	}
+
+	public String toString() {
+		return "room " + id + " (" + white + " - " + black + ")";
+	}
+}
@@ -0,0 +1,11 @@
+/**
+ * This package holds the networking of remote games. The server side is
+ * non-blocking: a few {@link net.EventLoop} threads each watch many
+ * {@link net.Connection}s with a selector, so a connection costs two small
+ * buffers instead of a thread. Both sides exchange framed messages, each a
+ * 2-byte big-endian length followed by that many bytes, holding one binary
+ * {@link net.Message}. Clients talk to the server through a {@link net.Link}.
+ * <P>
+ * None of its classes depend on SWT.
+ */
+package net;
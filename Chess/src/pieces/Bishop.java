@@ -3,9 +3,6 @@ package pieces;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.widgets.Shell;
-
 import game.Coordinate;
 import game.Tile;
 
@@ -23,19 +20,12 @@ public class Bishop extends Piece {
 	int points = 3;
 
 	/**
-	 * Subclass constructor of {@link Piece#Piece(boolean)}.
+	 * Subclass constructor of {@link Piece#Piece(boolean, PieceType)}.
 	 * 
 	 * @param white true if piece is white, false if black
-	 * @param shell the graphical shell. Used to set the image of the piece.
 	 */
-	public Bishop(boolean white, Shell shell) {
-		super(white);
-		if (white) {
-			setImage(new Image(shell.getDisplay(), "images/" + whitePiece));
-		} else {
-			setImage(new Image(shell.getDisplay(), "images/" + blackPiece));
-		}
-		this.name = "BISHOP";
+	public Bishop(boolean white) {
+		super(white, PieceType.BISHOP);
 	}
 
 	@Override
@@ -95,10 +85,10 @@ public class Bishop extends Piece {
 		// Up-Right
 		for (int x = getX() + 1, y = getY() - 1; x >= 0 && x <= 7 && y >= 0 && y <= 7; x++, y--) {
 			if (!tiles[y][x].hasPiece()) {
-				coordinates.add(new Coordinate(x, y));
+				coordinates.add(Coordinate.of(x, y));
 			} else {
 				if (hasEnemyPiece(x, y, tiles)) {
-					coordinates.add(new Coordinate(x, y));
+					coordinates.add(Coordinate.of(x, y));
 				}
 				break;
 			}
@@ -106,10 +96,10 @@ public class Bishop extends Piece {
 		// Down-Right
 		for (int x = getX() + 1, y = getY() + 1; x >= 0 && x <= 7 && y >= 0 && y <= 7; x++, y++) {
 			if (!tiles[y][x].hasPiece()) {
-				coordinates.add(new Coordinate(x, y));
+				coordinates.add(Coordinate.of(x, y));
 			} else {
 				if (hasEnemyPiece(x, y, tiles)) {
-					coordinates.add(new Coordinate(x, y));
+					coordinates.add(Coordinate.of(x, y));
 				}
 				break;
 			}
@@ -117,10 +107,10 @@ public class Bishop extends Piece {
 		// Up-Left
 		for (int x = getX() - 1, y = getY() - 1; x >= 0 && x <= 7 && y >= 0 && y <= 7; x--, y--) {
 			if (!tiles[y][x].hasPiece()) {
-				coordinates.add(new Coordinate(x, y));
+				coordinates.add(Coordinate.of(x, y));
 			} else {
 				if (hasEnemyPiece(x, y, tiles)) {
-					coordinates.add(new Coordinate(x, y));
+					coordinates.add(Coordinate.of(x, y));
 				}
 				break;
 			}
@@ -128,10 +118,10 @@ public class Bishop extends Piece {
 		// Down-Left
 		for (int x = getX() - 1, y = getY() + 1; x >= 0 && x <= 7 && y >= 0 && y <= 7; x--, y++) {
 			if (!tiles[y][x].hasPiece()) {
-				coordinates.add(new Coordinate(x, y));
+				coordinates.add(Coordinate.of(x, y));
 			} else {
 				if (hasEnemyPiece(x, y, tiles)) {
-					coordinates.add(new Coordinate(x, y));
+					coordinates.add(Coordinate.of(x, y));
 				}
 				break;
 			}
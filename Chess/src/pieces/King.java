@@ -3,9 +3,6 @@ package pieces;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.widgets.Shell;
-
 import game.Coordinate;
 import game.Tile;
 
@@ -18,10 +15,6 @@ import game.Tile;
  *
  */
 public class King extends Piece {
-	// Image name
-	String whitePiece = "wk.png";
-	String blackPiece = "bk.png";
-
 	/**
 	 * True if the king is in check, false if not.
 	 */
@@ -36,19 +29,12 @@ public class King extends Piece {
 	public boolean castlingMoveMade = false;
 
 	/**
-	 * Subclass constructor of {@link Piece#Piece(boolean)}.
+	 * Subclass constructor of {@link Piece#Piece(boolean, PieceType)}.
 	 * 
 	 * @param white true if piece is white, false if black
-	 * @param shell the graphical shell. Used to set the image of the piece.
 	 */
-	public King(boolean white, Shell shell) {
-		super(white);
-		if (white) {
-			setImage(new Image(shell.getDisplay(), "images/" + whitePiece));
-		} else {
-			setImage(new Image(shell.getDisplay(), "images/" + blackPiece));
-		}
-		this.name = "KING";
+	public King(boolean white) {
+		super(white, PieceType.KING);
 	}
 
 	@Override
@@ -118,10 +104,10 @@ public class King extends Piece {
 					break;
 				}
 				if (!tiles[getY() + row][getX() + col].hasPiece()) {
-					coordinates.add(new Coordinate(getX() + col, getY() + row));
+					coordinates.add(Coordinate.of(getX() + col, getY() + row));
 				} else {
 					if (tiles[getY() + row][getX() + col].getPiece().isWhite() != this.isWhite()) {
-						coordinates.add(new Coordinate(getX() + col, getY() + row));
+						coordinates.add(Coordinate.of(getX() + col, getY() + row));
 					}
 				}
 			}
@@ -153,13 +139,13 @@ public class King extends Piece {
 			Rook r = (Rook) tiles[0][7].getPiece();
 			if (!r.moved) {
 				List<Coordinate> positions = new ArrayList<>();
-				positions.add(new Coordinate(5, 0));
-				positions.add(new Coordinate(6, 0));
-				positions.add(new Coordinate(7, 0));
+				positions.add(Coordinate.of(5, 0));
+				positions.add(Coordinate.of(6, 0));
+				positions.add(Coordinate.of(7, 0));
 				boolean underAttack = underAttack(positions, tiles);
 				if (!underAttack && !tiles[0][5].hasPiece() && !tiles[0][6].hasPiece()) {
 					// Pawn edge case mentioned in generateMoves() header occurs here
-					coordinates.add(new Coordinate(7, 0));
+					coordinates.add(Coordinate.of(7, 0));
 				}
 			}
 		}
@@ -167,14 +153,14 @@ public class King extends Piece {
 			Rook r = (Rook) tiles[0][0].getPiece();
 			if (!r.moved) {
 				List<Coordinate> positions = new ArrayList<>();
-				positions.add(new Coordinate(0, 0));
-				positions.add(new Coordinate(1, 0));
-				positions.add(new Coordinate(2, 0));
-				positions.add(new Coordinate(3, 0));
+				positions.add(Coordinate.of(0, 0));
+				positions.add(Coordinate.of(1, 0));
+				positions.add(Coordinate.of(2, 0));
+				positions.add(Coordinate.of(3, 0));
 				boolean underAttack = underAttack(positions, tiles);
 				if (!underAttack && !tiles[0][1].hasPiece() && !tiles[0][2].hasPiece() && !tiles[0][3].hasPiece()) {
 					// Pawn edge case mentioned in generateMoves() header occurs here
-					coordinates.add(new Coordinate(0, 0));
+					coordinates.add(Coordinate.of(0, 0));
 				}
 			}
 		}
@@ -195,13 +181,13 @@ public class King extends Piece {
 			Rook r = (Rook) tiles[7][7].getPiece();
 			if (!r.moved) {
 				List<Coordinate> positions = new ArrayList<>();
-				positions.add(new Coordinate(5, 7));
-				positions.add(new Coordinate(6, 7));
-				positions.add(new Coordinate(7, 7));
+				positions.add(Coordinate.of(5, 7));
+				positions.add(Coordinate.of(6, 7));
+				positions.add(Coordinate.of(7, 7));
 				boolean underAttack = underAttack(positions, tiles);
 				if (!underAttack && !tiles[7][5].hasPiece() && !tiles[7][6].hasPiece()) {
 					// Pawn edge case mentioned in generateMoves() header occurs here
-					coordinates.add(new Coordinate(7, 7));
+					coordinates.add(Coordinate.of(7, 7));
 				}
 			}
 		}
@@ -209,14 +195,14 @@ public class King extends Piece {
 			Rook r = (Rook) tiles[7][0].getPiece();
 			if (!r.moved) {
 				List<Coordinate> positions = new ArrayList<>();
-				positions.add(new Coordinate(0, 7));
-				positions.add(new Coordinate(1, 7));
-				positions.add(new Coordinate(2, 7));
-				positions.add(new Coordinate(3, 7));
+				positions.add(Coordinate.of(0, 7));
+				positions.add(Coordinate.of(1, 7));
+				positions.add(Coordinate.of(2, 7));
+				positions.add(Coordinate.of(3, 7));
 				boolean underAttack = underAttack(positions, tiles);
 				if (!underAttack && !tiles[7][1].hasPiece() && !tiles[7][2].hasPiece() && !tiles[7][3].hasPiece()) {
 					// Pawn edge case mentioned in generateMoves() header occurs here
-					coordinates.add(new Coordinate(0, 7));
+					coordinates.add(Coordinate.of(0, 7));
 				}
 			}
 		}
@@ -3,9 +3,6 @@ package pieces;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.widgets.Shell;
-
 import game.Coordinate;
 import game.Tile;
 
@@ -17,25 +14,14 @@ import game.Tile;
  *
  */
 public class Knight extends Piece {
-	// Image names
-	String whitePiece = "wkn.png";
-	String blackPiece = "bkn.png";
-	int points = 3;
 
 	/**
-	 * Subclass constructor of {@link Piece#Piece(boolean)}.
+	 * Subclass constructor of {@link Piece#Piece(boolean, PieceType)}.
 	 * 
 	 * @param white true if piece is white, false if black
-	 * @param shell the graphical shell. Used to set the image of the piece.
 	 */
-	public Knight(boolean white, Shell shell) {
-		super(white);
-		if (white) {
-			setImage(new Image(shell.getDisplay(), "images/" + whitePiece));
-		} else {
-			setImage(new Image(shell.getDisplay(), "images/" + blackPiece));
-		}
-		this.name = "KNIGHT";
+	public Knight(boolean white) {
+		super(white, PieceType.KNIGHT);
 	}
 
 	@Override
@@ -123,9 +109,9 @@ public class Knight extends Piece {
 	 */
 	private void generateMovesHelper(int x, int y, Tile[][] tiles, List<Coordinate> coordinates) {
 		if (!tiles[y][x].hasPiece()) {
-			coordinates.add(new Coordinate(x, y));
+			coordinates.add(Coordinate.of(x, y));
 		} else if (hasEnemyPiece(x, y, tiles)) {
-			coordinates.add(new Coordinate(x, y));
+			coordinates.add(Coordinate.of(x, y));
 		}
 	}
 
@@ -3,9 +3,6 @@ package pieces;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.widgets.Shell;
-
 import game.Coordinate;
 import game.Tile;
 
@@ -23,10 +20,6 @@ import game.Tile;
  *
  */
 public class Pawn extends Piece {
-	// Image names
-	String whitePiece = "wp.png";
-	String blackPiece = "bp.png";
-	int points = 1;
 
 	/**
 	 * True if this is the pawn is still on it's first move ever, false if not.
@@ -44,19 +37,12 @@ public class Pawn extends Piece {
 	public boolean didEnPassant = false;
 
 	/**
-	 * Subclass constructor of {@link Piece#Piece(boolean)}.
+	 * Subclass constructor of {@link Piece#Piece(boolean, PieceType)}.
 	 * 
 	 * @param white true if piece is white, false if black
-	 * @param shell the graphical shell. Used to set the image of the piece.
 	 */
-	public Pawn(boolean white, Shell shell) {
-		super(white);
-		if (white) {
-			setImage(new Image(shell.getDisplay(), "images/" + whitePiece));
-		} else {
-			setImage(new Image(shell.getDisplay(), "images/" + blackPiece));
-		}
-		this.name = "PAWN";
+	public Pawn(boolean white) {
+		super(white, PieceType.PAWN);
 	}
 
 	/**
@@ -221,9 +207,9 @@ public class Pawn extends Piece {
 		List<Coordinate> coordinates = new ArrayList<>();
 		if (this.isWhite()) {
 			if (getY() - 1 >= 0 && !tiles[getY() - 1][getX()].hasPiece()) { // Vertical moves
-				coordinates.add(new Coordinate(getX(), getY() - 1));
+				coordinates.add(Coordinate.of(getX(), getY() - 1));
 				if (firstMove && !tiles[getY() - 2][getX()].hasPiece()) {
-					coordinates.add(new Coordinate(getX(), getY() - 2));
+					coordinates.add(Coordinate.of(getX(), getY() - 2));
 				}
 			}
 			if (getY() - 1 >= 0) { // Diagonal moves
@@ -236,9 +222,9 @@ public class Pawn extends Piece {
 			}
 		} else {
 			if (getY() + 1 <= 7 && !tiles[getY() + 1][getX()].hasPiece()) { // Vertical moves
-				coordinates.add(new Coordinate(getX(), getY() + 1));
+				coordinates.add(Coordinate.of(getX(), getY() + 1));
 				if (firstMove && !tiles[getY() + 2][getX()].hasPiece()) {
-					coordinates.add(new Coordinate(getX(), getY() + 2));
+					coordinates.add(Coordinate.of(getX(), getY() + 2));
 				}
 			}
 			if (getY() + 1 <= 7) { // Diagonal moves
@@ -268,12 +254,12 @@ public class Pawn extends Piece {
 	 */
 	private void diagonalHelper(int x, int y, Tile[][] tiles, List<Coordinate> coordinates) {
 		if (hasEnemyPiece(x, y, tiles)) {
-			coordinates.add(new Coordinate(x, y));
+			coordinates.add(Coordinate.of(x, y));
 		} else if (!tiles[y][x].hasPiece()) {
 			if (hasEnemyPiece(x, getY(), tiles) && tiles[getY()][x].getPiece() instanceof Pawn) {
 				Pawn p = (Pawn) tiles[getY()][x].getPiece();
 				if (p.enPassantable) {
-					coordinates.add(new Coordinate(x, y));
+					coordinates.add(Coordinate.of(x, y));
 				}
 			}
 		}
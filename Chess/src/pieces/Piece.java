@@ -2,15 +2,16 @@ package pieces;
 
 import java.util.List;
 
-import org.eclipse.swt.graphics.GC;
-import org.eclipse.swt.graphics.Image;
-
 import game.Coordinate;
 import game.Tile;
 
 /**
  * This abstract class is responsible for outlining general Piece functionality.
  * Subclasses of Piece are: King, Queen, Bishop, Knight, Pawn, and Rook.
+ * <P>
+ * Pieces hold no images or other SWT resources, so they can be made off the UI
+ * thread and without a Display. The drawing code looks the image up by
+ * {@link #getType()} and color in {@link game.PieceImages}.
  * 
  * @author Julius Ramirez
  */
@@ -29,9 +30,10 @@ public abstract class Piece {
 	 */
 	private int y;
 	/**
-	 * An image which represents the piece
+	 * The type of this piece, which never changes. A promoted pawn is replaced by
+	 * a new piece.
 	 */
-	private Image visual;
+	private final PieceType type;
 	/**
 	 * The graphical spacing of squares on the chessboard graphic
 	 */
@@ -56,13 +58,40 @@ public abstract class Piece {
 	public boolean selected = false;
 
 	/**
-	 * Creates a new piece, only saving its color. The location of the piece must
-	 * thus be set after its creation. Selected is initialized to false.
+	 * Creates a new piece, only saving its color and type. The location of the
+	 * piece must thus be set after its creation. Selected is initialized to false.
 	 * 
 	 * @param white true if the piece is white, false if it is not.
+	 * @param type  the type of the piece.
 	 */
-	public Piece(boolean white) {
+	public Piece(boolean white, PieceType type) {
 		this.white = white;
+		this.type = type;
+		this.name = type.name();
+	}
+
+	/**
+	 * Creates a new piece of the given type.
+	 * 
+	 * @param type  the type of the piece.
+	 * @param white true if the piece is white, false if it is not.
+	 * @return a new Pawn, Knight, Bishop, Rook, Queen or King.
+	 */
+	public static Piece create(PieceType type, boolean white) {
+		switch (type) {
+		case PAWN:
+			return new Pawn(white);
+		case KNIGHT:
+			return new Knight(white);
+		case BISHOP:
+			return new Bishop(white);
+		case ROOK:
+			return new Rook(white);
+		case QUEEN:
+			return new Queen(white);
+		default:
+			return new King(white);
+		}
 	}
 
 	/**
@@ -97,15 +126,6 @@ public abstract class Piece {
 		return this.standardMove(x, y) && this.hasNoCollisions(x, y, tiles);
 	}
 
-	/**
-	 * This method is responsible for drawing a piece onto the UI canvas.
-	 * 
-	 * @param gc the graphical context where the image is to be drawn onto.
-	 */
-	public void draw(GC gc) {
-		gc.drawImage(this.visual, this.x * SQUARE_WIDTH + 10 + BOARD_COORD_OFFSET / 2, this.y * SQUARE_WIDTH + 10);
-	}
-
 	/**
 	 * This helper method is used in the generateMove() methods, it returns true if
 	 * the tile has an enemy piece.
@@ -168,6 +188,15 @@ public abstract class Piece {
 		return this.name;
 	}
 
+	/**
+	 * Returns the type of the piece.
+	 * 
+	 * @return the PieceType of the piece, never null.
+	 */
+	public PieceType getType() {
+		return this.type;
+	}
+
 	/**
 	 * This method is used to determine the color of the piece, returning the
 	 * piece's white field which is true if the piece is white, false if it is
@@ -270,8 +299,8 @@ public abstract class Piece {
 
 	/**
 	 * This method is used to set the SQUARE_WIDTH variable, a static variable
-	 * representing how wide each tile on the board is which is necessary for when a
-	 * piece must draw itself onto the UI.
+	 * representing how wide each tile on the board is which is necessary for
+	 * turning clicked locations into coordinates.
 	 * 
 	 * @param width, an integer representing how wide a square is on the board.
 	 */
@@ -279,16 +308,6 @@ public abstract class Piece {
 		SQUARE_WIDTH = width;
 	}
 
-	/**
-	 * This method sets the image of the piece so that it is properly represented on
-	 * the chess board.
-	 * 
-	 * @param image an Image object which is a visual representation of the piece.
-	 */
-	public void setImage(Image image) {
-		this.visual = image;
-	}
-
 	// -- Abstract methods
 	/**
 	 * This method returns a boolean depending on if the piece is moved in a way
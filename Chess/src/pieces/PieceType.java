@@ -0,0 +1,77 @@
+package pieces;
+
+/**
+ * The six kinds of chess pieces and the facts that never change about them:
+ * their name, their point value and the letter used for them in notation. The
+ * order of the constants matches the piece type numbers of the bitboard engine
+ * (PAWN is 0 through KING is 5), so {@link #ordinal()} can be used as one.
+ * <P>
+ * Unlike Piece objects, types hold no board state and no images, so they can
+ * be shared freely. Images are looked up by type and color in the rendering
+ * layer only.
+ */
+public enum PieceType {
+	PAWN(1, 'p'), KNIGHT(3, 'n'), BISHOP(3, 'b'), ROOK(5, 'r'), QUEEN(9, 'q'), KING(0, 'k');
+
+	/**
+	 * The material value of the piece, a pawn being worth 1. The king can not be
+	 * captured and is worth 0.
+	 */
+	private final int points;
+	/**
+	 * The lower case letter of the piece in FEN and coordinate notation.
+	 */
+	private final char letter;
+
+	private PieceType(int points, char letter) {
+		this.points = points;
+		this.letter = letter;
+	}
+
+	/**
+	 * Returns the material value of the piece, a pawn being worth 1.
+	 *
+	 * @return an integer between 0 and 9 inclusive.
+	 */
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * Returns the letter of the piece in notation, upper case for white.
+	 *
+	 * @param white true for the white piece, false for the black piece.
+	 * @return one of the letters p, n, b, r, q or k.
+	 */
+	public char getLetter(boolean white) {
+		return white ? Character.toUpperCase(letter) : letter;
+	}
+
+	/**
+	 * Returns the file name of the image of this piece in the images folder, such
+	 * as "wq.png" for the white queen.
+	 *
+	 * @param white true for the white piece, false for the black piece.
+	 * @return the image file name.
+	 */
+	public String getImageName(boolean white) {
+		// the knight is "kn" so that it does not clash with the king
+		String suffix = this == KNIGHT ? "kn" : String.valueOf(letter);
+		return (white ? "w" : "b") + suffix + ".png";
+	}
+
+	/**
+	 * Returns the type with the given name, ignoring case, such as "Queen".
+	 *
+	 * @param name the name of a piece type.
+	 * @return the matching PieceType, or null if there is none.
+	 */
+	public static PieceType fromName(String name) {
+		for (PieceType type : values()) {
+			if (type.name().equalsIgnoreCase(name)) {
+				return type;
+			}
+		}
+		return null;
+	}
+}
@@ -3,9 +3,6 @@ package pieces;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.widgets.Shell;
-
 import game.Coordinate;
 import game.Tile;
 
@@ -31,30 +28,18 @@ public class Queen extends Piece {
 	 */
 	private Bishop bishop;
 
-	// Image names
-	String whitePiece = "wq.png";
-	String blackPiece = "bq.png";
-	int points = 9;
-
 	/**
-	 * Subclass constructor of {@link Piece#Piece(boolean)}. Creates and stores a
+	 * Subclass constructor of {@link Piece#Piece(boolean, PieceType)}. Creates and stores a
 	 * Rook and Bishop object so that they may be used for valid move detection and
 	 * move generation.
 	 * 
 	 * @param white true if piece is white, false if black
-	 * @param shell the graphical shell. Used to set the image of the piece.
 	 */
-	public Queen(boolean white, Shell shell) {
-		super(white);
-		if (white) {
-			setImage(new Image(shell.getDisplay(), "images/" + whitePiece));
-		} else {
-			setImage(new Image(shell.getDisplay(), "images/" + blackPiece));
-		}
-		this.name = "QUEEN";
-		this.rook = new Rook(white, shell);
+	public Queen(boolean white) {
+		super(white, PieceType.QUEEN);
+		this.rook = new Rook(white);
 		this.rook.moved = true; // set moved to true so castling bugs will not occur.
-		this.bishop = new Bishop(white, shell);
+		this.bishop = new Bishop(white);
 	}
 
 	/**
@@ -3,9 +3,6 @@ package pieces;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.widgets.Shell;
-
 import game.Coordinate;
 import game.Tile;
 
@@ -18,30 +15,19 @@ import game.Tile;
  *
  */
 public class Rook extends Piece {
-	// Image names
-	String whitePiece = "wr.png";
-	String blackPiece = "br.png";
-	int points = 5;
 	/**
 	 * True if the rook has ever been moved, false if not.
 	 */
 	public boolean moved = false;
 
 	/**
-	 * Subclass constructor of {@link Piece#Piece(boolean)}. The {@link Rook#moved}
+	 * Subclass constructor of {@link Piece#Piece(boolean, PieceType)}. The {@link Rook#moved}
 	 * field is initialized to false.
 	 * 
 	 * @param white true if the piece is white, false if not
-	 * @param shell the graphical shell. Used to set the image of the piece.
 	 */
-	public Rook(boolean white, Shell shell) {
-		super(white);
-		if (white) {
-			setImage(new Image(shell.getDisplay(), "images/" + whitePiece));
-		} else {
-			setImage(new Image(shell.getDisplay(), "images/" + blackPiece));
-		}
-		this.name = "ROOK";
+	public Rook(boolean white) {
+		super(white, PieceType.ROOK);
 	}
 
 	@Override
@@ -155,10 +141,10 @@ public class Rook extends Piece {
 	 */
 	private boolean generateMovesHelper(int x, int y, Tile[][] tiles, List<Coordinate> coordinates) {
 		if (!tiles[y][x].hasPiece()) {
-			coordinates.add(new Coordinate(x, y));
+			coordinates.add(Coordinate.of(x, y));
 		} else {
 			if (hasEnemyPiece(x, y, tiles)) {
-				coordinates.add(new Coordinate(x, y));
+				coordinates.add(Coordinate.of(x, y));
 			}
 			return true;
 		}